@@ -0,0 +1,56 @@
+package com.axell.reactive.configuration;
+
+import com.axell.reactive.diagnostics.RequestTrace;
+import com.axell.reactive.diagnostics.RequestTraceFilter;
+import com.axell.reactive.diagnostics.SlowRequestLog;
+import com.axell.reactive.diagnostics.TracingDataSource;
+import io.reactivex.plugins.RxJavaPlugins;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.DispatcherType;
+import javax.sql.DataSource;
+
+/**
+ * Traces requests when {@code diagnostics.enabled} is set: the filter starts the trace, RxJava carries it to the
+ * scheduler threads and the datasource records the statements.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diagnostics.enabled")
+public class DiagnosticsConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<RequestTraceFilter> requestTraceFilter(SlowRequestLog slowRequestLog) {
+        FilterRegistrationBean<RequestTraceFilter> registrationBean = new FilterRegistrationBean<>(new RequestTraceFilter(slowRequestLog));
+        registrationBean.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registrationBean;
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof TracingDataSource)
+                        ? new TracingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void registerScheduleHandler() {
+        RxJavaPlugins.setScheduleHandler(RequestTrace::propagate);
+    }
+
+    @PreDestroy
+    public void unregisterScheduleHandler() {
+        RxJavaPlugins.setScheduleHandler(null);
+    }
+}
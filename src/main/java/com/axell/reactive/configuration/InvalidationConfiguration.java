@@ -0,0 +1,60 @@
+package com.axell.reactive.configuration;
+
+import com.axell.reactive.entity.Author;
+import com.axell.reactive.service.invalidation.HybridClock;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationTransport;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.service.invalidation.LocalInvalidationTransport;
+import com.axell.reactive.service.invalidation.MulticastInvalidationTransport;
+import com.axell.reactive.service.invalidation.VersionedCache;
+import com.axell.reactive.servicedto.response.BookResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * {@code invalidation.transport=multicast} tells the other instances about writes over UDP multicast, the default
+ * {@code local} transport is for a single instance.
+ */
+@Configuration
+public class InvalidationConfiguration {
+
+    @Bean
+    public HybridClock hybridClock() {
+        return new HybridClock();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "invalidation.transport", havingValue = "local", matchIfMissing = true)
+    public InvalidationTransport localInvalidationTransport() {
+        return new LocalInvalidationTransport();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "invalidation.transport", havingValue = "multicast")
+    public InvalidationTransport multicastInvalidationTransport(@Value("${invalidation.multicast.group}") String group,
+                                                                @Value("${invalidation.multicast.port}") int port,
+                                                                @Value("${invalidation.multicast.interface:}") String interfaceAddress) {
+        return new MulticastInvalidationTransport(group, port, interfaceAddress);
+    }
+
+    @Bean
+    public VersionedCache<BookResponse> bookDetailCache(InvalidationService invalidationService, HybridClock hybridClock,
+                                                        @Value("${invalidation.cache.ttl-millis:60000}") long ttlMillis,
+                                                        @Value("${invalidation.cache.max-entries:10000}") int maxEntries) {
+        VersionedCache<BookResponse> bookDetailCache = new VersionedCache<>(InvalidationType.BOOK, hybridClock, ttlMillis, maxEntries);
+        invalidationService.addListener(bookDetailCache);
+        return bookDetailCache;
+    }
+
+    @Bean
+    public VersionedCache<Author> authorCache(InvalidationService invalidationService, HybridClock hybridClock,
+                                              @Value("${invalidation.cache.ttl-millis:60000}") long ttlMillis,
+                                              @Value("${invalidation.cache.max-entries:10000}") int maxEntries) {
+        VersionedCache<Author> authorCache = new VersionedCache<>(InvalidationType.AUTHOR, hybridClock, ttlMillis, maxEntries);
+        invalidationService.addListener(authorCache);
+        return authorCache;
+    }
+}
@@ -0,0 +1,37 @@
+package com.axell.reactive.configuration;
+
+import io.reactivex.Scheduler;
+import io.reactivex.exceptions.UndeliverableException;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.CancellationException;
+
+@Slf4j
+@Configuration
+public class RxJavaConfiguration {
+
+    // Scheduler the controllers offload blocking service calls to, VirtualThreadConfiguration replaces it when enabled.
+    // The shared io scheduler must not be shut down with the context, hence no destroy method
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(name = "execution.virtual-threads.enabled", havingValue = "false", matchIfMissing = true)
+    public Scheduler blockingScheduler() {
+        return Schedulers.io();
+    }
+
+    @PostConstruct
+    public void registerErrorHandler() {
+        RxJavaPlugins.setErrorHandler(throwable -> {
+            Throwable cause = throwable instanceof UndeliverableException ? throwable.getCause() : throwable;
+            // Cancelled queries fail after their subscriber is disposed, so nobody is left to receive the error
+            if (cause instanceof CancellationException)
+                return;
+            log.error("Undeliverable exception received", cause);
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.axell.reactive.configuration;
+
+import com.axell.reactive.repository.sharding.ShardRoutingDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single datasource with {@code sharding.shards} datasources whose urls come from
+ * {@code sharding.url-template} formatted with the shard number, all sharing the {@code spring.datasource} driver and
+ * credentials. Flyway and Hibernate only see the default shard while they start, so every shard is migrated with the
+ * {@code db/migration} scripts here.
+ */
+@Configuration
+@ConditionalOnExpression("${sharding.shards:1} > 1")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                             @Value("${sharding.shards}") int shardCount,
+                                             @Value("${sharding.url-template}") String urlTemplate) {
+        List<DataSource> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            DataSource shardDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                    .url(String.format(urlTemplate, shard))
+                    .build();
+            Flyway.configure()
+                    .dataSource(shardDataSource)
+                    .load()
+                    .migrate();
+            shards.add(shardDataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+}
@@ -0,0 +1,37 @@
+package com.axell.reactive.configuration;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs Tomcat request handling and the blocking service calls on virtual threads, so a request waiting for the
+ * database parks a virtual thread instead of holding a platform thread. The JDBC connection pool still bounds how
+ * many requests reach the database at once.
+ */
+@Configuration
+@ConditionalOnProperty(name = "execution.virtual-threads.enabled")
+public class VirtualThreadConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean(destroyMethod = "")
+    public Scheduler blockingScheduler(ExecutorService virtualThreadExecutor) {
+        return Schedulers.from(virtualThreadExecutor);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(ExecutorService virtualThreadExecutor) {
+        return tomcatServletWebServerFactory -> tomcatServletWebServerFactory.addConnectorCustomizers(
+                connector -> connector.getProtocolHandler().setExecutor(virtualThreadExecutor));
+    }
+}
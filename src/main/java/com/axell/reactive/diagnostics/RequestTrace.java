@@ -0,0 +1,199 @@
+package com.axell.reactive.diagnostics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Phase timings and JDBC statements of one request. The trace follows the request to the scheduler threads it is
+ * continued on through {@link #propagate(Runnable)}, code can time its phases with {@link #phase(String, Supplier)}
+ * without knowing whether a request is traced at all.
+ */
+public class RequestTrace {
+
+    static final int MAX_RECORDED_STATEMENTS = 50;
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final long id;
+    @Getter
+    private final String method;
+    @Getter
+    private final String path;
+    @Getter
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final List<StatementTrace> statements = new ArrayList<>();
+    private final Map<String, Integer> statementCounts = new TreeMap<>();
+    private int statementCount;
+    private long statementNanos;
+    private long statementRows;
+    private long totalNanos;
+    private int status;
+
+    public RequestTrace(long id, String method, String path) {
+        this.id = id;
+        this.method = method;
+        this.path = path;
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    static RequestTrace attach(RequestTrace trace) {
+        RequestTrace previousTrace = CURRENT.get();
+        CURRENT.set(trace);
+        return previousTrace;
+    }
+
+    static void restore(RequestTrace previousTrace) {
+        if (previousTrace == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(previousTrace);
+    }
+
+    public static <T> T phase(String name, Supplier<T> work) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null)
+            return work.get();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            trace.addPhase(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Continues the current trace, if any, on the thread that runs the task and records how long the task waited
+     * for that thread as {@code scheduler-wait}. Installed as RxJava schedule handler.
+     */
+    public static Runnable propagate(Runnable task) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null)
+            return task;
+        long scheduledNanos = System.nanoTime();
+        return () -> {
+            trace.addPhase("scheduler-wait", System.nanoTime() - scheduledNanos);
+            RequestTrace previousTrace = attach(trace);
+            try {
+                task.run();
+            } finally {
+                restore(previousTrace);
+            }
+        };
+    }
+
+    public synchronized void addPhase(String name, long nanos) {
+        phaseNanos.merge(name, nanos, Long::sum);
+    }
+
+    // Only the first statements are kept with their sql, all of them are counted by kind
+    synchronized StatementTrace addStatement(String sql, long nanos, long rows) {
+        statementCount++;
+        statementCounts.merge(statementKind(sql), 1, Integer::sum);
+        statementNanos += nanos;
+        statementRows += rows;
+        if (statements.size() >= MAX_RECORDED_STATEMENTS)
+            return null;
+        StatementTrace statementTrace = new StatementTrace(sql, nanos, rows);
+        statements.add(statementTrace);
+        return statementTrace;
+    }
+
+    // The leading keyword, SELECT, INSERT, UPDATE, DELETE and so on
+    private static String statementKind(String sql) {
+        if (sql == null)
+            return "UNKNOWN";
+        String trimmedSql = sql.trim();
+        int end = 0;
+        while (end < trimmedSql.length() && Character.isLetter(trimmedSql.charAt(end)))
+            end++;
+        return end == 0 ? "UNKNOWN" : trimmedSql.substring(0, end).toUpperCase(Locale.ROOT);
+    }
+
+    synchronized void addRow(StatementTrace statementTrace) {
+        statementRows++;
+        if (statementTrace != null)
+            statementTrace.rows++;
+    }
+
+    synchronized void finish(int status) {
+        this.status = status;
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public synchronized int getStatus() {
+        return status;
+    }
+
+    public synchronized double getTotalMillis() {
+        return toMillis(totalNanos);
+    }
+
+    public synchronized Map<String, Double> getPhaseMillis() {
+        Map<String, Double> phaseMillis = new LinkedHashMap<>();
+        phaseNanos.forEach((name, nanos) -> phaseMillis.put(name, toMillis(nanos)));
+        return phaseMillis;
+    }
+
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    // Number of statements per kind, ordered by kind
+    public synchronized Map<String, Integer> getStatementCounts() {
+        return new TreeMap<>(statementCounts);
+    }
+
+    public synchronized double getStatementMillis() {
+        return toMillis(statementNanos);
+    }
+
+    public synchronized long getStatementRows() {
+        return statementRows;
+    }
+
+    public synchronized List<StatementTrace> getStatements() {
+        List<StatementTrace> statementsCopy = new ArrayList<>(statements.size());
+        for (StatementTrace statement : statements)
+            statementsCopy.add(new StatementTrace(statement.sql, statement.nanos, statement.rows));
+        return statementsCopy;
+    }
+
+    public synchronized String describe() {
+        StringBuilder description = new StringBuilder("status ").append(status);
+        phaseNanos.forEach((name, nanos) -> description.append(String.format(", %s %.1f ms", name, toMillis(nanos))));
+        return description.append(String.format(", %d statements %s taking %.1f ms and returning %d rows",
+                statementCount, statementCounts, toMillis(statementNanos), statementRows)).toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @AllArgsConstructor
+    public static class StatementTrace {
+        @Getter
+        private final String sql;
+        private final long nanos;
+        @Getter
+        private long rows;
+
+        public double getMillis() {
+            return toMillis(nanos);
+        }
+    }
+}
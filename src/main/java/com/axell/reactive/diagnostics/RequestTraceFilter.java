@@ -0,0 +1,50 @@
+package com.axell.reactive.diagnostics;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Traces every request from the first filter to the end of its last dispatch. The controller call runs in the
+ * {@code request-thread} phase, writing the response of an asynchronous request, which includes serializing it, in
+ * {@code response-write}.
+ */
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+    private static final String TRACE_ATTRIBUTE = RequestTraceFilter.class.getName() + ".trace";
+
+    private final SlowRequestLog slowRequestLog;
+
+    public RequestTraceFilter(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RequestTrace trace = (RequestTrace) request.getAttribute(TRACE_ATTRIBUTE);
+        boolean asyncDispatch = trace != null;
+        if (!asyncDispatch) {
+            trace = slowRequestLog.start(request.getMethod(), request.getRequestURI());
+            request.setAttribute(TRACE_ATTRIBUTE, trace);
+        }
+        RequestTrace previousTrace = RequestTrace.attach(trace);
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            trace.addPhase(asyncDispatch ? "response-write" : "request-thread", System.nanoTime() - start);
+            RequestTrace.restore(previousTrace);
+            if (!request.isAsyncStarted())
+                slowRequestLog.finish(trace, response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.axell.reactive.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs traced requests that took {@code diagnostics.slow-requests.threshold-millis} or longer with their breakdown,
+ * and keeps the last {@code diagnostics.slow-requests.history-size} of them for the admin endpoint.
+ */
+@Slf4j
+@Component
+public class SlowRequestLog {
+
+    @Value("${diagnostics.slow-requests.threshold-millis:500}")
+    private long thresholdMillis;
+    @Value("${diagnostics.slow-requests.history-size:50}")
+    private int historySize;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private final Deque<RequestTrace> slowRequests = new ArrayDeque<>();
+
+    public RequestTrace start(String method, String path) {
+        return new RequestTrace(requestIds.incrementAndGet(), method, path);
+    }
+
+    public void finish(RequestTrace trace, int status) {
+        trace.finish(status);
+        if (trace.getTotalMillis() < thresholdMillis)
+            return;
+        log.warn("Slow request {} {} took {} ms: {}", trace.getMethod(), trace.getPath(),
+                String.format("%.1f", trace.getTotalMillis()), trace.describe());
+        synchronized (slowRequests) {
+            slowRequests.addFirst(trace);
+            while (slowRequests.size() > historySize)
+                slowRequests.removeLast();
+        }
+    }
+
+    // Newest first
+    public List<RequestTrace> getSlowRequests() {
+        synchronized (slowRequests) {
+            return new ArrayList<>(slowRequests);
+        }
+    }
+}
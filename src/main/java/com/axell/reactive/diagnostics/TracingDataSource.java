@@ -0,0 +1,120 @@
+package com.axell.reactive.diagnostics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Records the statements executed for a traced request, with their sql, execution time and the rows they read or
+ * changed, into the current {@link RequestTrace}. Connections, statements and result sets are wrapped in JDK
+ * proxies, which only measure anything while a trace is attached to the thread.
+ */
+public class TracingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    public TracingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return traceConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return traceConnection(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable)
+            ((AutoCloseable) getTargetDataSource()).close();
+    }
+
+    private static Connection traceConnection(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof CallableStatement)
+                return traceStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+            if (result instanceof PreparedStatement)
+                return traceStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+            if (result instanceof Statement)
+                return traceStatement(Statement.class, (Statement) result, null);
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S traceStatement(Class<S> statementType, Statement statement, String preparedSql) {
+        RequestTrace.StatementTrace[] lastStatementTrace = new RequestTrace.StatementTrace[1];
+        return proxy(statementType, statement, (proxy, method, args) -> {
+            RequestTrace trace = RequestTrace.current();
+            String methodName = method.getName();
+            if (trace == null || !(methodName.startsWith("execute") || methodName.equals("getResultSet")))
+                return invoke(statement, method, args);
+            if (methodName.equals("getResultSet"))
+                return traceResultSet((ResultSet) invoke(statement, method, args), trace, lastStatementTrace[0]);
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            Object result = invoke(statement, method, args);
+            long nanos = System.nanoTime() - start;
+            lastStatementTrace[0] = trace.addStatement(sql, nanos, updatedRows(result));
+            if (result instanceof ResultSet)
+                return traceResultSet((ResultSet) result, trace, lastStatementTrace[0]);
+            return result;
+        });
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Integer || result instanceof Long)
+            return ((Number) result).longValue();
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int batchRows : (int[]) result)
+                rows += Math.max(batchRows, 0);
+            return rows;
+        }
+        return 0;
+    }
+
+    private static ResultSet traceResultSet(ResultSet resultSet, RequestTrace trace, RequestTrace.StatementTrace statementTrace) {
+        if (resultSet == null)
+            return null;
+        return proxy(ResultSet.class, resultSet, (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result))
+                trace.addRow(statementTrace);
+            return result;
+        });
+    }
+
+    // Proxies compare by identity, pools and Hibernate keep statements and result sets in hash maps
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler invocationHandler) {
+        return (T) Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("equals") && method.getParameterCount() == 1)
+                return proxy == args[0];
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0)
+                return System.identityHashCode(proxy);
+            return invocationHandler.invoke(proxy, method, args);
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
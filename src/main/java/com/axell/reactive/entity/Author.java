@@ -2,13 +2,13 @@ package com.axell.reactive.entity;
 
 import lombok.*;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Id;
-import javax.persistence.Table;
+import javax.persistence.*;
 
 @Entity
-@Table(name = "authors")
+@Table(
+        name = "authors",
+        uniqueConstraints = @UniqueConstraint(name = "uk_authors_normalized_name", columnNames = "normalized_name")
+)
 @Getter
 @Setter
 @Builder
@@ -21,4 +21,13 @@ public class Author {
 
     @Column(name = "name")
     private String name;
+
+    // Lookup key that makes names differing only in case, spacing or Unicode form the same author
+    @Column(name = "normalized_name")
+    private String normalizedName;
+
+    public Author(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
@@ -1,6 +1,5 @@
 package com.axell.reactive.entity;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,7 +11,6 @@ import javax.persistence.*;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Book {
     @Id
     @Column(name = "id")
@@ -24,4 +22,19 @@ public class Book {
     @ManyToOne
     @JoinColumn(name = "author_id")
     private Author author;
+
+    // Copy of the author's name, so the book list can be ordered by it through an index on books
+    @Column(name = "author_name")
+    private String authorName;
+
+    public Book(String id, String title, Author author) {
+        this.id = id;
+        this.title = title;
+        setAuthor(author);
+    }
+
+    public void setAuthor(Author author) {
+        this.author = author;
+        this.authorName = author == null ? null : author.getName();
+    }
 }
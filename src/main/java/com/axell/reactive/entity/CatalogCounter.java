@@ -0,0 +1,24 @@
+package com.axell.reactive.entity;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "catalog_counters")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogCounter {
+    @Id
+    @Column(name = "counter_key")
+    private String counterKey;
+
+    @Column(name = "counter_value", nullable = false)
+    private long counterValue;
+}
@@ -0,0 +1,10 @@
+package com.axell.reactive.exception;
+
+/**
+ * Signals that an author cannot be deleted without cascading to their books.
+ */
+public class AuthorHasBooksException extends RuntimeException {
+    public AuthorHasBooksException(String authorId) {
+        super("Author " + authorId + " still has books");
+    }
+}
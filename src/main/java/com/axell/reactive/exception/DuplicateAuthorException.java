@@ -0,0 +1,10 @@
+package com.axell.reactive.exception;
+
+/**
+ * Signals that a concurrent request added an author with the same normalized name first.
+ */
+public class DuplicateAuthorException extends RuntimeException {
+    public DuplicateAuthorException(Throwable cause) {
+        super("An author with the same normalized name was added concurrently", cause);
+    }
+}
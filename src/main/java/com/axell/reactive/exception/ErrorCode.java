@@ -1,5 +1,12 @@
 package com.axell.reactive.exception;
 
 public enum ErrorCode {
-    ENTITY_NOT_FOUND
+    ENTITY_NOT_FOUND,
+    SERVICE_OVERLOADED,
+    DEADLINE_EXCEEDED,
+    INVALID_REQUEST,
+    DUPLICATE_ENTITY,
+    IDEMPOTENCY_KEY_REUSED,
+    NOT_READY,
+    AUTHOR_HAS_BOOKS
 }
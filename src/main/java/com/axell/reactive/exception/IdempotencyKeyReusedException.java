@@ -0,0 +1,10 @@
+package com.axell.reactive.exception;
+
+/**
+ * Signals that an idempotency key was sent again with a different request than the one it was first used for.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used for a different request");
+    }
+}
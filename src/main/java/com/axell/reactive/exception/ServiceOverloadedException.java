@@ -0,0 +1,11 @@
+package com.axell.reactive.exception;
+
+/**
+ * Signals that a request was shed by the concurrency limiter. It is thrown on every rejected request while the
+ * service is saturated, so it is created without a stack trace to keep the rejection path cheap.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String endpoint) {
+        super("Concurrency limit reached for " + endpoint, null, false, false);
+    }
+}
@@ -0,0 +1,19 @@
+package com.axell.reactive.exception;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Not-found signal for lookups by id. A missing entity is an expected outcome that always ends as the same
+ * 404 response, so a single instance without a stack trace is shared instead of capturing one per request.
+ */
+public class StacklessEntityNotFoundException extends EntityNotFoundException {
+    public static final StacklessEntityNotFoundException INSTANCE = new StacklessEntityNotFoundException();
+
+    private StacklessEntityNotFoundException() {
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,7 @@
+package com.axell.reactive.repository;
+
+public interface AuthorBookCount {
+    String getAuthorId();
+
+    long getBookCount();
+}
@@ -2,8 +2,23 @@ package com.axell.reactive.repository;
 
 import com.axell.reactive.entity.Author;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface AuthorRepository extends JpaRepository<Author, String> {
+public interface AuthorRepository extends JpaRepository<Author, String>, InsertRepository<Author> {
+    Optional<Author> findByNormalizedName(String normalizedName);
+
+    List<Author> findAllByNormalizedNameIn(Collection<String> normalizedNames);
+
+    // Deletes without loading the author first, as deleteById would
+    @Modifying
+    @Query("delete from Author author where author.id = :authorId")
+    int deleteAuthorById(@Param("authorId") String authorId);
 }
@@ -1,12 +1,47 @@
 package com.axell.reactive.repository;
 
 import com.axell.reactive.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, String> {
-    List<Book> findAllByAuthorId(String authorId);
+public interface BookRepository extends JpaRepository<Book, String>, InsertRepository<Book>, BookSummaryRepository {
+    // The derived query filters on a join with the authors table, which scans all books. Comparing the foreign key
+    // column itself lets idx_books_author_id, an index on author_id alone, find an author's books
+    @Query("select book from Book book where book.author.id = :authorId")
+    List<Book> findAllByAuthorId(@Param("authorId") String authorId);
+
+    // The eager author would otherwise be loaded with one select per distinct author on the page
+    @EntityGraph(attributePaths = "author")
+    @Query("select book from Book book where book.author.id = :authorId")
+    List<Book> findAllByAuthorId(@Param("authorId") String authorId, Pageable pageable);
+
+    // Counts the titles findSummaryPageByTitleRange pages through, within the title index
+    @Query("select count(book) from Book book where book.title >= :from and book.title < :to")
+    long countByTitleRange(@Param("from") String from, @Param("to") String to);
+
+    // Selects only the columns a book response needs, joined with the author instead of loading it per book
+    @Query("select book.id as id, book.title as title, author.name as authorName, author.id as authorId "
+            + "from Book book left join book.author author where book.id in :ids")
+    List<BookSummary> findAllSummariesByIdIn(@Param("ids") Collection<String> ids);
+
+    @Query("select book.id as id, book.title as title, author.name as authorName, author.id as authorId "
+            + "from Book book left join book.author author order by book.id")
+    List<BookSummary> findAllSummaries();
+
+    @Query("select book.author.id as authorId, count(book) as bookCount from Book book group by book.author.id")
+    List<AuthorBookCount> countAllGroupByAuthorId();
+
+    // One statement for a whole chunk of books, bypassing the persistence context that delete(book) loads them into
+    @Modifying
+    @Query("delete from Book book where book.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<String> ids);
 }
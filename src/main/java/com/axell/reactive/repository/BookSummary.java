@@ -0,0 +1,11 @@
+package com.axell.reactive.repository;
+
+public interface BookSummary {
+    String getId();
+
+    String getTitle();
+
+    String getAuthorName();
+
+    String getAuthorId();
+}
@@ -0,0 +1,35 @@
+package com.axell.reactive.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repository fragment for book list pages that selects only the given properties of {@link BookSummary}, the others
+ * are null in the returned summaries. The author's name is read from its copy in the books table, so no page joins
+ * the authors.
+ */
+public interface BookSummaryRepository {
+    List<BookSummary> findSummaryPage(Set<String> properties, Pageable pageable);
+
+    List<BookSummary> findSummaryPageByAuthorId(Set<String> properties, String authorId, Pageable pageable);
+
+    /**
+     * Titles from {@code from} up to but excluding {@code to}. Titles starting with a prefix are the range up to the
+     * prefix with its last character incremented, which the title index reads in title order. A like pattern bound
+     * as a parameter is not turned into an index range.
+     */
+    List<BookSummary> findSummaryPageByTitleRange(Set<String> properties, String from, String to, Pageable pageable);
+
+    /**
+     * Keyset pages start after the book with {@code afterId} whose first sort property is {@code afterSortKey}, the
+     * sort index seeks to it instead of stepping over every book before it. A null {@code afterId} starts at the first
+     * book, a null sort key is the key of a book without that property, which sorts first.
+     */
+    List<BookSummary> findSummaryPage(Set<String> properties, String afterSortKey, String afterId, Pageable pageable);
+
+    List<BookSummary> findSummaryPageByAuthorId(Set<String> properties, String authorId, String afterSortKey, String afterId, Pageable pageable);
+
+    List<BookSummary> findSummaryPageByTitleRange(Set<String> properties, String from, String to, String afterSortKey, String afterId, Pageable pageable);
+}
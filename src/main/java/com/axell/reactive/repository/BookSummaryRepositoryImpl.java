@@ -0,0 +1,130 @@
+package com.axell.reactive.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class BookSummaryRepositoryImpl implements BookSummaryRepository {
+
+    // The select list is built from the requested properties, only these paths ever end up in the query. The author
+    // id is the foreign key column, selecting it does not join the authors
+    private static final Map<String, String> PROPERTY_PATHS = new LinkedHashMap<>();
+
+    static {
+        PROPERTY_PATHS.put("id", "book.id");
+        PROPERTY_PATHS.put("title", "book.title");
+        PROPERTY_PATHS.put("authorName", "book.authorName");
+        PROPERTY_PATHS.put("authorId", "book.author.id");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookSummary> findSummaryPage(Set<String> properties, Pageable pageable) {
+        return findSummaryPage(properties, null, null, pageable);
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPageByAuthorId(Set<String> properties, String authorId, Pageable pageable) {
+        return findSummaryPageByAuthorId(properties, authorId, null, null, pageable);
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPageByTitleRange(Set<String> properties, String from, String to, Pageable pageable) {
+        return findSummaryPageByTitleRange(properties, from, to, null, null, pageable);
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPage(Set<String> properties, String afterSortKey, String afterId, Pageable pageable) {
+        return findSummaryPage(properties, new ArrayList<>(), new ArrayList<>(), afterSortKey, afterId, pageable);
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPageByAuthorId(Set<String> properties, String authorId, String afterSortKey, String afterId, Pageable pageable) {
+        return findSummaryPage(properties, new ArrayList<>(Collections.singletonList("book.author.id = ?1")),
+                new ArrayList<>(Collections.singletonList(authorId)), afterSortKey, afterId, pageable);
+    }
+
+    @Override
+    public List<BookSummary> findSummaryPageByTitleRange(Set<String> properties, String from, String to, String afterSortKey, String afterId, Pageable pageable) {
+        return findSummaryPage(properties, new ArrayList<>(Arrays.asList("book.title >= ?1", "book.title < ?2")),
+                new ArrayList<>(Arrays.asList(from, to)), afterSortKey, afterId, pageable);
+    }
+
+    private List<BookSummary> findSummaryPage(Set<String> properties, List<String> conditions, List<String> parameters,
+                                              String afterSortKey, String afterId, Pageable pageable) {
+        if (properties.isEmpty() || !PROPERTY_PATHS.keySet().containsAll(properties))
+            throw new IllegalArgumentException("Book summaries select some of " + PROPERTY_PATHS.keySet() + ", not " + properties);
+        if (afterId != null)
+            addKeysetCondition(conditions, parameters, pageable.getSort(), afterSortKey, afterId);
+        String select = PROPERTY_PATHS.keySet()
+                .stream()
+                .filter(properties::contains)
+                .map(property -> PROPERTY_PATHS.get(property) + " as " + property)
+                .collect(Collectors.joining(", "));
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        String jpql = QueryUtils.applySorting("select " + select + " from Book book" + where, pageable.getSort(), "book");
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class);
+        for (int i = 0; i < parameters.size(); i++)
+            query.setParameter(i + 1, parameters.get(i));
+        if (pageable.isPaged()) {
+            query.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList()
+                .stream()
+                .map(tuple -> new SelectedBookSummary(get(tuple, properties, "id"), get(tuple, properties, "title"),
+                        get(tuple, properties, "authorName"), get(tuple, properties, "authorId")))
+                .collect(Collectors.toList());
+    }
+
+    // Books sort by their first sort property, nulls first as H2 orders them, and then by id. The lower bound on the
+    // sort key alone is what lets the index start reading at the key, the id only decides the ties
+    private void addKeysetCondition(List<String> conditions, List<String> parameters, Sort sort, String afterSortKey, String afterId) {
+        String sortProperty = sort.iterator().next().getProperty();
+        String sortPath = PROPERTY_PATHS.get(sortProperty);
+        if (sortPath == null)
+            throw new IllegalArgumentException("Book summaries sort by one of " + PROPERTY_PATHS.keySet() + ", not " + sortProperty);
+        int idPosition = parameters.size() + 1;
+        parameters.add(afterId);
+        if ("id".equals(sortProperty))
+            conditions.add("book.id > ?" + idPosition);
+        else if (afterSortKey == null)
+            conditions.add("(" + sortPath + " is not null or book.id > ?" + idPosition + ")");
+        else {
+            int sortKeyPosition = parameters.size() + 1;
+            parameters.add(afterSortKey);
+            conditions.add(sortPath + " >= ?" + sortKeyPosition);
+            conditions.add("(" + sortPath + " > ?" + sortKeyPosition + " or book.id > ?" + idPosition + ")");
+        }
+    }
+
+    private String get(Tuple tuple, Set<String> properties, String property) {
+        return properties.contains(property) ? tuple.get(property, String.class) : null;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class SelectedBookSummary implements BookSummary {
+        private final String id;
+        private final String title;
+        private final String authorName;
+        private final String authorId;
+    }
+}
@@ -0,0 +1,72 @@
+package com.axell.reactive.repository;
+
+import com.axell.reactive.diagnostics.RequestTrace;
+import io.reactivex.functions.Cancellable;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs repository calls in one transaction whose statements carry {@code db.query-timeout-seconds} as JDBC query
+ * timeout, and registers a {@link Cancellable} that cancels the running statement when the subscriber is disposed.
+ * Work whose subscriber is already gone is not started at all and ends with a {@link CancellationException}.
+ */
+@Component
+public class CancellableQueryExecutor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${db.query-timeout-seconds:5}")
+    private int queryTimeoutSeconds;
+
+    public <T> T execute(Consumer<Cancellable> cancellableRegistrar, Supplier<T> query) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Session> activeSession = new AtomicReference<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setTimeout(queryTimeoutSeconds);
+        try {
+            return RequestTrace.phase("db-transaction", () -> transactionTemplate.execute(transactionStatus -> {
+                activeSession.set(entityManager.unwrap(Session.class));
+                try {
+                    cancellableRegistrar.accept(() -> {
+                        cancelled.set(true);
+                        cancelQuery(activeSession.get());
+                    });
+                    if (cancelled.get())
+                        throw new CancellationException();
+                    return query.get();
+                } finally {
+                    activeSession.set(null);
+                }
+            }));
+        } catch (RuntimeException e) {
+            if (cancelled.get() && !(e instanceof CancellationException))
+                throw new CancellationException("Query cancelled because its subscriber was disposed");
+            throw e;
+        }
+    }
+
+    private void cancelQuery(Session session) {
+        if (session == null)
+            return;
+        try {
+            session.cancelQuery();
+        } catch (HibernateException | IllegalStateException e) {
+            // The statement finished or the session closed while we were cancelling, nothing left to stop
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.axell.reactive.repository;
+
+import com.axell.reactive.entity.CatalogCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogCounterRepository extends JpaRepository<CatalogCounter, String>, InsertRepository<CatalogCounter> {
+    // Adds in the database instead of read-modify-write, so concurrent writers only queue on the row lock
+    @Modifying
+    @Query("update CatalogCounter catalogCounter set catalogCounter.counterValue = catalogCounter.counterValue + :delta "
+            + "where catalogCounter.counterKey = :counterKey")
+    int increment(@Param("counterKey") String counterKey, @Param("delta") long delta);
+
+    @Modifying
+    @Query("delete from CatalogCounter catalogCounter where catalogCounter.counterKey = :counterKey")
+    int deleteCounter(@Param("counterKey") String counterKey);
+}
@@ -0,0 +1,34 @@
+package com.axell.reactive.repository;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells integrity violations apart by the SQL state of the database error behind them.
+ */
+public final class ConstraintViolations {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private ConstraintViolations() {
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException exception) {
+        return hasSqlState(exception, UNIQUE_VIOLATION);
+    }
+
+    // A referenced row was deleted or its key changed while rows still refer to it
+    public static boolean isForeignKeyViolation(DataIntegrityViolationException exception) {
+        return hasSqlState(exception, FOREIGN_KEY_VIOLATION);
+    }
+
+    private static boolean hasSqlState(Throwable exception, String sqlState) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && sqlState.equals(((SQLException) cause).getSQLState()))
+                return true;
+        }
+        return false;
+    }
+}
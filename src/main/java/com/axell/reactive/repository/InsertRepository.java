@@ -0,0 +1,15 @@
+package com.axell.reactive.repository;
+
+/**
+ * Repository fragment for entities with assigned ids. {@code save} cannot tell such entities from detached ones and
+ * merges them, which costs a select before every insert, {@code insert} persists them directly.
+ */
+public interface InsertRepository<T> {
+    void insert(T entity);
+
+    /**
+     * Persists the entities and flushes them every JDBC batch, so the inserts go out as batched statements and the
+     * persistence context does not grow with the number of entities. Flushed entities are detached.
+     */
+    void insertAll(Iterable<T> entities);
+}
@@ -0,0 +1,37 @@
+package com.axell.reactive.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class InsertRepositoryImpl<T> implements InsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public void insert(T entity) {
+        entityManager.persist(entity);
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(Iterable<T> entities) {
+        int pending = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
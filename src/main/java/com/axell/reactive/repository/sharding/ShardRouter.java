@@ -0,0 +1,97 @@
+package com.axell.reactive.repository.sharding;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Maps book ids to one of the {@code sharding.shards} datasources and pins the current thread to a shard while
+ * repository work runs. Transactions pick their connection when they begin, so the shard has to be chosen around the
+ * whole transaction, not inside it. Work outside {@link #onShard(int, Supplier)} runs on shard 0.
+ */
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    @Value("${sharding.shards:1}")
+    private int shardCount = 1;
+
+    public ShardRouter() {
+    }
+
+    public ShardRouter(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // String.hashCode is specified, so a book keeps its shard across restarts and JVMs
+    public int shardOf(String bookId) {
+        return Math.floorMod(bookId.hashCode(), shardCount);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previousShard = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previousShard == null)
+                CURRENT_SHARD.remove();
+            else
+                CURRENT_SHARD.set(previousShard);
+        }
+    }
+
+    public int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public <T> List<T> onEveryShard(Supplier<T> work) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++)
+            results.add(onShard(shard, work));
+        return results;
+    }
+
+    public List<Integer> getShards() {
+        return IntStream.range(0, shardCount).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Subscribes to the query of every given shard concurrently on the scheduler and collects the results in shard
+     * order. A query for a single shard stays on the subscribing thread. The queries have to pin their shard
+     * themselves when they run, with {@link #onShard(int, Supplier)}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Single<List<T>> scatterGather(Collection<Integer> shards, Scheduler scheduler, IntFunction<Single<T>> shardQuery) {
+        if (shards.isEmpty())
+            return Single.just(Collections.emptyList());
+        if (shards.size() == 1)
+            return shardQuery.apply(shards.iterator().next()).map(Collections::singletonList);
+        List<Single<T>> shardQueries = shards
+                .stream()
+                .map(shard -> shardQuery.apply(shard).subscribeOn(scheduler))
+                .collect(Collectors.toList());
+        return Single.zip(shardQueries, shardResults -> (List<T>) Arrays.asList(shardResults));
+    }
+
+    static Integer getCurrentShard() {
+        return CURRENT_SHARD.get();
+    }
+}
@@ -0,0 +1,40 @@
+package com.axell.reactive.repository.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard the current thread is pinned to by {@link ShardRouter}, or of the default
+ * shard when it is not pinned. The shard at index {@code i} serves shard {@code i}, closing this datasource closes the
+ * shards.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = shards;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++)
+            targetDataSources.put(shard, shards.get(shard));
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.getCurrentShard();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards)
+            if (shard instanceof AutoCloseable)
+                ((AutoCloseable) shard).close();
+    }
+}
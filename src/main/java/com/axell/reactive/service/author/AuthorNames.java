@@ -0,0 +1,20 @@
+package com.axell.reactive.service.author;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+final class AuthorNames {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private AuthorNames() {
+    }
+
+    static String normalize(String name) {
+        if (name == null)
+            return null;
+        String compatibilityForm = Normalizer.normalize(name, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(compatibilityForm.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,8 +1,20 @@
 package com.axell.reactive.service.author;
 
 import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.response.AddAuthorsResponse;
+import com.axell.reactive.servicedto.response.AuthorDetailResponse;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 public interface AuthorService {
     Single<String> addAuthor(AddAuthorRequest addAuthorRequest);
+
+    Single<AddAuthorsResponse> addAuthors(AddAuthorsRequest addAuthorsRequest);
+
+    Single<AuthorDetailResponse> getAuthorDetail(String id, int bookLimit);
+
+    Single<Long> deleteAuthorBooks(String authorId);
+
+    Completable deleteAuthor(String authorId, boolean cascade);
 }
@@ -1,37 +1,397 @@
 package com.axell.reactive.service.author;
 
 import com.axell.reactive.entity.Author;
+import com.axell.reactive.entity.Book;
+import com.axell.reactive.exception.AuthorHasBooksException;
+import com.axell.reactive.exception.DuplicateAuthorException;
+import com.axell.reactive.exception.StacklessEntityNotFoundException;
 import com.axell.reactive.repository.AuthorRepository;
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.CancellableQueryExecutor;
+import com.axell.reactive.repository.ConstraintViolations;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.catalogcounter.CatalogCounterService;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.service.invalidation.VersionedCache;
+import com.axell.reactive.service.journal.ChangeJournalService;
+import com.axell.reactive.service.journal.JournalChange;
+import com.axell.reactive.service.journal.JournalEntryType;
 import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.response.AddAuthorsResponse;
+import com.axell.reactive.servicedto.response.AuthorDetailResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import com.axell.reactive.servicedto.response.BookResponse;
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
-import org.springframework.beans.BeanUtils;
+import io.reactivex.functions.Cancellable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * Authors are replicated to every shard, so books can be added on any shard next to their author. Adding authors runs
+ * on every shard in its own transaction, the shards without the author insert it under an id derived from the
+ * normalized name, which makes adding the same names again repair a replication that failed halfway.
+ * <p>
+ * The authors shard 0 added are appended to the change journal, the other shards only replicate them.
+ * <p>
+ * An author's books are deleted shard by shard in chunks of {@code authors.delete.chunk-size}. Every chunk reads the
+ * next ids from the author index and deletes them with one statement in its own transaction, so deleting a prolific
+ * author neither loads every book nor holds one long transaction. Once a chunk commits its books are published,
+ * invalidated and journaled like single deletes.
+ * <p>
+ * The author row is deleted from shard 0 first, then from the other shards, each in its own transaction. A book added
+ * to the author meanwhile fails the delete on its shard with {@code fk_books_author}. The shards already done get the
+ * author back and the delete answers {@link AuthorHasBooksException}, so the author is either gone from every shard
+ * or still on every shard.
+ */
 @Service
 public class AuthorServiceImpl implements AuthorService {
 
+    private static final Set<String> DELETED_BOOK_PROPERTIES = new HashSet<>(Arrays.asList("id", "title"));
+
     @Autowired
     private AuthorRepository authorRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private CatalogCounterService catalogCounterService;
+    @Autowired
+    private CancellableQueryExecutor cancellableQueryExecutor;
+    @Autowired
+    private InvalidationService invalidationService;
+    @Autowired
+    private VersionedCache<Author> authorCache;
+    @Autowired
+    private ChangeJournalService changeJournalService;
+    @Autowired
+    private BookEventService bookEventService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private Scheduler blockingScheduler;
+    @Value("${authors.import.lookup-chunk-size:1000}")
+    private int lookupChunkSize;
+    @Value("${authors.delete.chunk-size:1000}")
+    private int deleteChunkSize;
 
     @Override
     public Single<String> addAuthor(AddAuthorRequest addAuthorRequest) {
         return addAuthorToRepository(addAuthorRequest);
     }
 
+    // An author whose normalized name already exists is not added again, its id is returned instead
     private Single<String> addAuthorToRepository(AddAuthorRequest addAuthorRequest) {
+        String normalizedName = AuthorNames.normalize(addAuthorRequest.getName());
+        String authorId = toAuthorId(normalizedName);
         return Single.create(singleSubscriber -> {
-            String addedAuthorId = authorRepository.save(toAuthor(addAuthorRequest)).getId();
+            String addedAuthorId = executeAddOnEveryShard(singleSubscriber::setCancellable, () -> {
+                Author author = new Author(authorId, addAuthorRequest.getName(), normalizedName);
+                Optional<Author> existingAuthor = author.getNormalizedName() == null ? Optional.empty()
+                        : authorRepository.findByNormalizedName(author.getNormalizedName());
+                if (existingAuthor.isPresent())
+                    return existingAuthor.get().getId();
+                authorRepository.insert(author);
+                catalogCounterService.createAuthorBookCounter(author.getId());
+                if (shardRouter.currentShard() == 0)
+                    changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_ADDED, author.getId(),
+                            author.getName(), null));
+                return author.getId();
+            });
+            invalidationService.invalidate(InvalidationType.AUTHOR, addedAuthorId);
             singleSubscriber.onSuccess(addedAuthorId);
         });
     }
 
-    private Author toAuthor(AddAuthorRequest addAuthorRequest) {
-        Author author = new Author();
-        BeanUtils.copyProperties(addAuthorRequest, author);
-        author.setId(UUID.randomUUID().toString());
-        return author;
+    // Authors without a name are never deduplicated and keep a random id
+    private String toAuthorId(String normalizedName) {
+        if (normalizedName == null)
+            return UUID.randomUUID().toString();
+        return UUID.nameUUIDFromBytes(normalizedName.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    // Author ids and counter keys derive from the normalized name, so any unique violation means a concurrent add
+    private <T> T executeAddOnEveryShard(Consumer<Cancellable> cancellableRegistrar, Supplier<T> work) {
+        try {
+            return executeOnEveryShard(cancellableRegistrar, work);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e))
+                throw new DuplicateAuthorException(e);
+            throw e;
+        }
+    }
+
+    // Shard 0 goes last and answers, an author it knows has been written to the other shards before
+    private <T> T executeOnEveryShard(Consumer<Cancellable> cancellableRegistrar, Supplier<T> work) {
+        for (int shard = shardRouter.getShardCount() - 1; shard > 0; shard--)
+            shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(cancellableRegistrar, work));
+        return shardRouter.onShard(0, () -> cancellableQueryExecutor.execute(cancellableRegistrar, work));
+    }
+
+    /**
+     * Deduplicates the names by their normalized form, resolves the existing authors with chunked {@code IN}
+     * lookups on the unique normalized name index and batch-inserts the rest, in one transaction per shard. The first
+     * spelling of a new name becomes the author's name. A concurrent import adding the same name fails on the
+     * unique index and can simply be retried.
+     */
+    @Override
+    public Single<AddAuthorsResponse> addAuthors(AddAuthorsRequest addAuthorsRequest) {
+        return Single.create(singleSubscriber -> {
+            AddAuthorsResponse addAuthorsResponse = executeAddOnEveryShard(singleSubscriber::setCancellable,
+                    () -> addAuthorsToRepository(addAuthorsRequest.getNames()));
+            singleSubscriber.onSuccess(addAuthorsResponse);
+        });
+    }
+
+    private AddAuthorsResponse addAuthorsToRepository(List<String> names) {
+        Map<String, String> namesByNormalizedName = new LinkedHashMap<>();
+        for (String name : names)
+            namesByNormalizedName.putIfAbsent(AuthorNames.normalize(name), name);
+
+        Map<String, String> authorIdsByNormalizedName = findAuthorIdsByNormalizedName(namesByNormalizedName.keySet());
+        List<Author> newAuthors = new ArrayList<>();
+        namesByNormalizedName.forEach((normalizedName, name) -> {
+            if (!authorIdsByNormalizedName.containsKey(normalizedName))
+                newAuthors.add(new Author(toAuthorId(normalizedName), name, normalizedName));
+        });
+        List<String> newAuthorIds = newAuthors
+                .stream()
+                .map(Author::getId)
+                .collect(Collectors.toList());
+        authorRepository.insertAll(newAuthors);
+        catalogCounterService.createAuthorBookCounters(newAuthorIds);
+        if (shardRouter.currentShard() == 0)
+            changeJournalService.appendOnCommit(newAuthors
+                    .stream()
+                    .map(author -> new JournalChange(JournalEntryType.AUTHOR_ADDED, author.getId(), author.getName(), null))
+                    .collect(Collectors.toList()));
+        newAuthors.forEach(author -> authorIdsByNormalizedName.put(author.getNormalizedName(), author.getId()));
+
+        Map<String, String> authorIdsByName = new LinkedHashMap<>();
+        for (String name : names)
+            authorIdsByName.put(name, authorIdsByNormalizedName.get(AuthorNames.normalize(name)));
+        return new AddAuthorsResponse(authorIdsByName, newAuthors.size());
+    }
+
+    private Map<String, String> findAuthorIdsByNormalizedName(Collection<String> normalizedNames) {
+        Map<String, String> authorIdsByNormalizedName = new HashMap<>();
+        List<String> pendingNormalizedNames = new ArrayList<>(normalizedNames);
+        for (int from = 0; from < pendingNormalizedNames.size(); from += lookupChunkSize) {
+            List<String> chunk = pendingNormalizedNames.subList(from, Math.min(from + lookupChunkSize, pendingNormalizedNames.size()));
+            for (Author author : authorRepository.findAllByNormalizedNameIn(chunk))
+                authorIdsByNormalizedName.put(author.getNormalizedName(), author.getId());
+        }
+        return authorIdsByNormalizedName;
+    }
+
+    /**
+     * The author, the first page of their books and the book count are read concurrently on the blocking scheduler,
+     * so the response takes as long as the slowest of the three. The count comes from the catalog counters and
+     * normally does not query the database at all.
+     * A missing author fails the whole detail and cancels the queries still running.
+     */
+    @Override
+    public Single<AuthorDetailResponse> getAuthorDetail(String id, int bookLimit) {
+        return Single.zip(
+                findAuthorInRepository(id).subscribeOn(blockingScheduler),
+                findFirstBooksPageInRepository(id, bookLimit).subscribeOn(blockingScheduler),
+                Single.fromCallable(() -> catalogCounterService.getAuthorBookCount(id)).subscribeOn(blockingScheduler),
+                this::toAuthorDetailResponse);
+    }
+
+    private Single<Author> findAuthorInRepository(String id) {
+        return Single.defer(() -> authorCache.get(id)
+                .map(Single::just)
+                .orElseGet(() -> Single.create(singleSubscriber -> {
+                    long loadVersion = authorCache.startLoad();
+                    Optional<Author> optionalAuthor = cancellableQueryExecutor.execute(singleSubscriber::setCancellable,
+                            () -> authorRepository.findById(id));
+                    if (!optionalAuthor.isPresent())
+                        singleSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
+                    else {
+                        authorCache.put(id, optionalAuthor.get(), loadVersion);
+                        singleSubscriber.onSuccess(optionalAuthor.get());
+                    }
+                })));
+    }
+
+    // Every shard returns its first page of the author's books, the merged first page is among them
+    private Single<List<BookResponse>> findFirstBooksPageInRepository(String authorId, int bookLimit) {
+        PageRequest pageRequest = PageRequest.of(0, bookLimit, Sort.by("id"));
+        return shardRouter.scatterGather(shardRouter.getShards(), blockingScheduler,
+                shard -> findBooksPageOnShard(shard, authorId, pageRequest))
+                .map(shardPages -> toBookResponseList(shardPages
+                        .stream()
+                        .flatMap(List::stream)
+                        .sorted(Comparator.comparing(Book::getId))
+                        .limit(bookLimit)
+                        .collect(Collectors.toList())));
+    }
+
+    private Single<List<Book>> findBooksPageOnShard(int shard, String authorId, PageRequest pageRequest) {
+        return Single.create(singleSubscriber -> {
+            List<Book> books = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(singleSubscriber::setCancellable,
+                    () -> bookRepository.findAllByAuthorId(authorId, pageRequest)));
+            singleSubscriber.onSuccess(books);
+        });
+    }
+
+    private List<BookResponse> toBookResponseList(List<Book> bookList) {
+        return bookList
+                .stream()
+                .map(book -> new BookResponse(book.getId(), book.getTitle(), book.getAuthor().getName()))
+                .collect(Collectors.toList());
+    }
+
+    private AuthorDetailResponse toAuthorDetailResponse(Author author, List<BookResponse> books, long bookCount) {
+        return new AuthorDetailResponse(author.getId(), author.getName(), bookCount, books);
+    }
+
+    @Override
+    public Single<Long> deleteAuthorBooks(String authorId) {
+        return Single.create(singleSubscriber -> {
+            if (!existsInRepository(authorId, singleSubscriber::setCancellable)) {
+                singleSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
+                return;
+            }
+            singleSubscriber.onSuccess(deleteBooksInRepository(authorId, singleSubscriber::setCancellable));
+        });
+    }
+
+    // Without cascade only an author without books on any shard is deleted
+    @Override
+    public Completable deleteAuthor(String authorId, boolean cascade) {
+        return Completable.create(completableSubscriber -> {
+            Optional<Author> author = shardRouter.onShard(0, () -> cancellableQueryExecutor.execute(
+                    completableSubscriber::setCancellable, () -> authorRepository.findById(authorId)));
+            if (!author.isPresent()) {
+                completableSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
+                return;
+            }
+            if (cascade)
+                deleteBooksInRepository(authorId, completableSubscriber::setCancellable);
+            else if (hasBooksInRepository(authorId, completableSubscriber::setCancellable)) {
+                completableSubscriber.onError(new AuthorHasBooksException(authorId));
+                return;
+            }
+            deleteAuthorInRepository(author.get(), completableSubscriber::setCancellable);
+            invalidationService.invalidate(InvalidationType.AUTHOR, authorId);
+            completableSubscriber.onComplete();
+        });
+    }
+
+    private void deleteAuthorInRepository(Author author, Consumer<Cancellable> cancellableRegistrar) {
+        List<Integer> deletedShards = new ArrayList<>();
+        try {
+            for (int shard : shardRouter.getShards()) {
+                shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(cancellableRegistrar, () -> {
+                    authorRepository.deleteAuthorById(author.getId());
+                    catalogCounterService.deleteAuthorBookCounter(author.getId());
+                    if (shard == 0)
+                        changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_DELETED, author.getId(), null, null));
+                    return null;
+                }));
+                deletedShards.add(shard);
+            }
+        } catch (RuntimeException e) {
+            deletedShards.forEach(shard -> restoreAuthorOnShard(shard, author));
+            if (e instanceof DataIntegrityViolationException && ConstraintViolations.isForeignKeyViolation((DataIntegrityViolationException) e))
+                throw new AuthorHasBooksException(author.getId());
+            throw e;
+        }
+    }
+
+    // Not cancellable, a disposed delete must still leave the author on every shard or on none
+    private void restoreAuthorOnShard(int shard, Author author) {
+        shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(cancellable -> {
+        }, () -> {
+            authorRepository.insert(new Author(author.getId(), author.getName(), author.getNormalizedName()));
+            catalogCounterService.createAuthorBookCounter(author.getId());
+            if (shard == 0)
+                changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_ADDED, author.getId(), author.getName(), null));
+            return null;
+        }));
+    }
+
+    private boolean existsInRepository(String authorId, Consumer<Cancellable> cancellableRegistrar) {
+        return shardRouter.onShard(0, () -> cancellableQueryExecutor.execute(cancellableRegistrar,
+                () -> authorRepository.existsById(authorId)));
+    }
+
+    private boolean hasBooksInRepository(String authorId, Consumer<Cancellable> cancellableRegistrar) {
+        for (int shard : shardRouter.getShards()) {
+            List<BookSummary> books = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(cancellableRegistrar,
+                    () -> bookRepository.findSummaryPageByAuthorId(Collections.singleton("id"), authorId, PageRequest.of(0, 1))));
+            if (!books.isEmpty())
+                return true;
+        }
+        return false;
+    }
+
+    private long deleteBooksInRepository(String authorId, Consumer<Cancellable> cancellableRegistrar) {
+        long deletedBooks = 0;
+        for (int shard : shardRouter.getShards()) {
+            List<BookSummary> chunk;
+            do {
+                chunk = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(cancellableRegistrar,
+                        () -> deleteBooksChunk(authorId)));
+                publishDeletedBooks(chunk);
+                deletedBooks += chunk.size();
+            } while (chunk.size() == deleteChunkSize);
+        }
+        return deletedBooks;
+    }
+
+    // The counters are decremented by the rows the delete removed, a book deleted concurrently is only counted once
+    private List<BookSummary> deleteBooksChunk(String authorId) {
+        List<BookSummary> books = bookRepository.findSummaryPageByAuthorId(DELETED_BOOK_PROPERTIES, authorId,
+                PageRequest.of(0, deleteChunkSize, Sort.by("id")));
+        if (!books.isEmpty()) {
+            int deletedBooks = bookRepository.deleteAllByIdIn(books
+                    .stream()
+                    .map(BookSummary::getId)
+                    .collect(Collectors.toList()));
+            catalogCounterService.incrementBookCounters(authorId, -deletedBooks);
+            changeJournalService.appendOnCommit(books
+                    .stream()
+                    .map(book -> new JournalChange(JournalEntryType.BOOK_DELETED, book.getId(), book.getTitle(), authorId))
+                    .collect(Collectors.toList()));
+        }
+        return books;
+    }
+
+    private void publishDeletedBooks(List<BookSummary> books) {
+        if (books.isEmpty())
+            return;
+        for (BookSummary book : books) {
+            bookEventService.publishBookEvent(BookEventType.DELETED, book.getId(), null);
+            invalidationService.invalidate(InvalidationType.BOOK, book.getId());
+        }
     }
 }
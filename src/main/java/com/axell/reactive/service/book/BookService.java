@@ -1,7 +1,10 @@
 package com.axell.reactive.service.book;
 
 import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookPageRequest;
 import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import com.axell.reactive.servicedto.response.BookLookupResponse;
+import com.axell.reactive.servicedto.response.BookPageResponse;
 import com.axell.reactive.servicedto.response.BookResponse;
 import io.reactivex.Completable;
 import io.reactivex.Single;
@@ -13,9 +16,13 @@ public interface BookService {
 
     Completable updateBook(UpdateBookRequest updateBookRequest);
 
-    Single<List<BookResponse>> getAllBooks(int limit, int page);
+    Single<BookPageResponse> getAllBooks(int limit, int page);
+
+    Single<BookPageResponse> getAllBooks(BookPageRequest bookPageRequest);
 
     Single<BookResponse> getBookDetail(String id);
 
+    Single<List<BookLookupResponse>> getBooks(List<String> ids);
+
     Completable deleteBook(String id);
 }
@@ -1,25 +1,70 @@
 package com.axell.reactive.service.book;
 
+import com.axell.reactive.diagnostics.RequestTrace;
 import com.axell.reactive.entity.Author;
 import com.axell.reactive.entity.Book;
+import com.axell.reactive.exception.InvalidRequestException;
+import com.axell.reactive.exception.StacklessEntityNotFoundException;
 import com.axell.reactive.repository.AuthorRepository;
 import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.CancellableQueryExecutor;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.booksnapshot.BookSnapshotService;
+import com.axell.reactive.service.catalogcounter.CatalogCounterService;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.service.invalidation.VersionedCache;
+import com.axell.reactive.service.journal.ChangeJournalService;
+import com.axell.reactive.service.journal.JournalChange;
+import com.axell.reactive.service.journal.JournalEntryType;
 import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookCursor;
+import com.axell.reactive.servicedto.request.BookField;
+import com.axell.reactive.servicedto.request.BookPageRequest;
+import com.axell.reactive.servicedto.request.BookSort;
 import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import com.axell.reactive.servicedto.response.BookEventType;
+import com.axell.reactive.servicedto.response.BookLookupResponse;
+import com.axell.reactive.servicedto.response.BookPageResponse;
 import com.axell.reactive.servicedto.response.BookResponse;
 import io.reactivex.Completable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
+import io.reactivex.functions.Cancellable;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Books live on the shard {@link ShardRouter} maps their id to, so adding, updating, reading and deleting one book
+ * only touches that shard. Listing and multi-get query the shards concurrently and merge the results. Authors are
+ * replicated to every shard, a book's author is always found next to it.
+ * <p>
+ * Book details are cached, writes invalidate them here and on the other instances once they committed. Committed
+ * writes are also appended to the change journal.
+ */
 @Service
 public class BookServiceImpl implements BookService {
 
@@ -27,6 +72,24 @@ public class BookServiceImpl implements BookService {
     private BookRepository bookRepository;
     @Autowired
     private AuthorRepository authorRepository;
+    @Autowired
+    private BookEventService bookEventService;
+    @Autowired
+    private CatalogCounterService catalogCounterService;
+    @Autowired
+    private BookSnapshotService bookSnapshotService;
+    @Autowired
+    private CancellableQueryExecutor cancellableQueryExecutor;
+    @Autowired
+    private InvalidationService invalidationService;
+    @Autowired
+    private VersionedCache<BookResponse> bookDetailCache;
+    @Autowired
+    private ChangeJournalService changeJournalService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private Scheduler blockingScheduler;
 
     @Override
     public Single<String> addBook(AddBookRequest addBookRequest) {
@@ -35,12 +98,25 @@ public class BookServiceImpl implements BookService {
 
     private Single<String> saveBookToRepository(AddBookRequest addBookRequest) {
         return Single.create(singleSubscriber -> {
-            Optional<Author> optionalAuthor = authorRepository.findById(addBookRequest.getAuthorId());
-            if (!optionalAuthor.isPresent())
-                singleSubscriber.onError(new EntityNotFoundException());
+            Book book = toBook(addBookRequest);
+            Optional<String> addedBookId = executeOnBookShard(book.getId(), singleSubscriber::setCancellable, () -> {
+                Optional<Author> optionalAuthor = authorRepository.findById(addBookRequest.getAuthorId());
+                return optionalAuthor.map(author -> {
+                    // The loaded author spares Hibernate the select that checks whether the reference exists
+                    book.setAuthor(author);
+                    bookRepository.insert(book);
+                    catalogCounterService.incrementBookCounters(author.getId(), 1);
+                    changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.BOOK_ADDED, book.getId(),
+                            addBookRequest.getTitle(), author.getId()));
+                    return book.getId();
+                });
+            });
+            if (!addedBookId.isPresent())
+                singleSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
             else {
-                String addedBookId = bookRepository.save(toBook(addBookRequest)).getId();
-                singleSubscriber.onSuccess(addedBookId);
+                bookEventService.publishBookEvent(BookEventType.CREATED, addedBookId.get(), addBookRequest.getTitle());
+                invalidationService.invalidate(InvalidationType.BOOK, addedBookId.get());
+                singleSubscriber.onSuccess(addedBookId.get());
             }
         });
     }
@@ -49,9 +125,6 @@ public class BookServiceImpl implements BookService {
         Book book = new Book();
         BeanUtils.copyProperties(addBookRequest, book);
         book.setId(UUID.randomUUID().toString());
-        book.setAuthor(Author.builder()
-                .id(addBookRequest.getAuthorId())
-                .build());
         return book;
     }
 
@@ -62,62 +135,295 @@ public class BookServiceImpl implements BookService {
 
     private Completable updateBookToRepository(UpdateBookRequest updateBookRequest) {
         return Completable.create(completableSubscriber -> {
-            Optional<Book> optionalBook = bookRepository.findById(updateBookRequest.getId());
-            if (!optionalBook.isPresent())
-                completableSubscriber.onError(new EntityNotFoundException());
+            Optional<Book> updatedBook = executeOnBookShard(updateBookRequest.getId(), completableSubscriber::setCancellable, () -> {
+                Optional<Book> optionalBook = bookRepository.findById(updateBookRequest.getId());
+                optionalBook.ifPresent(book -> {
+                    book.setTitle(updateBookRequest.getTitle());
+                    bookRepository.save(book);
+                    changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.BOOK_UPDATED, book.getId(),
+                            book.getTitle(), book.getAuthor().getId()));
+                });
+                return optionalBook;
+            });
+            if (!updatedBook.isPresent())
+                completableSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
             else {
-                Book book = optionalBook.get();
-                book.setTitle(updateBookRequest.getTitle());
-                bookRepository.save(book);
+                Book book = updatedBook.get();
+                bookEventService.publishBookEvent(BookEventType.UPDATED, book.getId(), book.getTitle());
+                invalidationService.invalidate(InvalidationType.BOOK, book.getId());
                 completableSubscriber.onComplete();
             }
         });
     }
 
     @Override
-    public Single<List<BookResponse>> getAllBooks(int limit, int page) {
-        return findAllBooksInRepository(limit, page)
-                .map(this::toBookResponseList);
+    public Single<BookPageResponse> getAllBooks(int limit, int page) {
+        return getAllBooks(new BookPageRequest(limit, page, BookSort.ID, null, null, EnumSet.allOf(BookField.class), false));
     }
 
-    private Single<List<Book>> findAllBooksInRepository(int limit, int page) {
+    /**
+     * Serves the combinations of filter and sort an index answers in order, or that only sort one author's books:
+     * every sort unfiltered or filtered by author, and the title prefix sorted by title. Other combinations would sort
+     * every matching book for each page and are rejected.
+     * <p>
+     * Only the columns of the requested fields are selected, plus the id and the sort key the shard pages are merged
+     * by. Book snapshot pages carry every field.
+     * <p>
+     * A normalized page reads the author id along with the name and maps each author once, the books only keep a
+     * shared instance of the author id. The book snapshot has no author ids, so normalized pages always query.
+     * <p>
+     * A page after a cursor seeks the sort index to the cursor's book, so following the cursors through the list costs
+     * the same for every page. The book snapshot only serves offsets.
+     */
+    @Override
+    public Single<BookPageResponse> getAllBooks(BookPageRequest bookPageRequest) {
+        return Single.defer(() -> {
+            int limit = bookPageRequest.getLimit();
+            int page = bookPageRequest.getPage();
+            BookSort sort = bookPageRequest.getSort();
+            String authorId = bookPageRequest.getAuthorId();
+            String titlePrefix = bookPageRequest.getTitlePrefix();
+            boolean normalized = bookPageRequest.isNormalized();
+            BookCursor after = bookPageRequest.getAfter();
+            String afterSortKey = after == null ? null : after.getSortKey();
+            String afterId = after == null ? null : after.getId();
+            Set<String> properties = toProperties(bookPageRequest.getFields(), sort, normalized);
+            if (authorId != null && titlePrefix == null)
+                return findBookPage(findAllBooksInRepository(limit, page, sort, pageable -> bookRepository.findSummaryPageByAuthorId(properties, authorId, afterSortKey, afterId, pageable)),
+                        Single.fromCallable(() -> catalogCounterService.getAuthorBookCount(authorId)), limit, sort, normalized);
+            if (titlePrefix != null && authorId == null && sort == BookSort.TITLE) {
+                String titlePrefixEnd = toTitlePrefixEnd(titlePrefix);
+                return findBookPage(findAllBooksInRepository(limit, page, sort, pageable -> bookRepository.findSummaryPageByTitleRange(properties, titlePrefix, titlePrefixEnd, afterSortKey, afterId, pageable)),
+                        countBooksInTitleRange(titlePrefix, titlePrefixEnd), limit, sort, normalized);
+            }
+            if (authorId != null || titlePrefix != null)
+                return Single.error(new InvalidRequestException("Books can be filtered by author with any sort or by title prefix sorted by title"));
+            Single<BookPageResponse> repositoryPage = findBookPage(findAllBooksInRepository(limit, page, sort, pageable -> bookRepository.findSummaryPage(properties, afterSortKey, afterId, pageable)),
+                    Single.fromCallable(catalogCounterService::getTotalBookCount), limit, sort, normalized);
+            if (sort != BookSort.ID || normalized || after != null)
+                return repositoryPage;
+            return bookSnapshotService.findBookPage(limit, page)
+                    .map(snapshotPage -> {
+                        List<BookResponse> books = snapshotPage.getBooks();
+                        if (books.size() == limit)
+                            snapshotPage.setNextCursor(new BookCursor(BookSort.ID, null, books.get(books.size() - 1).getId()));
+                        return Single.just(snapshotPage);
+                    })
+                    .orElse(repositoryPage);
+        });
+    }
+
+    private Single<BookPageResponse> findBookPage(Single<List<BookSummary>> bookSummaries, Single<Long> totalBooks, int limit, BookSort sort, boolean normalized) {
+        return bookSummaries.flatMap(bookSummaryList -> totalBooks.map(total -> RequestTrace.phase("service-mapping", () -> {
+            BookPageResponse bookPageResponse = normalized
+                    ? toNormalizedBookPageResponse(bookSummaryList, total)
+                    : new BookPageResponse(toBookResponseList(bookSummaryList), total);
+            if (bookSummaryList.size() == limit)
+                bookPageResponse.setNextCursor(toBookCursor(bookSummaryList.get(bookSummaryList.size() - 1), sort));
+            return bookPageResponse;
+        })));
+    }
+
+    // The sort key is among the selected properties, toProperties always adds it
+    private static BookCursor toBookCursor(BookSummary bookSummary, BookSort sort) {
+        switch (sort) {
+            case TITLE:
+                return new BookCursor(sort, bookSummary.getTitle(), bookSummary.getId());
+            case AUTHOR_NAME:
+                return new BookCursor(sort, bookSummary.getAuthorName(), bookSummary.getId());
+            default:
+                return new BookCursor(sort, null, bookSummary.getId());
+        }
+    }
+
+    private static Set<String> toProperties(Set<BookField> fields, BookSort sort, boolean normalized) {
+        Set<String> properties = new HashSet<>();
+        properties.add("id");
+        if (fields.contains(BookField.TITLE) || sort == BookSort.TITLE)
+            properties.add("title");
+        if (fields.contains(BookField.AUTHOR_NAME) || sort == BookSort.AUTHOR_NAME)
+            properties.add("authorName");
+        if (fields.contains(BookField.AUTHOR_NAME) && normalized)
+            properties.add("authorId");
+        return properties;
+    }
+
+    // Every author's id is kept as the one instance that keys the authors map, the duplicates read for the other
+    // books of that author are dropped right away
+    private BookPageResponse toNormalizedBookPageResponse(List<BookSummary> bookSummaryList, long totalBooks) {
+        Map<String, String> authorIds = new HashMap<>();
+        Map<String, String> authors = new LinkedHashMap<>();
+        List<BookResponse> books = new ArrayList<>(bookSummaryList.size());
+        for (BookSummary bookSummary : bookSummaryList) {
+            String authorId = bookSummary.getAuthorId();
+            if (authorId != null) {
+                authorId = authorIds.computeIfAbsent(authorId, id -> id);
+                authors.putIfAbsent(authorId, bookSummary.getAuthorName());
+            }
+            books.add(new BookResponse(bookSummary.getId(), bookSummary.getTitle(), null, authorId));
+        }
+        return new BookPageResponse(books, totalBooks, authors);
+    }
+
+    // The default order is by id like the book snapshot's, so a page does not change when it is served from the other
+    // source. Unfiltered totals come from the catalog counters, so listing a page does not count the whole books table
+    private Single<List<BookSummary>> findAllBooksInRepository(int limit, int page, BookSort sort, Function<Pageable, List<BookSummary>> query) {
+        Sort order = toSort(sort);
+        if (shardRouter.getShardCount() == 1)
+            return findBooksPageOnShard(0, PageRequest.of(page, limit, order), query);
+        // Every shard returns its first (page + 1) * limit books, the requested page is among them. Offsets are capped,
+        // pages after a cursor only read limit books of every shard
+        PageRequest shardPageRequest = PageRequest.of(0, Math.multiplyExact(page + 1, limit), order);
+        return shardRouter.scatterGather(shardRouter.getShards(), blockingScheduler, shard -> findBooksPageOnShard(shard, shardPageRequest, query))
+                .map(shardPages -> shardPages
+                        .stream()
+                        .flatMap(List::stream)
+                        .sorted(toComparator(sort))
+                        .skip((long) page * limit)
+                        .limit(limit)
+                        .collect(Collectors.toList()));
+    }
+
+    private Single<List<BookSummary>> findBooksPageOnShard(int shard, PageRequest pageRequest, Function<Pageable, List<BookSummary>> query) {
         return Single.create(singleSubscriber -> {
-            List<Book> books = bookRepository.findAll(PageRequest.of(page, limit)).getContent();
-            singleSubscriber.onSuccess(books);
+            List<BookSummary> bookSummaries = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(singleSubscriber::setCancellable,
+                    () -> query.apply(pageRequest)));
+            singleSubscriber.onSuccess(bookSummaries);
         });
     }
 
-    private List<BookResponse> toBookResponseList(List<Book> bookList) {
-        return bookList
+    private Single<Long> countBooksInTitleRange(String from, String to) {
+        return shardRouter.scatterGather(shardRouter.getShards(), blockingScheduler, shard -> Single.<Long>create(singleSubscriber -> {
+            long count = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(singleSubscriber::setCancellable,
+                    () -> bookRepository.countByTitleRange(from, to)));
+            singleSubscriber.onSuccess(count);
+        }))
+                .map(shardCounts -> shardCounts
+                        .stream()
+                        .mapToLong(Long::longValue)
+                        .sum());
+    }
+
+    // Ties are broken by id, so pages are stable and shard pages merge in the order the database returned them
+    private static Sort toSort(BookSort sort) {
+        switch (sort) {
+            case TITLE:
+                return Sort.by("title", "id");
+            case AUTHOR_NAME:
+                return Sort.by("authorName", "id");
+            default:
+                return Sort.by("id");
+        }
+    }
+
+    // H2 orders nulls first and compares strings by UTF-16 code unit, as String.compareTo does
+    private static Comparator<BookSummary> toComparator(BookSort sort) {
+        switch (sort) {
+            case TITLE:
+                return Comparator.comparing(BookSummary::getTitle, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(BookSummary::getId);
+            case AUTHOR_NAME:
+                return Comparator.comparing(BookSummary::getAuthorName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(BookSummary::getId);
+            default:
+                return Comparator.comparing(BookSummary::getId);
+        }
+    }
+
+    // Every title starting with the prefix sorts before the prefix with its last character incremented, trailing
+    // characters that cannot be incremented are dropped first
+    private static String toTitlePrefixEnd(String titlePrefix) {
+        StringBuilder titlePrefixEnd = new StringBuilder(titlePrefix);
+        while (titlePrefixEnd.length() > 0) {
+            int last = titlePrefixEnd.length() - 1;
+            char lastCharacter = titlePrefixEnd.charAt(last);
+            if (lastCharacter != Character.MAX_VALUE) {
+                titlePrefixEnd.setCharAt(last, (char) (lastCharacter + 1));
+                return titlePrefixEnd.toString();
+            }
+            titlePrefixEnd.setLength(last);
+        }
+        throw new InvalidRequestException("Title prefix " + titlePrefix + " matches no range of titles");
+    }
+
+    private List<BookResponse> toBookResponseList(List<BookSummary> bookSummaryList) {
+        return bookSummaryList
                 .stream()
                 .map(this::toBookResponse)
                 .collect(Collectors.toList());
     }
 
+    private BookResponse toBookResponse(BookSummary bookSummary) {
+        return new BookResponse(bookSummary.getId(), bookSummary.getTitle(), bookSummary.getAuthorName());
+    }
+
     private BookResponse toBookResponse(Book book) {
-        BookResponse bookResponse = new BookResponse();
-        BeanUtils.copyProperties(book, bookResponse);
-        bookResponse.setAuthorName(book.getAuthor().getName());
-        return bookResponse;
+        return new BookResponse(book.getId(), book.getTitle(), book.getAuthor().getName());
     }
 
     @Override
     public Single<BookResponse> getBookDetail(String id) {
-        return findBookDetailInRepository(id);
+        return Single.defer(() -> bookDetailCache.get(id)
+                .map(Single::just)
+                .orElseGet(() -> findBookDetailInRepository(id)));
     }
 
     private Single<BookResponse> findBookDetailInRepository(String id) {
         return Single.create(singleSubscriber -> {
-            Optional<Book> optionalBook = bookRepository.findById(id);
+            long loadVersion = bookDetailCache.startLoad();
+            Optional<Book> optionalBook = executeOnBookShard(id, singleSubscriber::setCancellable,
+                    () -> bookRepository.findById(id));
             if (!optionalBook.isPresent())
-                singleSubscriber.onError(new EntityNotFoundException());
+                singleSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
             else {
                 BookResponse bookResponse = toBookResponse(optionalBook.get());
+                bookDetailCache.put(id, bookResponse, loadVersion);
                 singleSubscriber.onSuccess(bookResponse);
             }
         });
     }
 
+    /**
+     * Looks all books up with one query per shard and answers in request order, ids without a book get an item
+     * without one instead of failing the whole lookup.
+     */
+    @Override
+    public Single<List<BookLookupResponse>> getBooks(List<String> ids) {
+        return findBookSummariesInRepository(ids)
+                .map(bookSummaries -> toBookLookupResponseList(ids, bookSummaries));
+    }
+
+    private Single<Map<String, BookSummary>> findBookSummariesInRepository(List<String> ids) {
+        Map<Integer, Set<String>> idsByShard = ids
+                .stream()
+                .collect(Collectors.groupingBy(shardRouter::shardOf, Collectors.toCollection(LinkedHashSet::new)));
+        return shardRouter.scatterGather(idsByShard.keySet(), blockingScheduler,
+                shard -> findBookSummariesOnShard(shard, idsByShard.get(shard)))
+                .map(shardBookSummaries -> shardBookSummaries
+                        .stream()
+                        .flatMap(List::stream)
+                        .collect(Collectors.toMap(BookSummary::getId, Function.identity())));
+    }
+
+    private Single<List<BookSummary>> findBookSummariesOnShard(int shard, Set<String> ids) {
+        return Single.create(singleSubscriber -> {
+            List<BookSummary> bookSummaries = shardRouter.onShard(shard, () -> cancellableQueryExecutor.execute(singleSubscriber::setCancellable,
+                    () -> bookRepository.findAllSummariesByIdIn(ids)));
+            singleSubscriber.onSuccess(bookSummaries);
+        });
+    }
+
+    private List<BookLookupResponse> toBookLookupResponseList(List<String> ids, Map<String, BookSummary> bookSummaries) {
+        return ids
+                .stream()
+                .map(id -> {
+                    BookSummary bookSummary = bookSummaries.get(id);
+                    BookResponse bookResponse = bookSummary == null ? null : toBookResponse(bookSummary);
+                    return new BookLookupResponse(id, bookResponse);
+                })
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Completable deleteBook(String id) {
         return deleteBookInRepository(id);
@@ -125,13 +431,27 @@ public class BookServiceImpl implements BookService {
 
     private Completable deleteBookInRepository(String id) {
         return Completable.create(completableSubscriber -> {
-            Optional<Book> optionalBook = bookRepository.findById(id);
-            if (!optionalBook.isPresent())
-                completableSubscriber.onError(new EntityNotFoundException());
+            Optional<Book> deletedBook = executeOnBookShard(id, completableSubscriber::setCancellable, () -> {
+                Optional<Book> optionalBook = bookRepository.findById(id);
+                optionalBook.ifPresent(book -> {
+                    bookRepository.delete(book);
+                    catalogCounterService.incrementBookCounters(book.getAuthor().getId(), -1);
+                    changeJournalService.appendOnCommit(new JournalChange(JournalEntryType.BOOK_DELETED, id,
+                            book.getTitle(), book.getAuthor().getId()));
+                });
+                return optionalBook;
+            });
+            if (!deletedBook.isPresent())
+                completableSubscriber.onError(StacklessEntityNotFoundException.INSTANCE);
             else {
-                bookRepository.delete(optionalBook.get());
+                bookEventService.publishBookEvent(BookEventType.DELETED, id, null);
+                invalidationService.invalidate(InvalidationType.BOOK, id);
                 completableSubscriber.onComplete();
             }
         });
     }
+
+    private <T> T executeOnBookShard(String bookId, Consumer<Cancellable> cancellableRegistrar, Supplier<T> query) {
+        return shardRouter.onShard(shardRouter.shardOf(bookId), () -> cancellableQueryExecutor.execute(cancellableRegistrar, query));
+    }
 }
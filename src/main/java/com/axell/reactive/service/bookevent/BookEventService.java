@@ -0,0 +1,13 @@
+package com.axell.reactive.service.bookevent;
+
+import com.axell.reactive.servicedto.response.BookEventResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import io.reactivex.Flowable;
+
+public interface BookEventService {
+    void publishBookEvent(BookEventType type, String bookId, String title);
+
+    Flowable<BookEventResponse> getBookEvents(Long lastEventId);
+
+    long getLastSequence();
+}
@@ -0,0 +1,68 @@
+package com.axell.reactive.service.bookevent;
+
+import com.axell.reactive.servicedto.response.BookEventResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import io.reactivex.Flowable;
+import io.reactivex.processors.ReplayProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last {@code book.events.history-size} book events so that subscribers can resume from the
+ * sequence number they last saw. The history only hands every subscriber as many events as it requested; a
+ * subscriber whose next event has already dropped out of the history is completed and is expected to reconnect with
+ * its last sequence.
+ */
+@Service
+public class BookEventServiceImpl implements BookEventService {
+
+    @Value("${book.events.history-size:1024}")
+    private int historySize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ReplayProcessor<BookEventResponse> history;
+
+    @PostConstruct
+    public void init() {
+        history = ReplayProcessor.createWithSize(historySize);
+    }
+
+    @Override
+    public synchronized void publishBookEvent(BookEventType type, String bookId, String title) {
+        history.onNext(new BookEventResponse(sequence.incrementAndGet(), type, bookId, title));
+    }
+
+    @Override
+    public Flowable<BookEventResponse> getBookEvents(Long lastEventId) {
+        return Flowable.defer(() -> {
+            long currentSequence = sequence.get();
+            long oldestRetainedSequence = Math.max(1, currentSequence - historySize + 1);
+            long resumeSequence = lastEventId == null ? currentSequence : lastEventId;
+
+            Flowable<BookEventResponse> events;
+            if (resumeSequence < oldestRetainedSequence - 1 || resumeSequence > currentSequence) {
+                long resyncSequence = oldestRetainedSequence - 1;
+                events = findEventsAfter(resyncSequence)
+                        .startWith(new BookEventResponse(resyncSequence, BookEventType.RESYNC, null, null));
+            } else {
+                events = findEventsAfter(resumeSequence);
+            }
+            return events;
+        });
+    }
+
+    // Every book write publishes an event, so an unchanged sequence means the books have not changed
+    @Override
+    public long getLastSequence() {
+        return sequence.get();
+    }
+
+    private Flowable<BookEventResponse> findEventsAfter(long resumeSequence) {
+        return history
+                .filter(bookEventResponse -> bookEventResponse.getSequence() > resumeSequence)
+                .takeWhile(bookEventResponse -> sequence.get() - bookEventResponse.getSequence() < historySize);
+    }
+}
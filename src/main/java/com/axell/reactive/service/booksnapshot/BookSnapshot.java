@@ -0,0 +1,133 @@
+package com.axell.reactive.service.booksnapshot;
+
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.servicedto.response.BookResponse;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable columnar copy of the book list, ordered by id, in one buffer outside the heap. The buffer starts with
+ * the row count, followed by one index per column (id, title, author name) holding the offset and UTF-8 length of
+ * every row's value, length -1 standing for null, and then the values themselves. Reading a page only decodes the
+ * rows on that page.
+ */
+class BookSnapshot {
+
+    private static final int COLUMNS = 3;
+    private static final int ID_COLUMN = 0;
+    private static final int TITLE_COLUMN = 1;
+    private static final int AUTHOR_NAME_COLUMN = 2;
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int INDEX_ENTRY_BYTES = 2 * Integer.BYTES;
+    private static final int NULL_LENGTH = -1;
+
+    private final long sequence;
+    private final long epoch;
+    private final int rowCount;
+    private final ByteBuffer buffer;
+
+    private BookSnapshot(long sequence, long epoch, ByteBuffer buffer) {
+        this.sequence = sequence;
+        this.epoch = epoch;
+        this.rowCount = buffer.getInt(0);
+        this.buffer = buffer;
+    }
+
+    /**
+     * Writes the rows into a buffer of exactly the required size obtained from {@code bufferAllocator}. The sequence
+     * and epoch are the versions the rows were read at and are kept next to the buffer, not in it.
+     */
+    static BookSnapshot write(long sequence, long epoch, List<BookSummary> rows, IntFunction<ByteBuffer> bufferAllocator) {
+        byte[][][] values = new byte[COLUMNS][rows.size()][];
+        long dataBytes = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            BookSummary bookSummary = rows.get(row);
+            values[ID_COLUMN][row] = encode(bookSummary.getId());
+            values[TITLE_COLUMN][row] = encode(bookSummary.getTitle());
+            values[AUTHOR_NAME_COLUMN][row] = encode(bookSummary.getAuthorName());
+            for (int column = 0; column < COLUMNS; column++)
+                dataBytes += values[column][row] == null ? 0 : values[column][row].length;
+        }
+        long totalBytes = HEADER_BYTES + (long) COLUMNS * rows.size() * INDEX_ENTRY_BYTES + dataBytes;
+        if (totalBytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Book snapshot of " + totalBytes + " bytes exceeds the 2 GB buffer limit");
+
+        ByteBuffer buffer = bufferAllocator.apply((int) totalBytes);
+        buffer.putInt(0, rows.size());
+        int dataOffset = HEADER_BYTES + COLUMNS * rows.size() * INDEX_ENTRY_BYTES;
+        for (int column = 0; column < COLUMNS; column++) {
+            for (int row = 0; row < rows.size(); row++) {
+                byte[] value = values[column][row];
+                int indexOffset = indexOffset(rows.size(), column, row);
+                buffer.putInt(indexOffset, dataOffset);
+                buffer.putInt(indexOffset + Integer.BYTES, value == null ? NULL_LENGTH : value.length);
+                if (value != null) {
+                    position(buffer, dataOffset);
+                    buffer.put(value);
+                    dataOffset += value.length;
+                }
+            }
+        }
+        position(buffer, 0);
+        return new BookSnapshot(sequence, epoch, buffer);
+    }
+
+    // Called through Buffer, a JDK 9+ compiler would otherwise link the ByteBuffer override that Java 8 lacks
+    private static void position(ByteBuffer buffer, int position) {
+        ((Buffer) buffer).position(position);
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int indexOffset(int rowCount, int column, int row) {
+        return HEADER_BYTES + (column * rowCount + row) * INDEX_ENTRY_BYTES;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    List<BookResponse> getPage(int limit, int page) {
+        long firstRow = (long) page * limit;
+        if (firstRow >= rowCount)
+            return Collections.emptyList();
+        int endRow = (int) Math.min(rowCount, firstRow + limit);
+        // The shared buffer's position must not move, concurrent readers each copy out through their own view
+        ByteBuffer view = buffer.duplicate();
+        List<BookResponse> books = new ArrayList<>(endRow - (int) firstRow);
+        for (int row = (int) firstRow; row < endRow; row++)
+            books.add(new BookResponse(read(view, ID_COLUMN, row), read(view, TITLE_COLUMN, row), read(view, AUTHOR_NAME_COLUMN, row)));
+        return books;
+    }
+
+    private String read(ByteBuffer view, int column, int row) {
+        int indexOffset = indexOffset(rowCount, column, row);
+        int length = view.getInt(indexOffset + Integer.BYTES);
+        if (length == NULL_LENGTH)
+            return null;
+        byte[] value = new byte[length];
+        position(view, view.getInt(indexOffset));
+        view.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,11 @@
+package com.axell.reactive.service.booksnapshot;
+
+import com.axell.reactive.servicedto.response.BookPageResponse;
+
+import java.util.Optional;
+
+public interface BookSnapshotService {
+    Optional<BookPageResponse> findBookPage(int limit, int page);
+
+    void refresh();
+}
@@ -0,0 +1,144 @@
+package com.axell.reactive.service.booksnapshot;
+
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.servicedto.response.BookPageResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Serves book list pages from a {@link BookSnapshot} when {@code catalog.snapshot.enabled} is set. The snapshot is
+ * tagged with the book event sequence it was read at and only used while no book has been written since, otherwise
+ * callers fall back to the database. A changed sequence is picked up and the snapshot rebuilt every
+ * {@code catalog.snapshot.refresh-interval-millis}. Book writes on other instances do not show in the local sequence,
+ * they advance an epoch instead. A snapshot is only used at the epoch it was read at, so one read while a remote
+ * write arrived is not served and gets rebuilt.
+ * <p>
+ * Snapshots live in direct buffers, or in memory-mapped files under {@code catalog.snapshot.directory} when it is set,
+ * which keeps large catalogs out of the heap the JVM has to reserve.
+ */
+@Slf4j
+@Service
+public class BookSnapshotServiceImpl implements BookSnapshotService {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private BookEventService bookEventService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private InvalidationService invalidationService;
+    @Value("${catalog.snapshot.enabled:false}")
+    private boolean enabled;
+    @Value("${catalog.snapshot.directory:}")
+    private String directory;
+
+    private final AtomicReference<BookSnapshot> currentSnapshot = new AtomicReference<>();
+    private final AtomicLong remoteWriteEpoch = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        invalidationService.addListener((invalidations, remote) -> {
+            if (remote && invalidations.stream().anyMatch(invalidation -> invalidation.getType() == InvalidationType.BOOK)) {
+                remoteWriteEpoch.incrementAndGet();
+                release(currentSnapshot.getAndSet(null));
+            }
+        });
+    }
+
+    @Override
+    public Optional<BookPageResponse> findBookPage(int limit, int page) {
+        BookSnapshot snapshot = currentSnapshot.get();
+        if (snapshot == null || !isCurrent(snapshot, bookEventService.getLastSequence(), remoteWriteEpoch.get()))
+            return Optional.empty();
+        return Optional.of(new BookPageResponse(snapshot.getPage(limit, page), snapshot.size()));
+    }
+
+    private boolean isCurrent(BookSnapshot snapshot, long sequence, long epoch) {
+        return snapshot.getSequence() == sequence && snapshot.getEpoch() == epoch;
+    }
+
+    // The versions are read before the books, a write racing with the read leaves the snapshot tagged as stale
+    @Override
+    @Scheduled(fixedDelayString = "${catalog.snapshot.refresh-interval-millis:1000}")
+    public void refresh() {
+        if (!enabled)
+            return;
+        long epoch = remoteWriteEpoch.get();
+        long sequence = bookEventService.getLastSequence();
+        BookSnapshot snapshot = currentSnapshot.get();
+        if (snapshot != null && isCurrent(snapshot, sequence, epoch))
+            return;
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<BookSummary> bookSummaries = shardRouter.onEveryShard(() -> transactionTemplate.execute(transactionStatus -> bookRepository.findAllSummaries()))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(BookSummary::getId))
+                .collect(Collectors.toList());
+        BookSnapshot newSnapshot = BookSnapshot.write(sequence, epoch, bookSummaries, size -> allocate(sequence, epoch, size));
+        release(currentSnapshot.getAndSet(newSnapshot));
+        log.debug("Book snapshot at sequence {} and epoch {} built with {} books", sequence, epoch, newSnapshot.size());
+    }
+
+    private ByteBuffer allocate(long sequence, long epoch, int size) {
+        if (directory.isEmpty())
+            return ByteBuffer.allocateDirect(size);
+        Path file = snapshotFile(sequence, epoch);
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create book snapshot directory " + directory, e);
+        }
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map book snapshot file " + file, e);
+        }
+    }
+
+    // Buffers are freed by the garbage collector once the last page read finished, only the file needs removing
+    private void release(BookSnapshot snapshot) {
+        if (snapshot == null || directory.isEmpty())
+            return;
+        try {
+            Files.deleteIfExists(snapshotFile(snapshot.getSequence(), snapshot.getEpoch()));
+        } catch (IOException e) {
+            log.warn("Could not delete book snapshot file for sequence {}", snapshot.getSequence(), e);
+        }
+    }
+
+    private Path snapshotFile(long sequence, long epoch) {
+        return Paths.get(directory, "book-snapshot-" + sequence + "-" + epoch + ".bin");
+    }
+}
@@ -0,0 +1,19 @@
+package com.axell.reactive.service.catalogcounter;
+
+import java.util.Collection;
+
+public interface CatalogCounterService {
+    void incrementBookCounters(String authorId, long delta);
+
+    void createAuthorBookCounter(String authorId);
+
+    void createAuthorBookCounters(Collection<String> authorIds);
+
+    void deleteAuthorBookCounter(String authorId);
+
+    long getTotalBookCount();
+
+    long getAuthorBookCount(String authorId);
+
+    void reconcile();
+}
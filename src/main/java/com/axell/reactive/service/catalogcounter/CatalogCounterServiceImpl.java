@@ -0,0 +1,210 @@
+package com.axell.reactive.service.catalogcounter;
+
+import com.axell.reactive.entity.CatalogCounter;
+import com.axell.reactive.repository.AuthorBookCount;
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.CatalogCounterRepository;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the total book count and the book count of every author in the {@code catalog_counters} table, so list
+ * endpoints can return totals without scanning the books table. The counters are changed in the transaction that
+ * adds or deletes the book and mirrored in striped {@link LongAdder}s once that transaction commits, reads only touch
+ * the database the first time a counter is needed.
+ * <p>
+ * A write committing while a counter is loaded can be missed by the cached counter, and writes racing with
+ * {@link #reconcile()} can leave a stored counter off by the racing writes. The next reconciliation recomputes the
+ * stored counters from the books table and reloads the cached counters from them.
+ * <p>
+ * With several shards every shard counts its own books, the cached counters hold the sum over all shards. Book writes
+ * on other instances drop the cached counters, they are loaded again on their next read.
+ */
+@Slf4j
+@Service
+public class CatalogCounterServiceImpl implements CatalogCounterService {
+
+    static final String TOTAL_BOOKS_KEY = "books.total";
+    private static final String AUTHOR_BOOKS_KEY_PREFIX = "books.author.";
+
+    @Autowired
+    private CatalogCounterRepository catalogCounterRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private InvalidationService invalidationService;
+
+    private final Map<String, LongAdder> cachedCounters = new ConcurrentHashMap<>();
+    // Bumped whenever the cached counters are dropped, a counter loaded before that must not stay cached
+    private final AtomicLong cacheEpoch = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        invalidationService.addListener((invalidations, remote) -> {
+            if (remote && invalidations.stream().anyMatch(invalidation -> invalidation.getType() == InvalidationType.BOOK))
+                clearCachedCounters();
+        });
+    }
+
+    /**
+     * Must run inside the transaction that adds or deletes the books, the cached counters only see the change after
+     * it commits.
+     */
+    @Override
+    public void incrementBookCounters(String authorId, long delta) {
+        String authorBooksKey = toAuthorBooksKey(authorId);
+        incrementStoredCounter(TOTAL_BOOKS_KEY, delta);
+        incrementStoredCounter(authorBooksKey, delta);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                incrementCachedCounter(TOTAL_BOOKS_KEY, delta);
+                incrementCachedCounter(authorBooksKey, delta);
+            }
+        });
+    }
+
+    // Rows are created with their author and by reconciliation, the insert only covers catalogs that predate both
+    private void incrementStoredCounter(String counterKey, long delta) {
+        if (catalogCounterRepository.increment(counterKey, delta) == 0)
+            catalogCounterRepository.insert(new CatalogCounter(counterKey, delta));
+    }
+
+    // Counters that were never read are not cached yet and get loaded with the committed value on their first read
+    private void incrementCachedCounter(String counterKey, long delta) {
+        LongAdder cachedCounter = cachedCounters.get(counterKey);
+        if (cachedCounter != null)
+            cachedCounter.add(delta);
+    }
+
+    @Override
+    public void createAuthorBookCounter(String authorId) {
+        catalogCounterRepository.insert(new CatalogCounter(toAuthorBooksKey(authorId), 0));
+    }
+
+    @Override
+    public void createAuthorBookCounters(Collection<String> authorIds) {
+        catalogCounterRepository.insertAll(authorIds
+                .stream()
+                .map(authorId -> new CatalogCounter(toAuthorBooksKey(authorId), 0))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Must run inside the transaction that deletes the author, after their books were deleted. The counter is created
+     * again if an author with the same id is added later.
+     */
+    @Override
+    public void deleteAuthorBookCounter(String authorId) {
+        String authorBooksKey = toAuthorBooksKey(authorId);
+        catalogCounterRepository.deleteCounter(authorBooksKey);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                cachedCounters.remove(authorBooksKey);
+            }
+        });
+    }
+
+    @Override
+    public long getTotalBookCount() {
+        return getCounter(TOTAL_BOOKS_KEY);
+    }
+
+    @Override
+    public long getAuthorBookCount(String authorId) {
+        return getCounter(toAuthorBooksKey(authorId));
+    }
+
+    // Keys without a row are answered with zero but not cached, lookups of unknown authors must not grow the cache
+    private long getCounter(String counterKey) {
+        LongAdder cachedCounter = cachedCounters.get(counterKey);
+        if (cachedCounter != null)
+            return cachedCounter.sum();
+        long epoch = cacheEpoch.get();
+        List<Optional<CatalogCounter>> storedCounters = shardRouter.onEveryShard(() -> catalogCounterRepository.findById(counterKey));
+        if (storedCounters.stream().noneMatch(Optional::isPresent))
+            return 0;
+        LongAdder loadedCounter = cachedCounters.computeIfAbsent(counterKey, key -> {
+            LongAdder storedSum = new LongAdder();
+            storedCounters.forEach(storedCounter -> storedCounter.ifPresent(counter -> storedSum.add(counter.getCounterValue())));
+            return storedSum;
+        });
+        if (cacheEpoch.get() != epoch)
+            cachedCounters.remove(counterKey, loadedCounter);
+        return loadedCounter.sum();
+    }
+
+    private void clearCachedCounters() {
+        cacheEpoch.incrementAndGet();
+        cachedCounters.clear();
+    }
+
+    /**
+     * Recomputes every counter from the books table, stores the differences and drops the cached counters, so they are
+     * loaded again from the stored rows. Differences are added rather than the counts written, so increments committed
+     * meanwhile are kept.
+     */
+    @Override
+    @Scheduled(initialDelayString = "${catalog.counters.reconcile-initial-delay-millis:0}",
+            fixedDelayString = "${catalog.counters.reconcile-interval-millis:300000}")
+    public void reconcile() {
+        Map<String, Long> drifts = new HashMap<>();
+        for (Map<String, Long> shardDrifts : shardRouter.onEveryShard(this::reconcileShard))
+            shardDrifts.forEach((counterKey, drift) -> drifts.merge(counterKey, drift, Long::sum));
+        clearCachedCounters();
+        if (!drifts.isEmpty())
+            log.warn("Reconciled {} catalog counters that drifted from the books table", drifts.size());
+    }
+
+    private Map<String, Long> reconcileShard() {
+        return new TransactionTemplate(transactionManager).execute(transactionStatus -> {
+            Map<String, Long> actualCounts = new HashMap<>();
+            actualCounts.put(TOTAL_BOOKS_KEY, bookRepository.count());
+            for (AuthorBookCount authorBookCount : bookRepository.countAllGroupByAuthorId())
+                actualCounts.put(toAuthorBooksKey(authorBookCount.getAuthorId()), authorBookCount.getBookCount());
+
+            Map<String, Long> counterDrifts = new HashMap<>();
+            for (CatalogCounter storedCounter : catalogCounterRepository.findAll()) {
+                long actualCount = Optional.ofNullable(actualCounts.remove(storedCounter.getCounterKey())).orElse(0L);
+                if (actualCount != storedCounter.getCounterValue())
+                    counterDrifts.put(storedCounter.getCounterKey(), actualCount - storedCounter.getCounterValue());
+            }
+            counterDrifts.forEach(catalogCounterRepository::increment);
+            actualCounts.forEach((counterKey, actualCount) -> {
+                catalogCounterRepository.insert(new CatalogCounter(counterKey, actualCount));
+                if (actualCount != 0)
+                    counterDrifts.put(counterKey, actualCount);
+            });
+            return counterDrifts;
+        });
+    }
+
+    private String toAuthorBooksKey(String authorId) {
+        return AUTHOR_BOOKS_KEY_PREFIX + authorId;
+    }
+}
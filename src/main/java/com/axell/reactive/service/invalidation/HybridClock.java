@@ -0,0 +1,42 @@
+package com.axell.reactive.service.invalidation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hybrid logical clock, versions are the wall clock millis shifted left by 16 bits plus a counter. Versions handed out
+ * by one instance always increase, and after {@link #observe(long)} they are also greater than the versions seen from
+ * other instances, even when their wall clocks are ahead.
+ */
+public class HybridClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private final LongSupplier wallClock;
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    public HybridClock() {
+        this(System::currentTimeMillis);
+    }
+
+    public HybridClock(LongSupplier wallClock) {
+        this.wallClock = wallClock;
+    }
+
+    public long now() {
+        long wallVersion = wallClock.getAsLong() << LOGICAL_BITS;
+        return lastVersion.updateAndGet(previousVersion -> Math.max(previousVersion + 1, wallVersion));
+    }
+
+    public void observe(long remoteVersion) {
+        lastVersion.accumulateAndGet(remoteVersion, Math::max);
+    }
+
+    public long currentMillis() {
+        return wallClock.getAsLong();
+    }
+
+    public static long toMillis(long version) {
+        return version >>> LOGICAL_BITS;
+    }
+}
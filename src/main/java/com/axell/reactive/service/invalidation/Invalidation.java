@@ -0,0 +1,20 @@
+package com.axell.reactive.service.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tells caches that the entity with the id changed at the {@link HybridClock} version, entries loaded before that
+ * version are stale.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class Invalidation {
+    private InvalidationType type;
+    private String id;
+    private long version;
+}
@@ -0,0 +1,11 @@
+package com.axell.reactive.service.invalidation;
+
+import java.util.List;
+
+public interface InvalidationListener {
+
+    /**
+     * @param remote whether the writes happened on another instance
+     */
+    void onInvalidations(List<Invalidation> invalidations, boolean remote);
+}
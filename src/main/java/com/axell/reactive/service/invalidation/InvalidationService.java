@@ -0,0 +1,9 @@
+package com.axell.reactive.service.invalidation;
+
+public interface InvalidationService {
+    void invalidate(InvalidationType type, String id);
+
+    void addListener(InvalidationListener listener);
+
+    void flush();
+}
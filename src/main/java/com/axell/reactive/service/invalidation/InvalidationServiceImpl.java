@@ -0,0 +1,88 @@
+package com.axell.reactive.service.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Stamps writes with a {@link HybridClock} version and hands them to the local listeners at once. Other instances get
+ * them through the {@link InvalidationTransport} in batches every {@code invalidation.coalesce-millis}, several
+ * writes of one entity within that window are sent as one invalidation with the latest version.
+ * <p>
+ * Writes have to be invalidated after their transaction committed, otherwise a cache could load the old state again.
+ */
+@Slf4j
+@Service
+public class InvalidationServiceImpl implements InvalidationService {
+
+    @Autowired
+    private InvalidationTransport invalidationTransport;
+    @Autowired
+    private HybridClock hybridClock;
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Invalidation> pendingInvalidations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        invalidationTransport.start(this::receive);
+    }
+
+    @Override
+    public void invalidate(InvalidationType type, String id) {
+        Invalidation invalidation = new Invalidation(type, id, hybridClock.now());
+        notifyListeners(Collections.singletonList(invalidation), false);
+        pendingInvalidations.merge(type + ":" + id, invalidation,
+                (pendingInvalidation, newInvalidation) -> pendingInvalidation.getVersion() >= newInvalidation.getVersion()
+                        ? pendingInvalidation : newInvalidation);
+    }
+
+    @Override
+    public void addListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${invalidation.coalesce-millis:20}")
+    public void flush() {
+        if (pendingInvalidations.isEmpty())
+            return;
+        List<Invalidation> invalidations = new ArrayList<>();
+        for (String key : pendingInvalidations.keySet()) {
+            Invalidation invalidation = pendingInvalidations.remove(key);
+            if (invalidation != null)
+                invalidations.add(invalidation);
+        }
+        try {
+            invalidationTransport.send(invalidations);
+        } catch (RuntimeException e) {
+            log.warn("Could not send {} invalidations, other instances rely on their cache expiry", invalidations.size(), e);
+        }
+    }
+
+    // The sender's version is not ordered against loads here, its wall clock may lag. Every load that could have read
+    // the old row started before the receipt, so the invalidations are applied with a version taken on receipt
+    private void receive(List<Invalidation> invalidations) {
+        invalidations.forEach(invalidation -> hybridClock.observe(invalidation.getVersion()));
+        long receivedVersion = hybridClock.now();
+        notifyListeners(invalidations
+                .stream()
+                .map(invalidation -> new Invalidation(invalidation.getType(), invalidation.getId(), receivedVersion))
+                .collect(Collectors.toList()), true);
+    }
+
+    private void notifyListeners(List<Invalidation> invalidations, boolean remote) {
+        for (InvalidationListener listener : listeners)
+            listener.onInvalidations(invalidations, remote);
+    }
+}
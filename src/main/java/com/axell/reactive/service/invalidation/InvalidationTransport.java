@@ -0,0 +1,13 @@
+package com.axell.reactive.service.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidations between the instances of a deployment. Instances do not receive their own invalidations back.
+ */
+public interface InvalidationTransport {
+    void start(Consumer<List<Invalidation>> receiver);
+
+    void send(List<Invalidation> invalidations);
+}
@@ -0,0 +1,6 @@
+package com.axell.reactive.service.invalidation;
+
+public enum InvalidationType {
+    BOOK,
+    AUTHOR
+}
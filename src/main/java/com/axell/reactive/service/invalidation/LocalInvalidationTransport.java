@@ -0,0 +1,18 @@
+package com.axell.reactive.service.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transport of a single instance, there is nobody to tell.
+ */
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    @Override
+    public void start(Consumer<List<Invalidation>> receiver) {
+    }
+
+    @Override
+    public void send(List<Invalidation> invalidations) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.axell.reactive.service.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Sends invalidations as UDP datagrams to a multicast group, so every instance that joined the group receives them
+ * without knowing the others. Datagrams can get lost, which the caches cover with their expiry. On one host the group
+ * works over the loopback interface, which is how instances are tested together.
+ * <p>
+ * A datagram holds the format version, the id of the sending instance and the invalidations, each with its type, id
+ * and version. Batches larger than {@link #MAX_DATAGRAM_BYTES} are split over several datagrams.
+ */
+@Slf4j
+public class MulticastInvalidationTransport implements InvalidationTransport, AutoCloseable {
+
+    static final int MAX_DATAGRAM_BYTES = 1200;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 1 + 8 + 2;
+
+    private final InetAddress group;
+    private final int port;
+    private final NetworkInterface networkInterface;
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+    private MulticastSocket socket;
+
+    public MulticastInvalidationTransport(String group, int port, String interfaceAddress) {
+        try {
+            this.group = InetAddress.getByName(group);
+            this.networkInterface = interfaceAddress.isEmpty() ? null
+                    : NetworkInterface.getByInetAddress(InetAddress.getByName(interfaceAddress));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid invalidation multicast settings", e);
+        }
+        this.port = port;
+    }
+
+    @Override
+    public void start(Consumer<List<Invalidation>> receiver) {
+        try {
+            socket = new MulticastSocket(port);
+            if (networkInterface != null)
+                socket.setNetworkInterface(networkInterface);
+            enableLoopback(socket);
+            socket.joinGroup(new InetSocketAddress(group, port), networkInterface);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not join invalidation multicast group " + group + ":" + port, e);
+        }
+        Thread receiverThread = new Thread(() -> receive(receiver), "invalidation-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    // false enables loopback, instances on the same host hear each other. The replacing socket option needs Java 9
+    @SuppressWarnings("deprecation")
+    private static void enableLoopback(MulticastSocket socket) throws SocketException {
+        socket.setLoopbackMode(false);
+    }
+
+    private void receive(Consumer<List<Invalidation>> receiver) {
+        byte[] buffer = new byte[MAX_DATAGRAM_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Could not receive invalidations", e);
+                continue;
+            }
+            try {
+                List<Invalidation> invalidations = decode(packet.getData(), packet.getLength());
+                if (invalidations != null)
+                    receiver.accept(invalidations);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Ignored malformed invalidation datagram from {}", packet.getSocketAddress(), e);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void send(List<Invalidation> invalidations) {
+        try {
+            for (byte[] datagram : encode(invalidations))
+                socket.send(new DatagramPacket(datagram, datagram.length, group, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    List<byte[]> encode(List<Invalidation> invalidations) throws IOException {
+        List<byte[]> datagrams = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int count = 0;
+        for (Invalidation invalidation : invalidations) {
+            byte[] encodedInvalidation = encode(invalidation);
+            if (count > 0 && HEADER_BYTES + body.size() + encodedInvalidation.length > MAX_DATAGRAM_BYTES) {
+                datagrams.add(toDatagram(count, body));
+                body.reset();
+                count = 0;
+            }
+            body.write(encodedInvalidation);
+            count++;
+        }
+        if (count > 0)
+            datagrams.add(toDatagram(count, body));
+        return datagrams;
+    }
+
+    private byte[] encode(Invalidation invalidation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(invalidation.getType().ordinal());
+        output.writeUTF(invalidation.getId());
+        output.writeLong(invalidation.getVersion());
+        return bytes.toByteArray();
+    }
+
+    private byte[] toDatagram(int count, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + body.size());
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(FORMAT_VERSION);
+        output.writeLong(instanceId);
+        output.writeShort(count);
+        body.writeTo(output);
+        return bytes.toByteArray();
+    }
+
+    // Answers null for the datagrams this instance sent itself
+    List<Invalidation> decode(byte[] datagram, int length) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(datagram, 0, length));
+        if (input.readByte() != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unknown invalidation format");
+        if (input.readLong() == instanceId)
+            return null;
+        int count = input.readUnsignedShort();
+        List<Invalidation> invalidations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int typeOrdinal = input.readUnsignedByte();
+            if (typeOrdinal >= InvalidationType.values().length)
+                throw new IllegalArgumentException("Unknown invalidation type " + typeOrdinal);
+            invalidations.add(new Invalidation(InvalidationType.values()[typeOrdinal], input.readUTF(), input.readLong()));
+        }
+        return invalidations;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null)
+            socket.close();
+    }
+}
@@ -0,0 +1,86 @@
+package com.axell.reactive.service.invalidation;
+
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches entities of one {@link InvalidationType} by id. Callers take a version with {@link #startLoad()} before
+ * reading the entity and store it with that version. An invalidation removes older entries and is remembered for
+ * {@code ttlMillis}, so a load that started before the write cannot put its stale result back, no matter in which order
+ * the invalidations and the load finish. Entries also expire after {@code ttlMillis}, which bounds the damage of
+ * invalidations that got lost between instances.
+ */
+public class VersionedCache<V> implements InvalidationListener {
+
+    private final InvalidationType type;
+    private final HybridClock hybridClock;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> invalidatedVersions = new ConcurrentHashMap<>();
+
+    public VersionedCache(InvalidationType type, HybridClock hybridClock, long ttlMillis, int maxEntries) {
+        this.type = type;
+        this.hybridClock = hybridClock;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<V> get(String id) {
+        Entry<V> entry = entries.get(id);
+        if (entry == null)
+            return Optional.empty();
+        if (isExpired(entry.version)) {
+            entries.remove(id, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value);
+    }
+
+    public long startLoad() {
+        return hybridClock.now();
+    }
+
+    // A full cache stops taking entries until they expire or get invalidated, rather than tracking their use
+    public void put(String id, V value, long loadVersion) {
+        if (isExpired(loadVersion) || entries.size() >= maxEntries)
+            return;
+        entries.compute(id, (key, currentEntry) -> {
+            Long invalidatedVersion = invalidatedVersions.get(key);
+            if (invalidatedVersion != null && invalidatedVersion >= loadVersion)
+                return currentEntry;
+            if (currentEntry != null && currentEntry.version >= loadVersion)
+                return currentEntry;
+            return new Entry<>(value, loadVersion);
+        });
+    }
+
+    public void invalidate(String id, long version) {
+        if (invalidatedVersions.size() >= maxEntries)
+            invalidatedVersions.values().removeIf(this::isExpired);
+        invalidatedVersions.merge(id, version, Math::max);
+        entries.computeIfPresent(id, (key, entry) -> entry.version < version ? null : entry);
+    }
+
+    @Override
+    public void onInvalidations(List<Invalidation> invalidations, boolean remote) {
+        for (Invalidation invalidation : invalidations)
+            if (invalidation.getType() == type)
+                invalidate(invalidation.getId(), invalidation.getVersion());
+    }
+
+    private boolean isExpired(long version) {
+        return HybridClock.toMillis(version) + ttlMillis < hybridClock.currentMillis();
+    }
+
+    @AllArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final long version;
+    }
+}
@@ -0,0 +1,29 @@
+package com.axell.reactive.service.journal;
+
+import java.util.List;
+
+public interface ChangeJournalService {
+    /**
+     * Appends the changes in order and returns once they are durable, with the sequence of the last one.
+     */
+    long append(List<JournalChange> changes);
+
+    long append(JournalChange change);
+
+    /**
+     * Appends the changes once the current transaction commits. Journaled transactions on a shard commit one at a
+     * time and take their sequences in commit order, the commit returns once the changes are durable.
+     */
+    void appendOnCommit(List<JournalChange> changes);
+
+    void appendOnCommit(JournalChange change);
+
+    /**
+     * Returns up to {@code maxEntries} durable entries starting at {@code fromSequence}, waiting up to
+     * {@code waitMillis} for the first one when the journal has not reached it yet. Calling it again with the sequence
+     * after the last entry returned tails the journal.
+     */
+    List<JournalEntry> read(long fromSequence, int maxEntries, long waitMillis);
+
+    long getLastSequence();
+}
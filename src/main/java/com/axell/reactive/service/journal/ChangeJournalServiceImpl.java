@@ -0,0 +1,255 @@
+package com.axell.reactive.service.journal;
+
+import com.axell.reactive.repository.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends committed book and author writes to {@link JournalSegment}s under {@code journal.directory} when
+ * {@code journal.enabled} is set, a new segment of {@code journal.segment-bytes} is started when an entry does not
+ * fit into the current one. Segments are never deleted.
+ * <p>
+ * Appends are group committed: the appender that finds its entries not yet durable forces the segment once for every
+ * entry appended so far, the appenders queued behind it usually find theirs durable already. With
+ * {@code journal.sync=false} the segment is left to the operating system to write back and a crash can lose the last
+ * entries. Readers only see durable entries, so nothing rebuilt from the journal gets ahead of what survives a crash.
+ * <p>
+ * Entries are appended after the write committed, a crash in between loses the entry. Writes journaled with
+ * {@link #appendOnCommit(List)} hold their shard's commit lock from before the commit until their entries have
+ * sequences, so two writes of the same row are journaled in the order they committed. The transaction is flushed
+ * before the lock is taken, a transaction waiting for it already holds every row lock it needs.
+ */
+@Slf4j
+@Service
+public class ChangeJournalServiceImpl implements ChangeJournalService {
+
+    @Value("${journal.enabled:false}")
+    private boolean enabled;
+    @Value("${journal.directory:journal}")
+    private String directory;
+    @Value("${journal.segment-bytes:67108864}")
+    private int segmentBytes;
+    @Value("${journal.sync:true}")
+    private boolean sync;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final NavigableMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private final Object forceLock = new Object();
+    private final Object durableMonitor = new Object();
+    private final ConcurrentMap<Integer, Lock> commitLocks = new ConcurrentHashMap<>();
+    private JournalSegment activeSegment;
+    private long appendedSequence;
+    private volatile long durableSequence;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled)
+            return;
+        Path journalDirectory = Paths.get(directory);
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.createDirectories(journalDirectory);
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(journalDirectory, JournalSegment.fileGlob())) {
+                directoryStream.forEach(files::add);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal directory " + directory, e);
+        }
+        for (Path file : files) {
+            JournalSegment segment = JournalSegment.open(file);
+            segments.put(segment.getBaseSequence(), segment);
+        }
+        synchronized (appendLock) {
+            if (segments.isEmpty()) {
+                activeSegment = JournalSegment.create(journalDirectory, 1, segmentBytes);
+                segments.put(1L, activeSegment);
+            } else
+                activeSegment = segments.lastEntry().getValue();
+            appendedSequence = activeSegment.recover();
+        }
+        publishDurable(appendedSequence);
+        log.info("Change journal in {} opened at sequence {} with {} segments", directory, appendedSequence, segments.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled)
+            return;
+        synchronized (appendLock) {
+            activeSegment.force();
+        }
+    }
+
+    @Override
+    public long append(JournalChange change) {
+        return append(Collections.singletonList(change));
+    }
+
+    @Override
+    public long append(List<JournalChange> changes) {
+        if (!enabled || changes.isEmpty())
+            return durableSequence;
+        long lastSequence = appendEntries(changes);
+        awaitDurable(lastSequence);
+        return lastSequence;
+    }
+
+    @Override
+    public void appendOnCommit(JournalChange change) {
+        appendOnCommit(Collections.singletonList(change));
+    }
+
+    @Override
+    public void appendOnCommit(List<JournalChange> changes) {
+        if (!enabled || changes.isEmpty())
+            return;
+        Lock commitLock = commitLocks.computeIfAbsent(shardRouter.currentShard(), shard -> new ReentrantLock());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                entityManager.flush();
+                commitLock.lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                long lastSequence;
+                try {
+                    lastSequence = appendEntries(changes);
+                } finally {
+                    unlock();
+                }
+                awaitDurable(lastSequence);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                unlock();
+            }
+
+            private void unlock() {
+                if (locked) {
+                    locked = false;
+                    commitLock.unlock();
+                }
+            }
+        });
+    }
+
+    private long appendEntries(List<JournalChange> changes) {
+        synchronized (appendLock) {
+            long timestampMillis = System.currentTimeMillis();
+            for (JournalChange change : changes) {
+                JournalEntry entry = new JournalEntry(appendedSequence + 1, timestampMillis, change);
+                if (!activeSegment.tryAppend(entry)) {
+                    roll(entry.getSequence());
+                    if (!activeSegment.tryAppend(entry))
+                        throw new IllegalArgumentException("Journal entry " + change + " does not fit into a segment of " + segmentBytes + " bytes");
+                }
+                appendedSequence = entry.getSequence();
+            }
+            return appendedSequence;
+        }
+    }
+
+    // The full segment is forced before the next one starts, forcing only the active segment covers every entry
+    private void roll(long baseSequence) {
+        if (sync)
+            activeSegment.force();
+        activeSegment = JournalSegment.create(Paths.get(directory), baseSequence, segmentBytes);
+        segments.put(baseSequence, activeSegment);
+    }
+
+    private void awaitDurable(long sequence) {
+        synchronized (forceLock) {
+            if (durableSequence >= sequence)
+                return;
+            JournalSegment segment;
+            long appendedSequenceToForce;
+            synchronized (appendLock) {
+                segment = activeSegment;
+                appendedSequenceToForce = appendedSequence;
+            }
+            if (sync)
+                segment.force();
+            publishDurable(appendedSequenceToForce);
+        }
+    }
+
+    private void publishDurable(long sequence) {
+        synchronized (durableMonitor) {
+            durableSequence = sequence;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    @Override
+    public List<JournalEntry> read(long fromSequence, int maxEntries, long waitMillis) {
+        if (!enabled || maxEntries <= 0)
+            return Collections.emptyList();
+        long toSequence = awaitDurableSequence(fromSequence, waitMillis);
+        List<JournalEntry> entries = new ArrayList<>();
+        Long firstBaseSequence = segments.floorKey(fromSequence);
+        Collection<JournalSegment> candidateSegments = firstBaseSequence == null ? segments.values()
+                : segments.tailMap(firstBaseSequence, true).values();
+        for (JournalSegment segment : candidateSegments) {
+            if (entries.size() >= maxEntries || segment.getBaseSequence() > toSequence)
+                break;
+            segment.read(Math.max(fromSequence, segment.getBaseSequence()), toSequence, maxEntries, entries);
+        }
+        return entries;
+    }
+
+    private long awaitDurableSequence(long sequence, long waitMillis) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        synchronized (durableMonitor) {
+            long remainingMillis;
+            while (durableSequence < sequence && (remainingMillis = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    durableMonitor.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return durableSequence;
+        }
+    }
+
+    @Override
+    public long getLastSequence() {
+        return durableSequence;
+    }
+}
@@ -0,0 +1,20 @@
+package com.axell.reactive.service.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A committed write, {@code name} is the book title or author name and {@code authorId} the author of the book.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class JournalChange {
+    private JournalEntryType type;
+    private String entityId;
+    private String name;
+    private String authorId;
+}
@@ -0,0 +1,19 @@
+package com.axell.reactive.service.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A change as stored in the journal, sequences start at 1 and have no gaps.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class JournalEntry {
+    private long sequence;
+    private long timestampMillis;
+    private JournalChange change;
+}
@@ -0,0 +1,12 @@
+package com.axell.reactive.service.journal;
+
+/**
+ * Stored by ordinal in the journal, new types are only ever added at the end.
+ */
+public enum JournalEntryType {
+    BOOK_ADDED,
+    BOOK_UPDATED,
+    BOOK_DELETED,
+    AUTHOR_ADDED,
+    AUTHOR_DELETED
+}
@@ -0,0 +1,206 @@
+package com.axell.reactive.service.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped journal file holding the entries from {@code baseSequence} on, the file name carries the base
+ * sequence. Files are created at their full size, so unwritten space reads as zeros. Every record is the body length,
+ * the CRC32 of the body and the body: sequence, timestamp, type ordinal and the entity id, name and author id, each
+ * as UTF-8 length (-1 standing for null) and bytes. The length is written last, a record torn by a crash either
+ * reads as the end of the segment or fails its checksum.
+ * <p>
+ * Only one thread appends, readers use absolute reads on the shared buffer and only read up to a sequence the
+ * appender published. Every {@value #INDEX_INTERVAL}th record's position is indexed, reading from a sequence decodes
+ * at most that many records before reaching it.
+ */
+class JournalSegment {
+
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".seg";
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int NULL_LENGTH = -1;
+    private static final int INDEX_INTERVAL = 256;
+    private static final JournalEntryType[] TYPES = JournalEntryType.values();
+
+    private final long baseSequence;
+    private final MappedByteBuffer buffer;
+    private final NavigableMap<Long, Integer> positionIndex = new ConcurrentSkipListMap<>();
+    private int writePosition;
+
+    private JournalSegment(long baseSequence, MappedByteBuffer buffer) {
+        this.baseSequence = baseSequence;
+        this.buffer = buffer;
+        positionIndex.put(baseSequence, 0);
+    }
+
+    static String fileGlob() {
+        return FILE_PREFIX + "*" + FILE_SUFFIX;
+    }
+
+    static JournalSegment create(Path directory, long baseSequence, int size) {
+        return map(directory.resolve(String.format("%s%020d%s", FILE_PREFIX, baseSequence, FILE_SUFFIX)), baseSequence, size);
+    }
+
+    static JournalSegment open(Path file) {
+        String fileName = file.getFileName().toString();
+        long baseSequence = Long.parseLong(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        return map(file, baseSequence, -1);
+    }
+
+    private static JournalSegment map(Path file, long baseSequence, int size) {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long mappedSize = size < 0 ? fileChannel.size() : size;
+            return new JournalSegment(baseSequence, fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map journal segment " + file, e);
+        }
+    }
+
+    long getBaseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * Finds the end of the intact records so appending continues after them, returns the last sequence in the segment
+     * or {@code baseSequence - 1} when it is empty.
+     */
+    long recover() {
+        long lastSequence = baseSequence - 1;
+        int position = 0;
+        JournalEntry entry;
+        while ((entry = readEntry(position)) != null && entry.getSequence() == lastSequence + 1) {
+            index(entry.getSequence(), position);
+            lastSequence = entry.getSequence();
+            position = nextPosition(position);
+        }
+        writePosition = position;
+        return lastSequence;
+    }
+
+    /**
+     * Returns false without writing when the entry does not fit into the rest of the segment.
+     */
+    boolean tryAppend(JournalEntry entry) {
+        byte[] body = encode(entry);
+        if (RECORD_HEADER_BYTES + body.length > buffer.capacity() - writePosition)
+            return false;
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        ByteBuffer target = buffer.duplicate();
+        ((Buffer) target).position(writePosition + RECORD_HEADER_BYTES);
+        target.put(body);
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(writePosition, body.length);
+        index(entry.getSequence(), writePosition);
+        writePosition += RECORD_HEADER_BYTES + body.length;
+        return true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Adds the entries from {@code fromSequence} to {@code toSequence} held by this segment to {@code entries} until it
+     * holds {@code maxEntries}.
+     */
+    void read(long fromSequence, long toSequence, int maxEntries, List<JournalEntry> entries) {
+        Map.Entry<Long, Integer> start = positionIndex.floorEntry(fromSequence);
+        long sequence = start.getKey();
+        int position = start.getValue();
+        while (sequence <= toSequence && entries.size() < maxEntries) {
+            JournalEntry entry = readEntry(position);
+            if (entry == null || entry.getSequence() != sequence)
+                return;
+            index(sequence, position);
+            if (sequence >= fromSequence)
+                entries.add(entry);
+            position = nextPosition(position);
+            sequence++;
+        }
+    }
+
+    private void index(long sequence, int position) {
+        if ((sequence - baseSequence) % INDEX_INTERVAL == 0)
+            positionIndex.put(sequence, position);
+    }
+
+    private int nextPosition(int position) {
+        return position + RECORD_HEADER_BYTES + buffer.getInt(position);
+    }
+
+    // Null for the end of the segment and for records that are torn or corrupt
+    private JournalEntry readEntry(int position) {
+        if (RECORD_HEADER_BYTES > buffer.capacity() - position)
+            return null;
+        int bodyLength = buffer.getInt(position);
+        if (bodyLength <= 0 || bodyLength > buffer.capacity() - position - RECORD_HEADER_BYTES)
+            return null;
+        ByteBuffer body = buffer.duplicate();
+        ((Buffer) body).position(position + RECORD_HEADER_BYTES);
+        ((Buffer) body).limit(position + RECORD_HEADER_BYTES + bodyLength);
+        body = body.slice();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES))
+            return null;
+        long sequence = body.getLong();
+        long timestampMillis = body.getLong();
+        int type = body.get();
+        if (type < 0 || type >= TYPES.length)
+            return null;
+        return new JournalEntry(sequence, timestampMillis, new JournalChange(TYPES[type], decode(body), decode(body), decode(body)));
+    }
+
+    private static byte[] encode(JournalEntry entry) {
+        JournalChange change = entry.getChange();
+        byte[] entityId = encode(change.getEntityId());
+        byte[] name = encode(change.getName());
+        byte[] authorId = encode(change.getAuthorId());
+        ByteBuffer body = ByteBuffer.allocate(2 * Long.BYTES + 1 + 3 * Integer.BYTES
+                + length(entityId) + length(name) + length(authorId));
+        body.putLong(entry.getSequence());
+        body.putLong(entry.getTimestampMillis());
+        body.put((byte) change.getType().ordinal());
+        put(body, entityId);
+        put(body, name);
+        put(body, authorId);
+        return body.array();
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void put(ByteBuffer body, byte[] value) {
+        body.putInt(value == null ? NULL_LENGTH : value.length);
+        if (value != null)
+            body.put(value);
+    }
+
+    private static String decode(ByteBuffer body) {
+        int length = body.getInt();
+        if (length == NULL_LENGTH)
+            return null;
+        byte[] value = new byte[length];
+        body.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,16 @@
+package com.axell.reactive.servicedto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddAuthorsRequest {
+    private List<String> names;
+}
@@ -0,0 +1,20 @@
+package com.axell.reactive.servicedto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The position of a book in a list in {@code sort} order, its sort key and id. A page after the cursor starts with
+ * the next book. The sort key is null for {@link BookSort#ID} and for a book without the sorted property.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class BookCursor {
+    private BookSort sort;
+    private String sortKey;
+    private String id;
+}
@@ -0,0 +1,10 @@
+package com.axell.reactive.servicedto.request;
+
+/**
+ * A field of a listed book, callers request the ones they need.
+ */
+public enum BookField {
+    ID,
+    TITLE,
+    AUTHOR_NAME
+}
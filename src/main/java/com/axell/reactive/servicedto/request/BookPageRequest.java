@@ -0,0 +1,33 @@
+package com.axell.reactive.servicedto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+/**
+ * A page of the book list. The author id and title prefix filters are optional, null leaves the list unfiltered.
+ * With a cursor in {@code after} the page starts after that book rather than at the start of the list.
+ * Fields that are not requested may be left null in the page. A normalized page sends each author once, see
+ * {@link com.axell.reactive.servicedto.response.BookPageResponse}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageRequest {
+    private int limit;
+    private int page;
+    private BookSort sort;
+    private String authorId;
+    private String titlePrefix;
+    private Set<BookField> fields;
+    private boolean normalized;
+    private BookCursor after;
+
+    public BookPageRequest(int limit, int page, BookSort sort, String authorId, String titlePrefix, Set<BookField> fields, boolean normalized) {
+        this(limit, page, sort, authorId, titlePrefix, fields, normalized, null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.axell.reactive.servicedto.request;
+
+/**
+ * Orders a book page ascending, books that tie are ordered by id.
+ */
+public enum BookSort {
+    ID,
+    TITLE,
+    AUTHOR_NAME
+}
@@ -0,0 +1,18 @@
+package com.axell.reactive.servicedto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddAuthorsResponse {
+    // Every requested name, in request order, mapped to the id of the new or existing author
+    private Map<String, String> authorIds;
+    private int createdCount;
+}
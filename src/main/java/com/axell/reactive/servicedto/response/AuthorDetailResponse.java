@@ -0,0 +1,19 @@
+package com.axell.reactive.servicedto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorDetailResponse {
+    private String id;
+    private String name;
+    private long bookCount;
+    private List<BookResponse> books;
+}
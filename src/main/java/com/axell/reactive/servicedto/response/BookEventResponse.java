@@ -0,0 +1,17 @@
+package com.axell.reactive.servicedto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookEventResponse {
+    private long sequence;
+    private BookEventType type;
+    private String bookId;
+    private String title;
+}
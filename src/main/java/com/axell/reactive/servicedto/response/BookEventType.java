@@ -0,0 +1,8 @@
+package com.axell.reactive.servicedto.response;
+
+public enum BookEventType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    RESYNC
+}
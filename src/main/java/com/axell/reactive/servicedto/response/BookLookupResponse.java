@@ -0,0 +1,16 @@
+package com.axell.reactive.servicedto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupResponse {
+    private String id;
+    // Null when no book has the requested id
+    private BookResponse book;
+}
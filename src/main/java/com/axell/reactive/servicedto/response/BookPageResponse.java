@@ -0,0 +1,34 @@
+package com.axell.reactive.servicedto.response;
+
+import com.axell.reactive.servicedto.request.BookCursor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the book list. A normalized page leaves the author names out of its books, which reference their author
+ * by id in {@code authors} instead, otherwise {@code authors} is null. A full page has the cursor of its last book in
+ * {@code nextCursor} to request the following page with.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageResponse {
+    private List<BookResponse> books;
+    private long totalBooks;
+    private Map<String, String> authors;
+    private BookCursor nextCursor;
+
+    public BookPageResponse(List<BookResponse> books, long totalBooks) {
+        this(books, totalBooks, null, null);
+    }
+
+    public BookPageResponse(List<BookResponse> books, long totalBooks, Map<String, String> authors) {
+        this(books, totalBooks, authors, null);
+    }
+}
@@ -13,4 +13,9 @@ public class BookResponse {
     private String id;
     private String title;
     private String authorName;
+    private String authorId;
+
+    public BookResponse(String id, String title, String authorName) {
+        this(id, title, authorName, null);
+    }
 }
@@ -0,0 +1,70 @@
+package com.axell.reactive.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs the time from JVM start until the first request is completed and warns when it misses the target, which
+ * is what an autoscaled instance actually pays before it takes traffic.
+ */
+@Slf4j
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+
+    private final long targetMillis;
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    public FirstRequestTimingFilter(long targetMillis) {
+        this.targetMillis = targetMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!firstRequestSeen.compareAndSet(false, true)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        report(request.getRequestURI());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            else
+                report(request.getRequestURI());
+        }
+    }
+
+    private void report(String requestUri) {
+        long timeToFirstRequestMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        if (timeToFirstRequestMillis > targetMillis)
+            log.warn("First request {} completed {} ms after JVM start, target is {} ms", requestUri, timeToFirstRequestMillis, targetMillis);
+        else
+            log.info("First request {} completed {} ms after JVM start, target is {} ms", requestUri, timeToFirstRequestMillis, targetMillis);
+    }
+}
@@ -0,0 +1,124 @@
+package com.axell.reactive.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts book detail hits when {@code startup.warm-up.enabled} is set and writes the ids of the
+ * {@code startup.warm-up.hot-books} most requested books to {@code startup.warm-up.hot-books-file}, every
+ * {@code startup.warm-up.persist-interval-millis} and on shutdown, so the next start knows what to preload.
+ * <p>
+ * At most {@code startup.warm-up.tracked-books} ids are counted, later ones are ignored until decay frees room: every
+ * write halves the counts and forgets ids hit only once, the list follows traffic that moves on. Nothing is written
+ * when no book was hit, an idle instance keeps the list of the last busy one.
+ */
+@Slf4j
+@Component
+public class HotBookTracker {
+
+    @Value("${startup.warm-up.enabled:false}")
+    private boolean enabled;
+    @Value("${startup.warm-up.hot-books-file:hot-books.txt}")
+    private String hotBooksFile;
+    @Value("${startup.warm-up.hot-books:200}")
+    private int hotBookCount;
+    @Value("${startup.warm-up.tracked-books:10000}")
+    private int maxTrackedBooks;
+
+    private final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+    private volatile boolean tracking;
+
+    /**
+     * Called once the warm-up is done, its synthetic requests must not count as traffic.
+     */
+    public void startTracking() {
+        tracking = true;
+    }
+
+    public void record(String bookId) {
+        if (!enabled || !tracking)
+            return;
+        LongAdder bookHits = hits.get(bookId);
+        if (bookHits == null) {
+            if (hits.size() >= maxTrackedBooks)
+                return;
+            bookHits = hits.computeIfAbsent(bookId, id -> new LongAdder());
+        }
+        bookHits.increment();
+    }
+
+    /**
+     * Returns the ids written by the last run, hottest first, or an empty list when there is no file yet.
+     */
+    public List<String> getHotBookIds() {
+        Path file = Paths.get(hotBooksFile);
+        if (!Files.exists(file))
+            return Collections.emptyList();
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8)
+                    .stream()
+                    .filter(line -> !line.isEmpty())
+                    .limit(hotBookCount)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("Could not read hot books from {}", hotBooksFile, e);
+            return Collections.emptyList();
+        }
+    }
+
+    // Written next to the target and moved over it, a crash while writing never leaves a truncated list
+    @PreDestroy
+    @Scheduled(initialDelayString = "${startup.warm-up.persist-interval-millis:60000}",
+            fixedDelayString = "${startup.warm-up.persist-interval-millis:60000}")
+    public void persist() {
+        if (!enabled)
+            return;
+        Map<String, Long> counts = hits.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+        if (counts.isEmpty())
+            return;
+        List<String> hotBookIds = counts.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(hotBookCount)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        Path file = Paths.get(hotBooksFile).toAbsolutePath();
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temporaryFile, hotBookIds, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write hot books to {}", hotBooksFile, e);
+        }
+        decay(counts);
+    }
+
+    private void decay(Map<String, Long> counts) {
+        counts.forEach((bookId, count) -> {
+            LongAdder bookHits = hits.get(bookId);
+            if (count <= 1)
+                hits.remove(bookId, bookHits);
+            else
+                bookHits.add(-count / 2);
+        });
+    }
+}
@@ -0,0 +1,72 @@
+package com.axell.reactive.startup;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Marks application singletons as lazy so that startup only creates what the web server needs, the rest is
+ * created on first use. Infrastructure beans and beans that have to run at startup (callbacks after singleton
+ * instantiation, lifecycle beans, beans with {@link Scheduled} methods and the given eager types) keep being created
+ * eagerly.
+ */
+public class LazyInitializationBeanFactoryPostProcessor implements BeanFactoryPostProcessor, Ordered {
+
+    private final List<Class<?>> eagerTypes = new ArrayList<>(Arrays.asList(SmartInitializingSingleton.class, SmartLifecycle.class));
+
+    public LazyInitializationBeanFactoryPostProcessor(Class<?>... eagerTypes) {
+        this.eagerTypes.addAll(Arrays.asList(eagerTypes));
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.getRole() == BeanDefinition.ROLE_APPLICATION
+                    && !isEager(getBeanTypeName(beanDefinition), beanFactory.getBeanClassLoader()))
+                beanDefinition.setLazyInit(true);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    // Resolving the type through the bean factory could instantiate factory beans, so only the definition is read
+    private String getBeanTypeName(BeanDefinition beanDefinition) {
+        if (beanDefinition instanceof AnnotatedBeanDefinition) {
+            MethodMetadata factoryMethodMetadata = ((AnnotatedBeanDefinition) beanDefinition).getFactoryMethodMetadata();
+            if (factoryMethodMetadata != null)
+                return factoryMethodMetadata.getReturnTypeName();
+        }
+        return beanDefinition.getBeanClassName();
+    }
+
+    private boolean isEager(String beanTypeName, ClassLoader classLoader) {
+        if (beanTypeName == null || !ClassUtils.isPresent(beanTypeName, classLoader))
+            return false;
+        Class<?> beanType = ClassUtils.resolveClassName(beanTypeName, classLoader);
+        return eagerTypes.stream().anyMatch(eagerType -> eagerType.isAssignableFrom(beanType))
+                || hasScheduledMethods(beanType);
+    }
+
+    // Scheduled methods are only registered when their bean is created, a lazy one would never run
+    private boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,42 @@
+package com.axell.reactive.startup;
+
+import com.axell.reactive.configuration.RxJavaConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class StartupConfiguration {
+
+    @Value("${startup.first-request-target-millis:3000}")
+    private long firstRequestTargetMillis;
+
+    // Spring Boot 2.1 has no spring.main.lazy-initialization, the RxJava error handler still has to be set eagerly
+    @Bean
+    @ConditionalOnProperty("startup.lazy-initialization")
+    public static LazyInitializationBeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+        return new LazyInitializationBeanFactoryPostProcessor(RxJavaConfiguration.class);
+    }
+
+    @Bean
+    public FilterRegistrationBean<FirstRequestTimingFilter> firstRequestTimingFilter() {
+        FilterRegistrationBean<FirstRequestTimingFilter> registrationBean =
+                new FilterRegistrationBean<>(new FirstRequestTimingFilter(firstRequestTargetMillis));
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registrationBean;
+    }
+
+    @Bean
+    public WarmUpListener warmUpListener() {
+        return new WarmUpListener();
+    }
+
+    @Bean
+    @ConditionalOnProperty("startup.training-run")
+    public TrainingRunListener trainingRunListener() {
+        return new TrainingRunListener();
+    }
+}
@@ -0,0 +1,35 @@
+package com.axell.reactive.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Used by the AppCDS training run: once the application is ready it serves one request, so that the request
+ * path classes end up in the archive too, and then exits to let the JVM dump the archive.
+ */
+@Slf4j
+public class TrainingRunListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String TRAINING_REQUEST_PATH = "/api/books?page=0&limit=1";
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext applicationContext = event.getApplicationContext();
+        String port = applicationContext.getEnvironment().getProperty("local.server.port");
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + TRAINING_REQUEST_PATH).openConnection();
+            log.info("Training request {} returned {}", TRAINING_REQUEST_PATH, connection.getResponseCode());
+            connection.disconnect();
+        } catch (IOException e) {
+            log.warn("Training request {} failed", TRAINING_REQUEST_PATH, e);
+        }
+        System.exit(SpringApplication.exit(applicationContext));
+    }
+}
@@ -0,0 +1,145 @@
+package com.axell.reactive.startup;
+
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.web.BookRestController;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Warms the instance up once the application is ready when {@code startup.warm-up.enabled} is set, and only then
+ * reports it ready: it opens {@code startup.warm-up.pool-connections} connections to every shard, loads the books
+ * {@link HotBookTracker} persisted into the book detail cache and replays {@code startup.warm-up.iterations} book
+ * list and detail requests through {@link BookRestController}, serializing the responses, so the request path is
+ * JIT compiled before a load balancer sends traffic. The replay stops early after {@code startup.warm-up.max-millis}.
+ * <p>
+ * The server already listens while this runs, the readiness endpoint answers 503 until it is done.
+ */
+@Slf4j
+public class WarmUpListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int WARM_UP_PAGE_SIZE = 5;
+    private static final int WARM_UP_PAGES = 10;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRestController bookRestController;
+    @Autowired
+    private HotBookTracker hotBookTracker;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Value("${startup.warm-up.enabled:false}")
+    private boolean enabled;
+    @Value("${startup.warm-up.pool-connections:10}")
+    private int poolConnections;
+    @Value("${startup.warm-up.iterations:5000}")
+    private int iterations;
+    @Value("${startup.warm-up.max-millis:60000}")
+    private long maxMillis;
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (enabled)
+            warmUp();
+        ready = true;
+        hotBookTracker.startTracking();
+        log.info("Ready {} ms after JVM start", System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    private void warmUp() {
+        long startMillis = System.currentTimeMillis();
+        shardRouter.onEveryShard(this::openConnections);
+        List<String> hotBookIds = preloadHotBooks();
+        int failures = replayRequests(hotBookIds, startMillis + maxMillis);
+        log.info("Warm-up loaded {} hot books and replayed requests with {} failures in {} ms",
+                hotBookIds.size(), failures, System.currentTimeMillis() - startMillis);
+    }
+
+    // Held together, otherwise the pool would hand out the same connection every time
+    private Void openConnections() {
+        List<Connection> connections = new ArrayList<>(poolConnections);
+        try {
+            for (int i = 0; i < poolConnections; i++)
+                connections.add(dataSource.getConnection());
+        } catch (SQLException e) {
+            log.warn("Warm-up opened only {} of {} connections", connections.size(), poolConnections, e);
+        } finally {
+            for (Connection connection : connections)
+                close(connection);
+        }
+        return null;
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Could not close warm-up connection", e);
+        }
+    }
+
+    // Books deleted since the list was written are dropped
+    private List<String> preloadHotBooks() {
+        List<String> loadedBookIds = new ArrayList<>();
+        for (String bookId : hotBookTracker.getHotBookIds()) {
+            try {
+                bookService.getBookDetail(bookId).blockingGet();
+                loadedBookIds.add(bookId);
+            } catch (RuntimeException e) {
+                log.debug("Warm-up could not load hot book {}", bookId, e);
+            }
+        }
+        return loadedBookIds;
+    }
+
+    // Without a hot book list, as on the first deploy, the books of the first page stand in
+    private int replayRequests(List<String> hotBookIds, long deadlineMillis) {
+        List<String> bookIds = hotBookIds;
+        int failures = 0;
+        for (int i = 0; i < iterations && System.currentTimeMillis() < deadlineMillis; i++) {
+            try {
+                List<BookWebResponse> books = bookRestController.getAllBooks(WARM_UP_PAGE_SIZE, i % WARM_UP_PAGES, "id", null, null, null, "flat", null)
+                        .blockingGet()
+                        .getBody()
+                        .getData();
+                objectMapper.writeValueAsBytes(books);
+                if (bookIds.isEmpty())
+                    bookIds = books.stream()
+                            .map(BookWebResponse::getId)
+                            .collect(Collectors.toList());
+                if (!bookIds.isEmpty())
+                    objectMapper.writeValueAsBytes(bookRestController.getBookDetail(bookIds.get(i % bookIds.size()))
+                            .blockingGet()
+                            .getBody());
+            } catch (Exception e) {
+                failures++;
+                log.debug("Warm-up request failed", e);
+            }
+        }
+        return failures;
+    }
+}
@@ -1,36 +1,79 @@
 package com.axell.reactive.web;
 
+import com.axell.reactive.exception.InvalidRequestException;
 import com.axell.reactive.service.author.AuthorService;
 import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.response.AddAuthorsResponse;
+import com.axell.reactive.servicedto.response.AuthorDetailResponse;
+import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.web.format.WebMediaType;
+import com.axell.reactive.web.idempotency.IdempotencyStore;
 import com.axell.reactive.webdto.request.AddAuthorWebRequest;
+import com.axell.reactive.webdto.request.AddAuthorsWebRequest;
+import com.axell.reactive.webdto.response.AddAuthorsWebResponse;
+import com.axell.reactive.webdto.response.AuthorDetailWebResponse;
 import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
-import io.reactivex.schedulers.Schedulers;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(value = "/api/authors")
 public class AuthorRestController {
 
+    private static final String DELETED_COUNT_HEADER = "X-Deleted-Count";
+
     @Autowired
     private AuthorService authorService;
+    @Autowired
+    private Scheduler blockingScheduler;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    @Value("${web.deadline.authors.add-millis:5000}")
+    private long addAuthorDeadlineMillis;
+    @Value("${web.deadline.authors.get-detail-millis:2000}")
+    private long getAuthorDetailDeadlineMillis;
+    @Value("${web.deadline.authors.add-batch-millis:10000}")
+    private long addAuthorsDeadlineMillis;
+    @Value("${web.deadline.authors.delete-millis:30000}")
+    private long deleteAuthorDeadlineMillis;
+    @Value("${web.authors.batch.max-names:5000}")
+    private int batchMaxNames;
+    @Value("${web.authors.detail.max-limit:100}")
+    private int detailMaxLimit;
 
     @PostMapping(
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            },
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     )
-    public Single<ResponseEntity<BaseWebResponse>> addAuthor(@RequestBody AddAuthorWebRequest addAuthorWebRequest) {
-        return authorService.addAuthor(toAddAuthorRequest(addAuthorWebRequest))
-                .subscribeOn(Schedulers.io())
+    public Single<ResponseEntity<BaseWebResponse>> addAuthor(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody AddAuthorWebRequest addAuthorWebRequest) {
+        return idempotencyStore.execute("authors", idempotencyKey, String.valueOf(addAuthorWebRequest.getName()),
+                () -> authorService.addAuthor(toAddAuthorRequest(addAuthorWebRequest)).subscribeOn(blockingScheduler))
+                .timeout(addAuthorDeadlineMillis, TimeUnit.MILLISECONDS)
                 .map(s -> ResponseEntity
                         .created(URI.create("/api/authors/" + s))
                         .body(BaseWebResponse.successNoData()));
@@ -41,4 +84,112 @@ public class AuthorRestController {
         BeanUtils.copyProperties(addAuthorWebRequest, addAuthorRequest);
         return addAuthorRequest;
     }
+
+    @PostMapping(
+            value = "/batch",
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            },
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse<AddAuthorsWebResponse>>> addAuthors(@RequestBody AddAuthorsWebRequest addAuthorsWebRequest) {
+        List<String> names = addAuthorsWebRequest.getNames();
+        if (names == null || names.isEmpty() || names.size() > batchMaxNames
+                || names.stream().anyMatch(name -> name == null || name.trim().isEmpty()))
+            throw new InvalidRequestException("Between 1 and " + batchMaxNames + " non-blank author names can be added at once");
+        return authorService.addAuthors(new AddAuthorsRequest(names))
+                .subscribeOn(blockingScheduler)
+                .timeout(addAuthorsDeadlineMillis, TimeUnit.MILLISECONDS)
+                .map(addAuthorsResponse -> ResponseEntity.ok(BaseWebResponse.successWithData(toAddAuthorsWebResponse(addAuthorsResponse))));
+    }
+
+    private AddAuthorsWebResponse toAddAuthorsWebResponse(AddAuthorsResponse addAuthorsResponse) {
+        AddAuthorsWebResponse addAuthorsWebResponse = new AddAuthorsWebResponse();
+        addAuthorsWebResponse.setAuthorIds(addAuthorsResponse.getAuthorIds());
+        addAuthorsWebResponse.setCreatedCount(addAuthorsResponse.getCreatedCount());
+        return addAuthorsWebResponse;
+    }
+
+    // The service already runs each sub-query on the blocking scheduler, there is nothing left to offload here
+    @GetMapping(
+            value = "/{authorId}",
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse<AuthorDetailWebResponse>>> getAuthorDetail(@PathVariable(value = "authorId") String authorId,
+                                                                                          @RequestParam(value = "limit", defaultValue = "5") int limit) {
+        if (limit < 1 || limit > detailMaxLimit)
+            throw new InvalidRequestException("limit must be between 1 and " + detailMaxLimit);
+        return authorService.getAuthorDetail(authorId, limit)
+                .timeout(getAuthorDetailDeadlineMillis, TimeUnit.MILLISECONDS)
+                .map(authorDetailResponse -> ResponseEntity.ok(BaseWebResponse.successWithData(toAuthorDetailWebResponse(authorDetailResponse))));
+    }
+
+    private AuthorDetailWebResponse toAuthorDetailWebResponse(AuthorDetailResponse authorDetailResponse) {
+        AuthorDetailWebResponse authorDetailWebResponse = new AuthorDetailWebResponse();
+        authorDetailWebResponse.setId(authorDetailResponse.getId());
+        authorDetailWebResponse.setName(authorDetailResponse.getName());
+        authorDetailWebResponse.setBookCount(authorDetailResponse.getBookCount());
+        authorDetailWebResponse.setBooks(authorDetailResponse.getBooks()
+                .stream()
+                .map(this::toBookWebResponse)
+                .collect(Collectors.toList()));
+        return authorDetailWebResponse;
+    }
+
+    // Chunks deleted before the deadline stay deleted, repeating the request deletes the rest
+    @DeleteMapping(
+            value = "/{authorId}/books",
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse>> deleteAuthorBooks(@PathVariable(value = "authorId") String authorId) {
+        return authorService.deleteAuthorBooks(authorId)
+                .subscribeOn(blockingScheduler)
+                .timeout(deleteAuthorDeadlineMillis, TimeUnit.MILLISECONDS)
+                .map(deletedBooks -> ResponseEntity.ok()
+                        .header(DELETED_COUNT_HEADER, String.valueOf(deletedBooks))
+                        .body(BaseWebResponse.successNoData()));
+    }
+
+    @DeleteMapping(
+            value = "/{authorId}",
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse>> deleteAuthor(@PathVariable(value = "authorId") String authorId,
+                                                                @RequestParam(value = "cascade", defaultValue = "false") boolean cascade) {
+        return authorService.deleteAuthor(authorId, cascade)
+                .subscribeOn(blockingScheduler)
+                .timeout(deleteAuthorDeadlineMillis, TimeUnit.MILLISECONDS)
+                .toSingle(() -> ResponseEntity.ok(BaseWebResponse.successNoData()));
+    }
+
+    private BookWebResponse toBookWebResponse(BookResponse bookResponse) {
+        BookWebResponse bookWebResponse = new BookWebResponse();
+        bookWebResponse.setId(bookResponse.getId());
+        bookWebResponse.setTitle(bookResponse.getTitle());
+        bookWebResponse.setAuthorName(bookResponse.getAuthorName());
+        return bookWebResponse;
+    }
 }
@@ -1,38 +1,105 @@
 package com.axell.reactive.web;
 
+import com.axell.reactive.diagnostics.RequestTrace;
+import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.exception.InvalidRequestException;
 import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.service.bookevent.BookEventService;
 import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookCursor;
+import com.axell.reactive.servicedto.request.BookField;
+import com.axell.reactive.servicedto.request.BookPageRequest;
+import com.axell.reactive.servicedto.request.BookSort;
 import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import com.axell.reactive.servicedto.response.BookEventResponse;
+import com.axell.reactive.servicedto.response.BookLookupResponse;
 import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.startup.HotBookTracker;
+import com.axell.reactive.web.format.WebMediaType;
+import com.axell.reactive.web.idempotency.IdempotencyStore;
 import com.axell.reactive.webdto.request.AddBookWebRequest;
+import com.axell.reactive.webdto.request.BookLookupWebRequest;
 import com.axell.reactive.webdto.request.UpdateBookWebRequest;
 import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookEventWebResponse;
+import com.axell.reactive.webdto.response.BookLookupWebResponse;
 import com.axell.reactive.webdto.response.BookWebResponse;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
-import io.reactivex.schedulers.Schedulers;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(value = "/api/books")
 public class BookRestController {
 
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private BookService bookService;
+    @Autowired
+    private BookEventService bookEventService;
+    @Autowired
+    private Scheduler blockingScheduler;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    @Autowired
+    private HotBookTracker hotBookTracker;
+    @Value("${web.deadline.books.add-millis:5000}")
+    private long addBookDeadlineMillis;
+    @Value("${web.deadline.books.update-millis:5000}")
+    private long updateBookDeadlineMillis;
+    @Value("${web.deadline.books.get-all-millis:3000}")
+    private long getAllBooksDeadlineMillis;
+    @Value("${web.deadline.books.get-detail-millis:2000}")
+    private long getBookDetailDeadlineMillis;
+    @Value("${web.deadline.books.delete-millis:5000}")
+    private long deleteBookDeadlineMillis;
+    @Value("${web.deadline.books.lookup-millis:3000}")
+    private long lookupBooksDeadlineMillis;
+    @Value("${web.books.lookup.max-ids:200}")
+    private int lookupMaxIds;
+    @Value("${web.books.list.max-limit:1000}")
+    private int listMaxLimit;
+    @Value("${web.books.list.max-offset:10000}")
+    private int listMaxOffset;
 
     @PostMapping(
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            },
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     ) public Single<ResponseEntity<BaseWebResponse>> addBook(
+        @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
         @RequestBody AddBookRequest addBookRequest) {
-        return bookService.addBook(addBookRequest).subscribeOn(Schedulers.io()).map(
+        return idempotencyStore.execute("books", idempotencyKey,
+                addBookRequest.getTitle() + "\n" + addBookRequest.getAuthorId(),
+                () -> bookService.addBook(addBookRequest).subscribeOn(blockingScheduler))
+            .timeout(addBookDeadlineMillis, TimeUnit.MILLISECONDS).map(
             s -> ResponseEntity.created(URI.create("/api/books/" + s))
                 .body(BaseWebResponse.successNoData()));
     }
@@ -45,13 +112,24 @@ public class BookRestController {
 
     @PutMapping(
             value = "/{bookId}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            },
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     )
     public Single<ResponseEntity<BaseWebResponse>> updateBook(@PathVariable(value = "bookId") String bookId,
                                                               @RequestBody UpdateBookWebRequest updateBookWebRequest) {
         return bookService.updateBook(toUpdateBookRequest(bookId, updateBookWebRequest))
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(blockingScheduler)
+                .timeout(updateBookDeadlineMillis, TimeUnit.MILLISECONDS)
                 .toSingle(() -> ResponseEntity.ok(BaseWebResponse.successNoData()));
     }
 
@@ -63,46 +141,257 @@ public class BookRestController {
     }
 
     @GetMapping(
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     )
     public Single<ResponseEntity<BaseWebResponse<List<BookWebResponse>>>> getAllBooks(@RequestParam(value = "limit", defaultValue = "5") int limit,
-                                                                                      @RequestParam(value = "page", defaultValue = "0") int page) {
-        return bookService.getAllBooks(limit, page)
-                .subscribeOn(Schedulers.io())
-                .map(bookResponses -> ResponseEntity.ok(BaseWebResponse.successWithData(toBookWebResponseList(bookResponses))));
+                                                                                      @RequestParam(value = "page", defaultValue = "0") int page,
+                                                                                      @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                                                      @RequestParam(value = "authorId", required = false) String authorId,
+                                                                                      @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                                                                      @RequestParam(value = "fields", required = false) List<String> fields,
+                                                                                      @RequestParam(value = "shape", defaultValue = "flat") String shape,
+                                                                                      @RequestParam(value = "after", required = false) String after) {
+        checkPage(limit, page);
+        BookSort bookSort = toBookSort(sort);
+        BookCursor afterCursor = after == null ? null : toBookCursor(after, bookSort);
+        Set<BookField> bookFields = toBookFields(fields);
+        return bookService.getAllBooks(new BookPageRequest(limit, page, bookSort, emptyToNull(authorId), emptyToNull(titlePrefix), bookFields, isNormalized(shape), afterCursor))
+                .subscribeOn(blockingScheduler)
+                .timeout(getAllBooksDeadlineMillis, TimeUnit.MILLISECONDS)
+                .map(bookPageResponse -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .header(TOTAL_COUNT_HEADER, String.valueOf(bookPageResponse.getTotalBooks()));
+                    if (bookPageResponse.getNextCursor() != null)
+                        response.header(NEXT_CURSOR_HEADER, toCursorToken(bookPageResponse.getNextCursor()));
+                    return response.body(BaseWebResponse.successWithData(
+                            RequestTrace.phase("web-mapping", () -> toBookWebResponseList(bookPageResponse.getBooks(), bookFields)),
+                            bookPageResponse.getAuthors()));
+                });
+    }
+
+    // An offset makes the database step over every book before the page, and every shard read (page + 1) * limit
+    // books, so offsets are capped. Deeper pages follow the cursors, which seek the sort index
+    private void checkPage(int limit, int page) {
+        if (limit < 1 || limit > listMaxLimit || page < 0 || (long) page * limit > listMaxOffset)
+            throw new InvalidRequestException("limit must be between 1 and " + listMaxLimit + ", page at least 0 and page * limit at most "
+                    + listMaxOffset + ", deeper pages are read with the after cursor");
+    }
+
+    // The token is the sort, id and sort key separated by line breaks, the sort key can hold any character and comes
+    // last. A missing sort key is a book without the sorted property
+    private String toCursorToken(BookCursor bookCursor) {
+        String cursor = bookCursor.getSort() + "\n" + bookCursor.getId()
+                + (bookCursor.getSortKey() == null ? "" : "\n" + bookCursor.getSortKey());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
     }
 
-    private List<BookWebResponse> toBookWebResponseList(List<BookResponse> bookResponseList) {
+    private BookCursor toBookCursor(String token, BookSort sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 3);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after is not a book list cursor");
+        }
+        if (parts.length < 2 || !sort.name().equals(parts[0]) || (sort == BookSort.ID && parts.length == 3))
+            throw new InvalidRequestException("after is not a cursor of a book list sorted by " + sort);
+        return new BookCursor(sort, parts.length == 3 ? parts[2] : null, parts[1]);
+    }
+
+    // A normalized list references authors by id and sends each author's name once
+    private boolean isNormalized(String shape) {
+        switch (shape) {
+            case "flat":
+                return false;
+            case "normalized":
+                return true;
+            default:
+                throw new InvalidRequestException("Book list shapes are flat and normalized");
+        }
+    }
+
+    private BookSort toBookSort(String sort) {
+        switch (sort) {
+            case "id":
+                return BookSort.ID;
+            case "title":
+                return BookSort.TITLE;
+            case "authorName":
+                return BookSort.AUTHOR_NAME;
+            default:
+                throw new InvalidRequestException("Books can be sorted by id, title or authorName");
+        }
+    }
+
+    // Without fields every field is sent
+    private Set<BookField> toBookFields(List<String> fields) {
+        if (fields == null || fields.isEmpty())
+            return EnumSet.allOf(BookField.class);
+        Set<BookField> bookFields = EnumSet.noneOf(BookField.class);
+        for (String field : fields) {
+            switch (field) {
+                case "id":
+                    bookFields.add(BookField.ID);
+                    break;
+                case "title":
+                    bookFields.add(BookField.TITLE);
+                    break;
+                case "authorName":
+                    bookFields.add(BookField.AUTHOR_NAME);
+                    break;
+                default:
+                    throw new InvalidRequestException("Book fields are id, title and authorName");
+            }
+        }
+        return bookFields;
+    }
+
+    private String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private List<BookWebResponse> toBookWebResponseList(List<BookResponse> bookResponseList, Set<BookField> bookFields) {
         return bookResponseList
                 .stream()
-                .map(this::toBookWebResponse)
+                .map(bookResponse -> toBookWebResponse(bookResponse, bookFields))
                 .collect(Collectors.toList());
     }
 
+    // Fields that were not requested stay null and are left out of the response
+    private BookWebResponse toBookWebResponse(BookResponse bookResponse, Set<BookField> bookFields) {
+        BookWebResponse bookWebResponse = new BookWebResponse();
+        if (bookFields.contains(BookField.ID))
+            bookWebResponse.setId(bookResponse.getId());
+        if (bookFields.contains(BookField.TITLE))
+            bookWebResponse.setTitle(bookResponse.getTitle());
+        if (bookFields.contains(BookField.AUTHOR_NAME)) {
+            bookWebResponse.setAuthorName(bookResponse.getAuthorName());
+            bookWebResponse.setAuthorId(bookResponse.getAuthorId());
+        }
+        return bookWebResponse;
+    }
+
+    // Called for every listed book, so the properties are copied directly instead of through BeanUtils
     private BookWebResponse toBookWebResponse(BookResponse bookResponse) {
         BookWebResponse bookWebResponse = new BookWebResponse();
-        BeanUtils.copyProperties(bookResponse, bookWebResponse);
+        bookWebResponse.setId(bookResponse.getId());
+        bookWebResponse.setTitle(bookResponse.getTitle());
+        bookWebResponse.setAuthorName(bookResponse.getAuthorName());
         return bookWebResponse;
     }
 
     @GetMapping(
             value = "/{bookId}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     )
     public Single<ResponseEntity<BaseWebResponse<BookWebResponse>>> getBookDetail(@PathVariable(value = "bookId") String bookId) {
         return bookService.getBookDetail(bookId)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(blockingScheduler)
+                .timeout(getBookDetailDeadlineMillis, TimeUnit.MILLISECONDS)
+                .doOnSuccess(bookResponse -> hotBookTracker.record(bookId))
                 .map(bookResponse -> ResponseEntity.ok(BaseWebResponse.successWithData(toBookWebResponse(bookResponse))));
     }
 
+    @GetMapping(
+            params = "ids",
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse<List<BookLookupWebResponse>>>> getBooks(@RequestParam(value = "ids") List<String> ids) {
+        return lookupBooks(ids);
+    }
+
+    // Same as GET with ids, for id sets that do not fit in a URL
+    @PostMapping(
+            value = "/lookup",
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            },
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
+    )
+    public Single<ResponseEntity<BaseWebResponse<List<BookLookupWebResponse>>>> lookupBooks(@RequestBody BookLookupWebRequest bookLookupWebRequest) {
+        return lookupBooks(bookLookupWebRequest.getIds());
+    }
+
+    private Single<ResponseEntity<BaseWebResponse<List<BookLookupWebResponse>>>> lookupBooks(List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > lookupMaxIds)
+            throw new InvalidRequestException("Between 1 and " + lookupMaxIds + " book ids can be looked up at once");
+        return bookService.getBooks(ids)
+                .subscribeOn(blockingScheduler)
+                .timeout(lookupBooksDeadlineMillis, TimeUnit.MILLISECONDS)
+                .map(bookLookupResponses -> ResponseEntity.ok(BaseWebResponse.successWithData(toBookLookupWebResponseList(bookLookupResponses))));
+    }
+
+    private List<BookLookupWebResponse> toBookLookupWebResponseList(List<BookLookupResponse> bookLookupResponseList) {
+        return bookLookupResponseList
+                .stream()
+                .map(this::toBookLookupWebResponse)
+                .collect(Collectors.toList());
+    }
+
+    private BookLookupWebResponse toBookLookupWebResponse(BookLookupResponse bookLookupResponse) {
+        BookLookupWebResponse bookLookupWebResponse = new BookLookupWebResponse();
+        bookLookupWebResponse.setId(bookLookupResponse.getId());
+        if (bookLookupResponse.getBook() == null)
+            bookLookupWebResponse.setErrorCode(ErrorCode.ENTITY_NOT_FOUND);
+        else
+            bookLookupWebResponse.setBook(toBookWebResponse(bookLookupResponse.getBook()));
+        return bookLookupWebResponse;
+    }
+
     @DeleteMapping(
             value = "/{bookId}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    WebMediaType.APPLICATION_SMILE_VALUE,
+                    WebMediaType.APPLICATION_CBOR_VALUE,
+                    WebMediaType.APPLICATION_PROTOBUF_VALUE
+            }
     )
     public Single<ResponseEntity<BaseWebResponse>> deleteBook(@PathVariable(value = "bookId") String bookId) {
         return bookService.deleteBook(bookId)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(blockingScheduler)
+                .timeout(deleteBookDeadlineMillis, TimeUnit.MILLISECONDS)
                 .toSingle(() -> ResponseEntity.ok(BaseWebResponse.successNoData()));
     }
 
+    @GetMapping(
+            value = "/events",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flowable<ServerSentEvent<BookEventWebResponse>> getBookEvents(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return bookEventService.getBookEvents(lastEventId)
+                .map(this::toBookEventServerSentEvent);
+    }
+
+    private ServerSentEvent<BookEventWebResponse> toBookEventServerSentEvent(BookEventResponse bookEventResponse) {
+        BookEventWebResponse bookEventWebResponse = new BookEventWebResponse();
+        BeanUtils.copyProperties(bookEventResponse, bookEventWebResponse);
+        return ServerSentEvent.builder(bookEventWebResponse)
+                .id(String.valueOf(bookEventResponse.getSequence()))
+                .event(bookEventResponse.getType().name())
+                .build();
+    }
+
 }
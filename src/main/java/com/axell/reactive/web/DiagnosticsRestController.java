@@ -0,0 +1,56 @@
+package com.axell.reactive.web;
+
+import com.axell.reactive.diagnostics.RequestTrace;
+import com.axell.reactive.diagnostics.SlowRequestLog;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.SlowRequestWebResponse;
+import com.axell.reactive.webdto.response.StatementWebResponse;
+import io.reactivex.Single;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Operator endpoints. They answer JSON only, their payloads are not part of the Protobuf schema.
+ */
+@RestController
+@RequestMapping(value = "/api/admin")
+public class DiagnosticsRestController {
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @GetMapping(value = "/slow-requests", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Single<ResponseEntity<BaseWebResponse<List<SlowRequestWebResponse>>>> getSlowRequests() {
+        return Single.fromCallable(() -> ResponseEntity.ok(BaseWebResponse.successWithData(slowRequestLog.getSlowRequests()
+                .stream()
+                .map(this::toSlowRequestWebResponse)
+                .collect(Collectors.toList()))));
+    }
+
+    private SlowRequestWebResponse toSlowRequestWebResponse(RequestTrace trace) {
+        SlowRequestWebResponse slowRequestWebResponse = new SlowRequestWebResponse();
+        slowRequestWebResponse.setId(trace.getId());
+        slowRequestWebResponse.setMethod(trace.getMethod());
+        slowRequestWebResponse.setPath(trace.getPath());
+        slowRequestWebResponse.setStartedAt(trace.getStartedAtMillis());
+        slowRequestWebResponse.setStatus(trace.getStatus());
+        slowRequestWebResponse.setTotalMillis(trace.getTotalMillis());
+        slowRequestWebResponse.setPhaseMillis(trace.getPhaseMillis());
+        slowRequestWebResponse.setStatementCount(trace.getStatementCount());
+        slowRequestWebResponse.setStatementCounts(trace.getStatementCounts());
+        slowRequestWebResponse.setStatementMillis(trace.getStatementMillis());
+        slowRequestWebResponse.setStatementRows(trace.getStatementRows());
+        slowRequestWebResponse.setStatements(trace.getStatements()
+                .stream()
+                .map(statement -> new StatementWebResponse(statement.getSql(), statement.getMillis(), statement.getRows()))
+                .collect(Collectors.toList()));
+        return slowRequestWebResponse;
+    }
+}
@@ -1,13 +1,20 @@
 package com.axell.reactive.web;
 
+import com.axell.reactive.exception.AuthorHasBooksException;
+import com.axell.reactive.exception.DuplicateAuthorException;
 import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.exception.IdempotencyKeyReusedException;
+import com.axell.reactive.exception.InvalidRequestException;
+import com.axell.reactive.exception.ServiceOverloadedException;
 import com.axell.reactive.webdto.response.BaseWebResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.concurrent.TimeoutException;
 
 @RestControllerAdvice
 public class ExceptionRestController {
@@ -15,4 +22,37 @@ public class ExceptionRestController {
     public ResponseEntity<BaseWebResponse> handleEntityNotFoundException() {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(BaseWebResponse.error(ErrorCode.ENTITY_NOT_FOUND));
     }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<BaseWebResponse> handleInvalidRequestException() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(BaseWebResponse.error(ErrorCode.INVALID_REQUEST));
+    }
+
+    // Another request added the same author concurrently, retrying resolves the existing one
+    @ExceptionHandler(DuplicateAuthorException.class)
+    public ResponseEntity<BaseWebResponse> handleDuplicateAuthorException() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(BaseWebResponse.error(ErrorCode.DUPLICATE_ENTITY));
+    }
+
+    @ExceptionHandler(AuthorHasBooksException.class)
+    public ResponseEntity<BaseWebResponse> handleAuthorHasBooksException() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(BaseWebResponse.error(ErrorCode.AUTHOR_HAS_BOOKS));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<BaseWebResponse> handleIdempotencyKeyReusedException() {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(BaseWebResponse.error(ErrorCode.IDEMPOTENCY_KEY_REUSED));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<BaseWebResponse> handleServiceOverloadedException() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(BaseWebResponse.error(ErrorCode.SERVICE_OVERLOADED));
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<BaseWebResponse> handleTimeoutException() {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(BaseWebResponse.error(ErrorCode.DEADLINE_EXCEEDED));
+    }
 }
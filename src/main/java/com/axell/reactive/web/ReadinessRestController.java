@@ -0,0 +1,30 @@
+package com.axell.reactive.web;
+
+import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.startup.WarmUpListener;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Readiness probe for the load balancer, 503 until the application started and finished its warm-up.
+ */
+@RestController
+@RequestMapping(value = "/api/admin")
+public class ReadinessRestController {
+
+    @Autowired
+    private WarmUpListener warmUpListener;
+
+    @GetMapping(value = "/ready", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BaseWebResponse> getReadiness() {
+        if (!warmUpListener.isReady())
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(BaseWebResponse.error(ErrorCode.NOT_READY));
+        return ResponseEntity.ok(BaseWebResponse.successNoData());
+    }
+}
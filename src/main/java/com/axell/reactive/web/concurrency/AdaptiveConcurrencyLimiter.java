@@ -0,0 +1,81 @@
+package com.axell.reactive.web.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient-based concurrency limiter. The limit follows the ratio between the long-term average latency and the
+ * latency of each completed request: it grows by roughly sqrt(limit) while latency stays flat and shrinks as soon
+ * as requests start queueing. Writes may only use {@code writeShare} of the limit so reads keep being admitted
+ * when the service is saturated.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int LONG_RTT_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double writeShare;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+    private long sampleCount;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double writeShare) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.writeShare = writeShare;
+    }
+
+    public boolean tryAcquire(boolean write) {
+        int allowed = write ? Math.max(1, (int) (limit * writeShare)) : (int) limit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed)
+                return false;
+            if (inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    public void release(long rttNanos) {
+        int inFlightBeforeRelease = inFlight.getAndDecrement();
+        onSample(Math.max(1, rttNanos), inFlightBeforeRelease);
+    }
+
+    public void abort() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightBeforeRelease) {
+        if (sampleCount < LONG_RTT_WINDOW) {
+            sampleCount++;
+            longRttNanos += (rttNanos - longRttNanos) / sampleCount;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_RTT_WINDOW;
+        }
+        if (longRttNanos / rttNanos > 2)
+            longRttNanos *= 0.95;
+
+        // Requests completing far below the limit say nothing about how much more concurrency we could take
+        if (inFlightBeforeRelease < limit / 2)
+            return;
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,34 @@
+package com.axell.reactive.web.concurrency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ConcurrencyLimitConfiguration implements WebMvcConfigurer {
+
+    @Value("${web.concurrency-limit.enabled:true}")
+    private boolean enabled;
+    @Value("${web.concurrency-limit.initial-limit:20}")
+    private int initialLimit;
+    @Value("${web.concurrency-limit.min-limit:4}")
+    private int minLimit;
+    @Value("${web.concurrency-limit.max-limit:200}")
+    private int maxLimit;
+    @Value("${web.concurrency-limit.endpoint-max-limit:100}")
+    private int endpointMaxLimit;
+    @Value("${web.concurrency-limit.write-share:0.7}")
+    private double writeShare;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled)
+            return;
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, writeShare),
+                () -> new AdaptiveConcurrencyLimiter(initialLimit, minLimit, endpointMaxLimit, writeShare)))
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/books/events", "/api/admin/**");
+    }
+}
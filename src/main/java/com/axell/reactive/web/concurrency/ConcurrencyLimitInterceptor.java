@@ -0,0 +1,111 @@
+package com.axell.reactive.web.concurrency;
+
+import com.axell.reactive.exception.ServiceOverloadedException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Admits a request only when both its endpoint limiter and the global limiter have room. The permit is held until
+ * the async response completes, so the measured latency covers the time spent on the service schedulers.
+ */
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".PERMIT";
+
+    private final AdaptiveConcurrencyLimiter globalLimiter;
+    private final Supplier<AdaptiveConcurrencyLimiter> endpointLimiterFactory;
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> endpointLimiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimiter globalLimiter,
+                                       Supplier<AdaptiveConcurrencyLimiter> endpointLimiterFactory) {
+        this.globalLimiter = globalLimiter;
+        this.endpointLimiterFactory = endpointLimiterFactory;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod))
+            return true;
+
+        String endpoint = toEndpoint((HandlerMethod) handler);
+        boolean write = isWrite(request.getMethod());
+        AdaptiveConcurrencyLimiter endpointLimiter = endpointLimiters.computeIfAbsent(endpoint, key -> endpointLimiterFactory.get());
+        if (!endpointLimiter.tryAcquire(write))
+            throw new ServiceOverloadedException(endpoint);
+        if (!globalLimiter.tryAcquire(write)) {
+            endpointLimiter.abort();
+            throw new ServiceOverloadedException(endpoint);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(endpointLimiter));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null)
+            request.getAsyncContext().addListener(permit);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null && request.getDispatcherType() == DispatcherType.REQUEST)
+            permit.release();
+    }
+
+    private String toEndpoint(HandlerMethod handlerMethod) {
+        return handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+    }
+
+    private boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    private class Permit implements AsyncListener {
+        private final AdaptiveConcurrencyLimiter endpointLimiter;
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(AdaptiveConcurrencyLimiter endpointLimiter) {
+            this.endpointLimiter = endpointLimiter;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                long rttNanos = System.nanoTime() - acquiredAt;
+                endpointLimiter.release(rttNanos);
+                globalLimiter.release(rttNanos);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
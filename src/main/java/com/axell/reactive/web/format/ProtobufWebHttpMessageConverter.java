@@ -0,0 +1,167 @@
+package com.axell.reactive.web.format;
+
+import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.webdto.protobuf.BookProtos;
+import com.axell.reactive.webdto.request.AddAuthorWebRequest;
+import com.axell.reactive.webdto.request.AddAuthorsWebRequest;
+import com.axell.reactive.webdto.request.BookLookupWebRequest;
+import com.axell.reactive.webdto.request.UpdateBookWebRequest;
+import com.axell.reactive.webdto.response.AddAuthorsWebResponse;
+import com.axell.reactive.webdto.response.AuthorDetailWebResponse;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookLookupWebResponse;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the REST API's request and response classes as the Protobuf messages of {@code book.proto}.
+ * Only the data types the schema knows are supported, anything else fails instead of being silently dropped.
+ */
+public class ProtobufWebHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public ProtobufWebHttpMessageConverter() {
+        super(WebMediaType.APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return canReadType(clazz) || canWriteType(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return canReadType(clazz) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return canWriteType(clazz) && canWrite(mediaType);
+    }
+
+    private boolean canReadType(Class<?> clazz) {
+        return clazz == AddBookRequest.class || clazz == UpdateBookWebRequest.class || clazz == AddAuthorWebRequest.class
+                || clazz == BookLookupWebRequest.class || clazz == AddAuthorsWebRequest.class;
+    }
+
+    private boolean canWriteType(Class<?> clazz) {
+        return BaseWebResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        InputStream body = inputMessage.getBody();
+        if (clazz == AddBookRequest.class) {
+            BookProtos.AddBookRequest addBookRequest = BookProtos.AddBookRequest.parseFrom(body);
+            return new AddBookRequest(addBookRequest.getTitle(), addBookRequest.getAuthorId());
+        }
+        if (clazz == UpdateBookWebRequest.class) {
+            UpdateBookWebRequest updateBookWebRequest = new UpdateBookWebRequest();
+            updateBookWebRequest.setTitle(BookProtos.UpdateBookRequest.parseFrom(body).getTitle());
+            return updateBookWebRequest;
+        }
+        if (clazz == BookLookupWebRequest.class)
+            return new BookLookupWebRequest(new ArrayList<>(BookProtos.BookLookupRequest.parseFrom(body).getIdsList()));
+        if (clazz == AddAuthorsWebRequest.class)
+            return new AddAuthorsWebRequest(new ArrayList<>(BookProtos.AddAuthorsRequest.parseFrom(body).getNamesList()));
+        return new AddAuthorWebRequest(BookProtos.AddAuthorRequest.parseFrom(body).getName());
+    }
+
+    @Override
+    protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+        toWebResponse((BaseWebResponse<?>) object).writeTo(outputMessage.getBody());
+    }
+
+    private BookProtos.WebResponse toWebResponse(BaseWebResponse<?> baseWebResponse) {
+        BookProtos.WebResponse.Builder webResponse = BookProtos.WebResponse.newBuilder();
+        if (baseWebResponse.getErrorCode() != null)
+            webResponse.setErrorCode(baseWebResponse.getErrorCode().name());
+        if (baseWebResponse.getAuthors() != null)
+            webResponse.putAllAuthors(baseWebResponse.getAuthors());
+        Object data = baseWebResponse.getData();
+        if (data instanceof BookWebResponse) {
+            webResponse.setBook(toBook((BookWebResponse) data));
+        } else if (data instanceof AuthorDetailWebResponse) {
+            webResponse.setAuthorDetail(toAuthorDetail((AuthorDetailWebResponse) data));
+        } else if (data instanceof AddAuthorsWebResponse) {
+            AddAuthorsWebResponse addAuthorsWebResponse = (AddAuthorsWebResponse) data;
+            webResponse.setAddAuthorsResult(BookProtos.AddAuthorsResult.newBuilder()
+                    .putAllAuthorIds(addAuthorsWebResponse.getAuthorIds())
+                    .setCreatedCount(addAuthorsWebResponse.getCreatedCount()));
+        } else if (data instanceof List) {
+            List<?> items = (List<?>) data;
+            if (!items.isEmpty() && items.get(0) instanceof BookLookupWebResponse)
+                webResponse.setBookLookups(toBookLookupList(items));
+            else
+                webResponse.setBooks(toBookList(items));
+        } else if (data != null) {
+            throw new HttpMessageNotWritableException("No Protobuf schema for " + data.getClass().getName());
+        }
+        return webResponse.build();
+    }
+
+    private BookProtos.BookList toBookList(List<?> books) {
+        BookProtos.BookList.Builder bookList = BookProtos.BookList.newBuilder();
+        for (Object book : books) {
+            if (!(book instanceof BookWebResponse))
+                throw new HttpMessageNotWritableException("No Protobuf schema for " + book.getClass().getName());
+            bookList.addBooks(toBook((BookWebResponse) book));
+        }
+        return bookList.build();
+    }
+
+    private BookProtos.BookLookupList toBookLookupList(List<?> bookLookups) {
+        BookProtos.BookLookupList.Builder bookLookupList = BookProtos.BookLookupList.newBuilder();
+        for (Object bookLookup : bookLookups) {
+            if (!(bookLookup instanceof BookLookupWebResponse))
+                throw new HttpMessageNotWritableException("No Protobuf schema for " + bookLookup.getClass().getName());
+            bookLookupList.addLookups(toBookLookup((BookLookupWebResponse) bookLookup));
+        }
+        return bookLookupList.build();
+    }
+
+    private BookProtos.BookLookup toBookLookup(BookLookupWebResponse bookLookupWebResponse) {
+        BookProtos.BookLookup.Builder bookLookup = BookProtos.BookLookup.newBuilder();
+        if (bookLookupWebResponse.getId() != null)
+            bookLookup.setId(bookLookupWebResponse.getId());
+        if (bookLookupWebResponse.getErrorCode() != null)
+            bookLookup.setErrorCode(bookLookupWebResponse.getErrorCode().name());
+        if (bookLookupWebResponse.getBook() != null)
+            bookLookup.setBook(toBook(bookLookupWebResponse.getBook()));
+        return bookLookup.build();
+    }
+
+    private BookProtos.AuthorDetail toAuthorDetail(AuthorDetailWebResponse authorDetailWebResponse) {
+        BookProtos.AuthorDetail.Builder authorDetail = BookProtos.AuthorDetail.newBuilder()
+                .setBookCount(authorDetailWebResponse.getBookCount());
+        if (authorDetailWebResponse.getId() != null)
+            authorDetail.setId(authorDetailWebResponse.getId());
+        if (authorDetailWebResponse.getName() != null)
+            authorDetail.setName(authorDetailWebResponse.getName());
+        for (BookWebResponse book : authorDetailWebResponse.getBooks())
+            authorDetail.addBooks(toBook(book));
+        return authorDetail.build();
+    }
+
+    // Protobuf strings cannot be null, a missing value is written as the default empty string
+    private BookProtos.Book toBook(BookWebResponse bookWebResponse) {
+        BookProtos.Book.Builder book = BookProtos.Book.newBuilder();
+        if (bookWebResponse.getId() != null)
+            book.setId(bookWebResponse.getId());
+        if (bookWebResponse.getTitle() != null)
+            book.setTitle(bookWebResponse.getTitle());
+        if (bookWebResponse.getAuthorName() != null)
+            book.setAuthorName(bookWebResponse.getAuthorName());
+        if (bookWebResponse.getAuthorId() != null)
+            book.setAuthorId(bookWebResponse.getAuthorId());
+        return book.build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.axell.reactive.web.format;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Binary media types the REST API negotiates besides JSON, Spring 5.1 has no constants for them.
+ */
+public final class WebMediaType {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    private WebMediaType() {
+    }
+}
@@ -0,0 +1,43 @@
+package com.axell.reactive.web.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Message converters for the binary formats. Spring MVC would add Smile and CBOR converters on its own once the
+ * Jackson data formats are on the classpath, but with a bare object mapper; these are configured by the same
+ * builder as the JSON one, so every format serializes identically.
+ */
+@Configuration
+public class WebMediaTypeConfiguration implements WebMvcConfigurer {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        ObjectMapper objectMapper = new ObjectMapper(new SmileFactory());
+        jackson2ObjectMapperBuilder.configure(objectMapper);
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper);
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        jackson2ObjectMapperBuilder.configure(objectMapper);
+        return new MappingJackson2CborHttpMessageConverter(objectMapper);
+    }
+
+    // Converter beans that replace no default are put first, Protobuf is appended instead so JSON stays the default
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufWebHttpMessageConverter());
+    }
+}
@@ -0,0 +1,97 @@
+package com.axell.reactive.web.idempotency;
+
+import com.axell.reactive.exception.IdempotencyKeyReusedException;
+import com.axell.reactive.exception.InvalidRequestException;
+import io.reactivex.Single;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of writes sent with an {@value #IDEMPOTENCY_KEY_HEADER} header for
+ * {@code web.idempotency.ttl-millis}. A retry with the same key gets the original result without writing again, a
+ * retry that arrives while the original write is still running waits for it. The write keeps running when the client
+ * that started it gives up, so its retry finds the result. Failed writes are forgotten and can be retried.
+ * <p>
+ * At most {@code web.idempotency.max-keys} keys are kept, the oldest are dropped first. Keys are only known to the
+ * instance that received them.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Value("${web.idempotency.ttl-millis:3600000}")
+    private long ttlMillis;
+    @Value("${web.idempotency.max-keys:10000}")
+    private int maxKeys;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Deque<Entry> entriesInInsertionOrder = new ArrayDeque<>();
+
+    /**
+     * @param fingerprint identifies the request, a key sent again with another fingerprint fails with
+     *                    {@link IdempotencyKeyReusedException}
+     * @param write       runs only for the first request with the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Single<T> execute(String scope, String idempotencyKey, String fingerprint, Supplier<Single<T>> write) {
+        if (idempotencyKey == null)
+            return write.get();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH)
+            return Single.error(new InvalidRequestException("Idempotency keys must have 1 to " + MAX_KEY_LENGTH + " characters"));
+
+        String key = scope + ":" + idempotencyKey;
+        long now = System.currentTimeMillis();
+        Entry[] createdEntry = new Entry[1];
+        Entry entry = entries.compute(key, (entryKey, existingEntry) -> {
+            if (existingEntry != null && !existingEntry.isExpired(now))
+                return existingEntry;
+            Entry newEntry = new Entry(entryKey, fingerprint, now);
+            newEntry.result = write.get()
+                    .doOnError(throwable -> entries.remove(entryKey, newEntry))
+                    .cache();
+            createdEntry[0] = newEntry;
+            return newEntry;
+        });
+        if (createdEntry[0] != null)
+            remember(createdEntry[0], now);
+        if (!entry.fingerprint.equals(fingerprint))
+            return Single.error(new IdempotencyKeyReusedException(idempotencyKey));
+        return (Single<T>) entry.result;
+    }
+
+    // Entries that expired, failed or were replaced are dropped once they reach the head
+    private synchronized void remember(Entry entry, long now) {
+        entriesInInsertionOrder.addLast(entry);
+        Entry oldestEntry;
+        while ((oldestEntry = entriesInInsertionOrder.peekFirst()) != null && (entriesInInsertionOrder.size() > maxKeys
+                || oldestEntry.isExpired(now) || entries.get(oldestEntry.key) != oldestEntry)) {
+            entriesInInsertionOrder.removeFirst();
+            entries.remove(oldestEntry.key, oldestEntry);
+        }
+    }
+
+    private class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAtMillis;
+        private Single<?> result;
+
+        private Entry(String key, String fingerprint, long createdAtMillis) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        private boolean isExpired(long now) {
+            return now - createdAtMillis >= ttlMillis;
+        }
+    }
+}
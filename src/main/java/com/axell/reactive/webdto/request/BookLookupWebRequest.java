@@ -0,0 +1,16 @@
+package com.axell.reactive.webdto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupWebRequest {
+    private List<String> ids;
+}
@@ -0,0 +1,15 @@
+package com.axell.reactive.webdto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class AddAuthorsWebResponse {
+    private Map<String, String> authorIds;
+    private int createdCount;
+}
@@ -0,0 +1,17 @@
+package com.axell.reactive.webdto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class AuthorDetailWebResponse {
+    private String id;
+    private String name;
+    private long bookCount;
+    private List<BookWebResponse> books;
+}
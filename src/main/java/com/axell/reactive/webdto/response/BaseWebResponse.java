@@ -1,18 +1,39 @@
 package com.axell.reactive.webdto.response;
 
 import com.axell.reactive.exception.ErrorCode;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Response envelope. It has no setters, so the no-data and error envelopes, which never differ between requests,
+ * are created once and shared. Normalized book lists map the ids their books reference to the author names in
+ * {@code authors}, which is left out of other responses.
+ */
 @Getter
 @Builder
 public class BaseWebResponse<T> {
+    private static final BaseWebResponse SUCCESS_NO_DATA = BaseWebResponse.builder()
+            .build();
+    private static final Map<ErrorCode, BaseWebResponse> ERRORS = new EnumMap<>(ErrorCode.class);
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values())
+            ERRORS.put(errorCode, BaseWebResponse.builder()
+                    .errorCode(errorCode)
+                    .build());
+    }
+
     private ErrorCode errorCode;
     private T data;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> authors;
 
     public static BaseWebResponse successNoData() {
-        return BaseWebResponse.builder()
-                .build();
+        return SUCCESS_NO_DATA;
     }
 
     public static <T> BaseWebResponse<T> successWithData(T data) {
@@ -21,9 +42,14 @@ public class BaseWebResponse<T> {
                 .build();
     }
 
-    public static BaseWebResponse error(ErrorCode errorCode) {
-        return BaseWebResponse.builder()
-                .errorCode(errorCode)
+    public static <T> BaseWebResponse<T> successWithData(T data, Map<String, String> authors) {
+        return BaseWebResponse.<T>builder()
+                .data(data)
+                .authors(authors)
                 .build();
     }
+
+    public static BaseWebResponse error(ErrorCode errorCode) {
+        return ERRORS.get(errorCode);
+    }
 }
@@ -0,0 +1,16 @@
+package com.axell.reactive.webdto.response;
+
+import com.axell.reactive.servicedto.response.BookEventType;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BookEventWebResponse {
+    private long sequence;
+    private BookEventType type;
+    private String bookId;
+    private String title;
+}
@@ -0,0 +1,15 @@
+package com.axell.reactive.webdto.response;
+
+import com.axell.reactive.exception.ErrorCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BookLookupWebResponse {
+    private String id;
+    private ErrorCode errorCode;
+    private BookWebResponse book;
+}
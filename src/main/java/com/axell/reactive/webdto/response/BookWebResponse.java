@@ -1,5 +1,6 @@
 package com.axell.reactive.webdto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -7,8 +8,10 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class BookWebResponse {
     private String id;
     private String title;
     private String authorName;
+    private String authorId;
 }
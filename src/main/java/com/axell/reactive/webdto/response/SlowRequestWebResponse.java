@@ -0,0 +1,26 @@
+package com.axell.reactive.webdto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class SlowRequestWebResponse {
+    private long id;
+    private String method;
+    private String path;
+    private long startedAt;
+    private int status;
+    private double totalMillis;
+    private Map<String, Double> phaseMillis;
+    private int statementCount;
+    private Map<String, Integer> statementCounts;
+    private double statementMillis;
+    private long statementRows;
+    private List<StatementWebResponse> statements;
+}
@@ -0,0 +1,16 @@
+package com.axell.reactive.webdto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementWebResponse {
+    private String sql;
+    private double millis;
+    private long rows;
+}
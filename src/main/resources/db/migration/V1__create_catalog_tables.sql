@@ -0,0 +1,20 @@
+CREATE TABLE authors (
+    id VARCHAR(255) NOT NULL,
+    name VARCHAR(255),
+    normalized_name VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_authors_normalized_name UNIQUE (normalized_name)
+);
+
+CREATE TABLE books (
+    id VARCHAR(255) NOT NULL,
+    title VARCHAR(255),
+    author_id VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE catalog_counters (
+    counter_key VARCHAR(255) NOT NULL,
+    counter_value BIGINT NOT NULL,
+    PRIMARY KEY (counter_key)
+);
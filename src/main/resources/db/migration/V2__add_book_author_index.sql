@@ -0,0 +1,6 @@
+-- Finds an author's books (findAllByAuthorId) and orders the per-author book counts. Created before the foreign key,
+-- which reuses it instead of creating an index of its own. H2 cannot skip sorting an author's page by id with an
+-- (author_id, id) index, the column alone serves the same plans.
+CREATE INDEX idx_books_author_id ON books (author_id);
+
+ALTER TABLE books ADD CONSTRAINT fk_books_author FOREIGN KEY (author_id) REFERENCES authors (id);
@@ -0,0 +1,37 @@
+package com.axell.reactive.configuration;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void NewVirtualThreadPerTaskExecutor_Supported_RunTaskOnVirtualThread() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        ExecutorService executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        Boolean virtual = executorService.submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(5, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        assertTrue(virtual);
+    }
+
+    @Test
+    public void NewVirtualThreadPerTaskExecutor_NotSupported_ThrowIllegalStateException() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        try {
+            VirtualThreads.newVirtualThreadPerTaskExecutor();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("JDK 21"));
+        }
+    }
+}
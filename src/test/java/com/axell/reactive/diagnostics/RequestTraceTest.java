@@ -0,0 +1,40 @@
+package com.axell.reactive.diagnostics;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RequestTraceTest {
+
+    @Test
+    public void Propagate_TaskRunOnOtherThread_ContinueTraceAndRecordWait() throws Exception {
+        RequestTrace trace = new RequestTrace(1, "GET", "/api/books");
+        AtomicReference<RequestTrace> traceOnOtherThread = new AtomicReference<>();
+        Runnable task;
+        RequestTrace previousTrace = RequestTrace.attach(trace);
+        try {
+            task = RequestTrace.propagate(() -> traceOnOtherThread.set(RequestTrace.phase("work", RequestTrace::current)));
+        } finally {
+            RequestTrace.restore(previousTrace);
+        }
+
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        assertSame(trace, traceOnOtherThread.get());
+        assertTrue(trace.getPhaseMillis().containsKey("scheduler-wait"));
+        assertTrue(trace.getPhaseMillis().containsKey("work"));
+    }
+
+    @Test
+    public void Propagate_NoTrace_ReturnTaskUnchanged() {
+        Runnable task = () -> {
+        };
+
+        assertSame(task, RequestTrace.propagate(task));
+        assertEquals("result", RequestTrace.phase("work", () -> "result"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.axell.reactive.diagnostics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Traces a real book list request through the filter, the blocking scheduler and the datasource.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"diagnostics.enabled=true", "diagnostics.slow-requests.threshold-millis=0"})
+public class SlowRequestDiagnosticsTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    public void GetAllBooks_OverThreshold_ListedWithPhasesAndStatements() {
+        testRestTemplate.getForEntity("/api/books?limit=5&page=0", String.class);
+
+        JsonNode slowRequests = testRestTemplate.getForObject("/api/admin/slow-requests", JsonNode.class).get("data");
+        JsonNode bookListRequest = null;
+        for (JsonNode slowRequest : slowRequests)
+            if (slowRequest.get("path").asText().equals("/api/books"))
+                bookListRequest = slowRequest;
+
+        assertNotNull(bookListRequest);
+        assertEquals(200, bookListRequest.get("status").asInt());
+        JsonNode phaseMillis = bookListRequest.get("phaseMillis");
+        for (String phase : new String[]{"request-thread", "scheduler-wait", "db-transaction", "service-mapping", "web-mapping", "response-write"})
+            assertTrue(phase, phaseMillis.has(phase));
+        assertTrue(bookListRequest.get("statementCount").asInt() > 0);
+        assertTrue(bookListRequest.get("statements").get(0).get("sql").asText().toLowerCase().contains("books"));
+    }
+}
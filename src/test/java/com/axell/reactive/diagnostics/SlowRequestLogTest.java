@@ -0,0 +1,38 @@
+package com.axell.reactive.diagnostics;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SlowRequestLogTest {
+
+    private final SlowRequestLog slowRequestLog = new SlowRequestLog();
+
+    @Test
+    public void Finish_OverThreshold_KeepNewestRequestsUpToHistorySize() {
+        ReflectionTestUtils.setField(slowRequestLog, "thresholdMillis", 0);
+        ReflectionTestUtils.setField(slowRequestLog, "historySize", 2);
+
+        for (int i = 0; i < 3; i++)
+            slowRequestLog.finish(slowRequestLog.start("GET", "/api/books/" + i), 200);
+
+        List<RequestTrace> slowRequests = slowRequestLog.getSlowRequests();
+        assertEquals(2, slowRequests.size());
+        assertEquals("/api/books/2", slowRequests.get(0).getPath());
+        assertEquals("/api/books/1", slowRequests.get(1).getPath());
+        assertEquals(200, slowRequests.get(0).getStatus());
+    }
+
+    @Test
+    public void Finish_UnderThreshold_KeepNothing() {
+        ReflectionTestUtils.setField(slowRequestLog, "thresholdMillis", 60000);
+        ReflectionTestUtils.setField(slowRequestLog, "historySize", 2);
+
+        slowRequestLog.finish(slowRequestLog.start("GET", "/api/books"), 200);
+
+        assertTrue(slowRequestLog.getSlowRequests().isEmpty());
+    }
+}
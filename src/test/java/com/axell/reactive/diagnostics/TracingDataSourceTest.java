@@ -0,0 +1,57 @@
+package com.axell.reactive.diagnostics;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TracingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL("jdbc:h2:mem:tracing-data-source-test;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(new TracingDataSource(h2DataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS traced (id INT PRIMARY KEY)");
+        jdbcTemplate.update("DELETE FROM traced");
+    }
+
+    @Test
+    public void Execute_TraceAttached_RecordStatementsWithTheirRows() {
+        RequestTrace trace = new RequestTrace(1, "GET", "/");
+        RequestTrace previousTrace = RequestTrace.attach(trace);
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO traced (id) VALUES (?)", Arrays.asList(
+                    new Object[]{1}, new Object[]{2}, new Object[]{3}));
+            List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM traced WHERE id > ?", Integer.class, 1);
+            assertEquals(2, ids.size());
+        } finally {
+            RequestTrace.restore(previousTrace);
+        }
+
+        assertEquals(2, trace.getStatementCount());
+        assertEquals(5, trace.getStatementRows());
+        List<RequestTrace.StatementTrace> statements = trace.getStatements();
+        assertEquals("INSERT INTO traced (id) VALUES (?)", statements.get(0).getSql());
+        assertEquals(3, statements.get(0).getRows());
+        assertEquals("SELECT id FROM traced WHERE id > ?", statements.get(1).getSql());
+        assertEquals(2, statements.get(1).getRows());
+    }
+
+    @Test
+    public void Execute_NoTrace_RecordNothing() {
+        RequestTrace trace = new RequestTrace(1, "GET", "/");
+
+        jdbcTemplate.update("INSERT INTO traced (id) VALUES (?)", 1);
+
+        assertEquals(0, trace.getStatementCount());
+        assertNull(RequestTrace.current());
+    }
+}
@@ -0,0 +1,48 @@
+package com.axell.reactive.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures bytes allocated per invocation on the calling thread, using the HotSpot per-thread allocation counter.
+ * Each task is warmed up first so that the numbers reflect JIT-compiled code.
+ */
+public class AllocationMeter {
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 20_000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Map<String, Long> bytesPerInvocation = new LinkedHashMap<>();
+
+    public long measure(String name, Task task) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            task.run();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+            task.run();
+        long allocated = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / MEASURED_ITERATIONS;
+        bytesPerInvocation.put(name, allocated);
+        return allocated;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintStream report = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            report.println("case,bytes_per_invocation");
+            bytesPerInvocation.forEach((name, bytes) -> report.println(String.format(Locale.ROOT, "%s,%d", name, bytes)));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.axell.reactive.loadtest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a mixed workload against the real stack on a random port and writes the latency report to
+ * {@code loadtest.report-dir}. Excluded from the regular build, run it with {@code mvn -Pload-test test}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class BookCatalogLoadTest {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void MixedWorkload_ConstantArrivalRate_WriteLatencyReport() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        CatalogSeeder.SeededCatalog catalog = new CatalogSeeder(jdbcTemplate, settings).seed();
+        Workload workload = new Workload(settings, catalog);
+        OpenModelLoadGenerator loadGenerator = new OpenModelLoadGenerator(
+                new CatalogClient("http://localhost:" + port, workload, settings.getPageSize()), workload, settings.getRatePerSecond());
+
+        loadGenerator.run(settings.getWarmupSeconds());
+        LatencyRecorder latencyRecorder = loadGenerator.run(settings.getDurationSeconds());
+        new LatencyReport(latencyRecorder).write(settings.getReportDirectory());
+
+        assertTrue(latencyRecorder.getTotalCount() > 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.axell.reactive.loadtest;
+
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.service.booksnapshot.BookSnapshotService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads random book list pages through {@link BookService#getAllBooks} once from the database and once from the
+ * book snapshot, and writes bytes allocated and mean time per page to {@code book-snapshot.csv}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"catalog.snapshot.enabled=false", "catalog.snapshot.refresh-interval-millis=3600000"}
+)
+public class BookSnapshotBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int TIMED_PAGES = 20_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookSnapshotService bookSnapshotService;
+
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+    private Object sink;
+
+    @Test
+    public void BookPage_DatabaseVersusSnapshot_WriteAllocationAndTimeReport() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        int pages = new CatalogSeeder(jdbcTemplate, settings).seed().getBookIds().size() / PAGE_SIZE;
+        Random random = new Random(settings.getSeed());
+        Path report = settings.getReportDirectory().resolve("book-snapshot.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+            out.println("source,page_size,bytes_per_page,us_per_page");
+            long databaseBytes = measure(out, "database", random, pages);
+
+            Object bookSnapshotServiceTarget = AopTestUtils.getTargetObject(bookSnapshotService);
+            ReflectionTestUtils.setField(bookSnapshotServiceTarget, "enabled", true);
+            bookSnapshotService.refresh();
+            long snapshotBytes = measure(out, "snapshot", random, pages);
+
+            assertTrue(snapshotBytes < databaseBytes);
+        }
+    }
+
+    private long measure(PrintStream out, String source, Random random, int pages) throws Exception {
+        AllocationMeter.Task readPage = () -> sink = bookService.getAllBooks(PAGE_SIZE, random.nextInt(pages)).blockingGet();
+        long bytesPerPage = allocationMeter.measure(source, readPage);
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_PAGES; i++)
+            readPage.run();
+        double microsPerPage = (System.nanoTime() - start) / 1000.0 / TIMED_PAGES;
+        out.println(String.format(Locale.ROOT, "%s,%d,%d,%.2f", source, PAGE_SIZE, bytesPerPage, microsPerPage));
+        return bytesPerPage;
+    }
+}
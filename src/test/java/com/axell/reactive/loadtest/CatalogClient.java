@@ -0,0 +1,86 @@
+package com.axell.reactive.loadtest;
+
+import com.axell.reactive.webdto.request.AddAuthorWebRequest;
+import com.axell.reactive.webdto.request.UpdateBookWebRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Blocking HTTP client for the catalog API. It never throws for HTTP error statuses; the status code is returned
+ * so the caller can record it, and {@code -1} stands for a connection level failure.
+ */
+public class CatalogClient {
+
+    public static final int CONNECTION_ERROR = -1;
+
+    private final String baseUrl;
+    private final Workload workload;
+    private final int pageSize;
+    private final RestTemplate restTemplate;
+
+    public CatalogClient(String baseUrl, Workload workload, int pageSize) {
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+        this.pageSize = pageSize;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(5000);
+        requestFactory.setReadTimeout(30000);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            protected boolean hasError(int unknownStatusCode) {
+                return false;
+            }
+
+            @Override
+            protected boolean hasError(org.springframework.http.HttpStatus statusCode) {
+                return false;
+            }
+        });
+    }
+
+    public int execute(LoadRequest loadRequest) {
+        try {
+            return send(loadRequest).getStatusCodeValue();
+        } catch (ResourceAccessException e) {
+            return CONNECTION_ERROR;
+        }
+    }
+
+    private ResponseEntity<String> send(LoadRequest loadRequest) {
+        switch (loadRequest.getOperation()) {
+            case GET_ALL_BOOKS:
+                return restTemplate.getForEntity(baseUrl + "/api/books?limit={limit}&page={page}", String.class, pageSize, loadRequest.getPage());
+            case GET_BOOK_DETAIL:
+                return restTemplate.getForEntity(baseUrl + "/api/books/{bookId}", String.class, loadRequest.getTargetId());
+            case ADD_BOOK:
+                Map<String, String> addBookBody = new HashMap<>();
+                addBookBody.put("title", loadRequest.getValue());
+                addBookBody.put("authorId", loadRequest.getTargetId());
+                ResponseEntity<String> addBookResponse = restTemplate.postForEntity(baseUrl + "/api/books", addBookBody, String.class);
+                URI location = addBookResponse.getHeaders().getLocation();
+                if (location != null)
+                    workload.onBookCreated(location.getPath().substring(location.getPath().lastIndexOf('/') + 1));
+                return addBookResponse;
+            case UPDATE_BOOK:
+                UpdateBookWebRequest updateBookWebRequest = new UpdateBookWebRequest();
+                updateBookWebRequest.setTitle(loadRequest.getValue());
+                return restTemplate.exchange(baseUrl + "/api/books/{bookId}", HttpMethod.PUT,
+                        new HttpEntity<>(updateBookWebRequest), String.class, loadRequest.getTargetId());
+            case DELETE_BOOK:
+                String bookId = loadRequest.getTargetId() == null ? "missing" : loadRequest.getTargetId();
+                return restTemplate.exchange(baseUrl + "/api/books/{bookId}", HttpMethod.DELETE, null, String.class, bookId);
+            default:
+                return restTemplate.postForEntity(baseUrl + "/api/authors", new AddAuthorWebRequest(loadRequest.getValue()), String.class);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.axell.reactive.loadtest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Inserts a deterministic catalog straight through JDBC, so seeding large data sets does not dominate the run.
+ */
+public class CatalogSeeder {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadTestSettings settings;
+
+    public CatalogSeeder(JdbcTemplate jdbcTemplate, LoadTestSettings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = settings;
+    }
+
+    public SeededCatalog seed() {
+        Random random = new Random(settings.getSeed());
+        List<String> authorIds = generateIds(random, settings.getAuthors());
+        List<String> bookIds = generateIds(random, settings.getBooks());
+
+        jdbcTemplate.batchUpdate("insert into authors (id, name, normalized_name) values (?, ?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                preparedStatement.setString(1, authorIds.get(i));
+                preparedStatement.setString(2, "Author " + i);
+                preparedStatement.setString(3, "author " + i);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return authorIds.size();
+            }
+        });
+        jdbcTemplate.batchUpdate("insert into books (id, title, author_id, author_name) values (?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                preparedStatement.setString(1, bookIds.get(i));
+                preparedStatement.setString(2, "Book " + i);
+                preparedStatement.setString(3, authorIds.get(i % authorIds.size()));
+                preparedStatement.setString(4, "Author " + i % authorIds.size());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return bookIds.size();
+            }
+        });
+        return new SeededCatalog(authorIds, bookIds);
+    }
+
+    private List<String> generateIds(Random random, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            ids.add(new UUID(random.nextLong(), random.nextLong()).toString());
+        return ids;
+    }
+
+    public static class SeededCatalog {
+        private final List<String> authorIds;
+        private final List<String> bookIds;
+
+        SeededCatalog(List<String> authorIds, List<String> bookIds) {
+            this.authorIds = authorIds;
+            this.bookIds = bookIds;
+        }
+
+        public List<String> getAuthorIds() {
+            return authorIds;
+        }
+
+        public List<String> getBookIds() {
+            return bookIds;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.axell.reactive.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Closed-model ramp of book detail requests: each level keeps a fixed number of clients busy and records latency,
+ * the server's platform threads and heap. Run it once per execution mode, e.g. with
+ * {@code -Dexecution.virtual-threads.enabled=true} on JDK 21, and compare the highest level whose p99 stays within
+ * {@code loadtest.ramp-p99-budget-millis}. Results go to {@code ramp-<mode>.csv}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "web.concurrency-limit.enabled=false"
+)
+public class ConcurrencyRampLoadTest {
+
+    private static final String CLIENT_THREAD_PREFIX = "ramp-client-";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Value("${execution.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    private final int[] levels = parseLevels(System.getProperty("loadtest.ramp-levels", "25,50,100,200,400"));
+    private final int levelSeconds = Integer.getInteger("loadtest.ramp-level-seconds", 5);
+    private final long p99BudgetMillis = Long.getLong("loadtest.ramp-p99-budget-millis", 1000L);
+
+    @Test
+    public void BookDetail_IncreasingConcurrency_WriteRampReport() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        CatalogSeeder.SeededCatalog catalog = new CatalogSeeder(jdbcTemplate, settings).seed();
+        CatalogClient catalogClient = new CatalogClient("http://localhost:" + port, new Workload(settings, catalog), settings.getPageSize());
+        String mode = virtualThreads ? "virtual" : "platform";
+        Path report = settings.getReportDirectory().resolve("ramp-" + mode + ".csv");
+        Files.createDirectories(report.getParent());
+
+        int highestLevelWithinBudget = 0;
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+            out.println("mode,concurrency,requests,throughput_per_second,p50_ms,p99_ms,errors,server_platform_threads,heap_used_mb");
+            for (int level : levels) {
+                LevelResult levelResult = runLevel(level, catalogClient, catalog.getBookIds());
+                out.println(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%d,%d,%d",
+                        mode, level, levelResult.histogram.getTotalCount(),
+                        levelResult.histogram.getTotalCount() / (double) levelSeconds,
+                        levelResult.histogram.getValueAtPercentile(50) / 1000.0,
+                        levelResult.histogram.getValueAtPercentile(99) / 1000.0,
+                        levelResult.errors, levelResult.serverPlatformThreads, levelResult.heapUsedBytes >> 20));
+                if (levelResult.histogram.getValueAtPercentile(99) > TimeUnit.MILLISECONDS.toMicros(p99BudgetMillis))
+                    break;
+                highestLevelWithinBudget = level;
+            }
+            out.println(String.format(Locale.ROOT, "# highest concurrency within p99 budget of %d ms: %d", p99BudgetMillis, highestLevelWithinBudget));
+        }
+
+        assertTrue(highestLevelWithinBudget > 0);
+    }
+
+    private LevelResult runLevel(int concurrency, CatalogClient catalogClient, List<String> bookIds) throws Exception {
+        AtomicInteger clientIndex = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency,
+                runnable -> new Thread(runnable, CLIENT_THREAD_PREFIX + clientIndex.incrementAndGet()));
+        LevelResult levelResult = new LevelResult();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(levelSeconds);
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(i);
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    LoadRequest loadRequest = new LoadRequest(LoadOperation.GET_BOOK_DETAIL, bookIds.get(random.nextInt(bookIds.size())), null, 0);
+                    long start = System.nanoTime();
+                    int status = catalogClient.execute(loadRequest);
+                    levelResult.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (status != 200)
+                        errors.incrementAndGet();
+                }
+            }));
+        }
+        // Sample in the middle of the level, when every client has a request in flight
+        Thread.sleep(TimeUnit.SECONDS.toMillis(levelSeconds) / 2);
+        levelResult.serverPlatformThreads = countServerPlatformThreads();
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        levelResult.heapUsedBytes = memoryMXBean.getHeapMemoryUsage().getUsed();
+        for (Future<?> future : futures)
+            future.get();
+        clients.shutdown();
+        levelResult.errors = errors.get();
+        return levelResult;
+    }
+
+    // Virtual threads are not reported by the thread MX bean, so this counts the platform threads the server holds
+    private int countServerPlatformThreads() {
+        int count = 0;
+        for (ThreadInfo threadInfo : ManagementFactory.getThreadMXBean().dumpAllThreads(false, false))
+            if (!threadInfo.getThreadName().startsWith(CLIENT_THREAD_PREFIX))
+                count++;
+        return count;
+    }
+
+    private static int[] parseLevels(String levels) {
+        return Arrays.stream(levels.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static class LevelResult {
+        private final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private int serverPlatformThreads;
+        private long heapUsedBytes;
+        private int errors;
+    }
+}
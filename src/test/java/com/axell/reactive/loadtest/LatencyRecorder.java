@@ -0,0 +1,76 @@
+package com.axell.reactive.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per operation latency histograms (in microseconds) and response status counters for one measured run.
+ */
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<LoadOperation, Histogram> histograms = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, Map<StatusClass, LongAdder>> statusCounts = new EnumMap<>(LoadOperation.class);
+    private long elapsedNanos;
+
+    public LatencyRecorder() {
+        for (LoadOperation loadOperation : LoadOperation.values()) {
+            histograms.put(loadOperation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            Map<StatusClass, LongAdder> counts = new EnumMap<>(StatusClass.class);
+            for (StatusClass statusClass : StatusClass.values())
+                counts.put(statusClass, new LongAdder());
+            statusCounts.put(loadOperation, counts);
+        }
+    }
+
+    public void record(LoadOperation loadOperation, int status, long latencyNanos) {
+        histograms.get(loadOperation).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        statusCounts.get(loadOperation).get(StatusClass.of(status)).increment();
+    }
+
+    public void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Histogram getHistogram(LoadOperation loadOperation) {
+        return histograms.get(loadOperation);
+    }
+
+    public long getStatusCount(LoadOperation loadOperation, StatusClass statusClass) {
+        return statusCounts.get(loadOperation).get(statusClass).sum();
+    }
+
+    public long getTotalCount() {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public enum StatusClass {
+        SUCCESS,
+        CLIENT_ERROR,
+        SHED,
+        SERVER_ERROR,
+        CONNECTION_ERROR;
+
+        static StatusClass of(int status) {
+            if (status == CatalogClient.CONNECTION_ERROR)
+                return CONNECTION_ERROR;
+            if (status == 503)
+                return SHED;
+            if (status >= 500)
+                return SERVER_ERROR;
+            if (status >= 400)
+                return CLIENT_ERROR;
+            return SUCCESS;
+        }
+    }
+}
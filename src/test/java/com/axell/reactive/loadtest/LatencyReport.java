@@ -0,0 +1,59 @@
+package com.axell.reactive.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@code summary.csv} (one line per operation) and one HdrHistogram percentile distribution file per
+ * operation. File names are stable so reports of two builds can be compared with a plain diff or plotted with the
+ * HdrHistogram plotter.
+ */
+public class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LatencyRecorder latencyRecorder;
+
+    public LatencyReport(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    public void write(Path reportDirectory) throws IOException {
+        Files.createDirectories(reportDirectory);
+        double elapsedSeconds = latencyRecorder.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        try (PrintStream summary = new PrintStream(Files.newOutputStream(reportDirectory.resolve("summary.csv")), false, "UTF-8")) {
+            summary.println("operation,count,throughput_per_second,mean_ms,p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms,success,client_error,shed,server_error,connection_error");
+            for (LoadOperation loadOperation : LoadOperation.values()) {
+                Histogram histogram = latencyRecorder.getHistogram(loadOperation);
+                summary.println(String.format(Locale.ROOT, "%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%d",
+                        loadOperation,
+                        histogram.getTotalCount(),
+                        histogram.getTotalCount() / elapsedSeconds,
+                        histogram.getMean() / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                        histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                        histogram.getMaxValue() / MICROS_PER_MILLI,
+                        latencyRecorder.getStatusCount(loadOperation, LatencyRecorder.StatusClass.SUCCESS),
+                        latencyRecorder.getStatusCount(loadOperation, LatencyRecorder.StatusClass.CLIENT_ERROR),
+                        latencyRecorder.getStatusCount(loadOperation, LatencyRecorder.StatusClass.SHED),
+                        latencyRecorder.getStatusCount(loadOperation, LatencyRecorder.StatusClass.SERVER_ERROR),
+                        latencyRecorder.getStatusCount(loadOperation, LatencyRecorder.StatusClass.CONNECTION_ERROR)));
+                writeDistribution(reportDirectory.resolve(loadOperation.name().toLowerCase(Locale.ROOT) + ".hgrm"), histogram);
+            }
+        }
+    }
+
+    private void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream distribution = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(distribution, MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.axell.reactive.loadtest;
+
+public enum LoadOperation {
+    GET_ALL_BOOKS(50),
+    GET_BOOK_DETAIL(30),
+    ADD_BOOK(8),
+    UPDATE_BOOK(6),
+    DELETE_BOOK(3),
+    ADD_AUTHOR(3);
+
+    private final int defaultWeight;
+
+    LoadOperation(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+}
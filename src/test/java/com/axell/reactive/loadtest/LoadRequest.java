@@ -0,0 +1,13 @@
+package com.axell.reactive.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LoadRequest {
+    private final LoadOperation operation;
+    private final String targetId;
+    private final String value;
+    private final int page;
+}
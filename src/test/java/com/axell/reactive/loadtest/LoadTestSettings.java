@@ -0,0 +1,39 @@
+package com.axell.reactive.loadtest;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test knobs, read from system properties so that runs can be repeated with
+ * {@code mvn -Pload-test test -Dloadtest.rate=500 ...}.
+ */
+@Getter
+public class LoadTestSettings {
+    private final int authors = Integer.getInteger("loadtest.authors", 50);
+    private final int books = Integer.getInteger("loadtest.books", 5000);
+    private final double ratePerSecond = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+    private final int pageSize = Integer.getInteger("loadtest.page-size", 20);
+    private final long seed = Long.getLong("loadtest.seed", 42L);
+    private final Path reportDirectory = Paths.get(System.getProperty("loadtest.report-dir", "target/load-test"));
+    private final Map<LoadOperation, Integer> mix = parseMix(System.getProperty("loadtest.mix"));
+
+    private static Map<LoadOperation, Integer> parseMix(String mixProperty) {
+        Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+        if (mixProperty == null) {
+            for (LoadOperation loadOperation : LoadOperation.values())
+                mix.put(loadOperation, loadOperation.getDefaultWeight());
+            return mix;
+        }
+        for (String entry : mixProperty.split(",")) {
+            String[] operationAndWeight = entry.trim().split("=");
+            mix.put(LoadOperation.valueOf(operationAndWeight[0].trim()), Integer.parseInt(operationAndWeight[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,131 @@
+package com.axell.reactive.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads shelves of {@code loadtest.shelf-size} books the way the frontend used to, one detail request per book
+ * sequentially and with {@code loadtest.shelf-concurrency} parallel connections, and with a single multi-get by GET
+ * and by POST. Latency per shelf and the number of HTTP requests it took go to {@code multi-get.csv}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "web.concurrency-limit.enabled=false"
+)
+public class MultiGetBenchmark {
+
+    private interface ShelfLoader {
+        void load(List<String> bookIds) throws Exception;
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int shelfSize = Integer.getInteger("loadtest.shelf-size", 50);
+    private final int shelfConcurrency = Integer.getInteger("loadtest.shelf-concurrency", 6);
+    private final int shelves = Integer.getInteger("loadtest.shelves", 200);
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    // Missing books answer 404 on the detail endpoint, which is part of the pattern and not an error here
+    @Before
+    public void setUp() throws Exception {
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            protected boolean hasError(HttpStatus statusCode) {
+                return statusCode != HttpStatus.NOT_FOUND && super.hasError(statusCode);
+            }
+        });
+    }
+
+    @Test
+    public void Shelf_PerBookRequestsVersusMultiGet_WriteLatencyReport() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        CatalogSeeder.SeededCatalog catalog = new CatalogSeeder(jdbcTemplate, settings).seed();
+        List<List<String>> shelfIds = shelves(catalog.getBookIds(), new Random(settings.getSeed()));
+        String baseUrl = "http://localhost:" + port + "/api/books";
+        ExecutorService connections = Executors.newFixedThreadPool(shelfConcurrency);
+        Path report = settings.getReportDirectory().resolve("multi-get.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+            out.println("pattern,shelf_size,requests_per_shelf,shelves,mean_ms,p50_ms,p99_ms");
+            Histogram sequential = measure(out, "per-book-sequential", shelfSize, shelfIds, bookIds -> {
+                for (String bookId : bookIds)
+                    restTemplate.getForEntity(baseUrl + "/{bookId}", String.class, bookId);
+            });
+            measure(out, "per-book-parallel-" + shelfConcurrency, shelfSize, shelfIds, bookIds -> {
+                List<Future<?>> responses = new ArrayList<>();
+                for (String bookId : bookIds)
+                    responses.add(connections.submit(() -> restTemplate.getForEntity(baseUrl + "/{bookId}", String.class, bookId)));
+                for (Future<?> response : responses)
+                    response.get();
+            });
+            Histogram multiGet = measure(out, "multi-get", 1, shelfIds, bookIds -> {
+                ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "?ids={ids}", String.class, String.join(",", bookIds));
+                assertEquals(HttpStatus.OK, response.getStatusCode());
+            });
+            measure(out, "multi-get-post", 1, shelfIds, bookIds -> restTemplate.postForEntity(baseUrl + "/lookup",
+                    Collections.singletonMap("ids", bookIds), String.class));
+
+            assertTrue(multiGet.getMean() < sequential.getMean());
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    private Histogram measure(PrintStream out, String pattern, int requestsPerShelf, List<List<String>> shelfIds, ShelfLoader shelfLoader) throws Exception {
+        for (List<String> bookIds : shelfIds.subList(0, shelfIds.size() / 4))
+            shelfLoader.load(bookIds);
+        Histogram histogram = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+        for (List<String> bookIds : shelfIds) {
+            long start = System.nanoTime();
+            shelfLoader.load(bookIds);
+            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+        out.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f", pattern, shelfSize,
+                requestsPerShelf == 1 ? 1 : shelfSize, histogram.getTotalCount(), histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0));
+        return histogram;
+    }
+
+    // Every tenth slot is an id without a book, so the per-item not found path is part of the measurement
+    private List<List<String>> shelves(List<String> bookIds, Random random) {
+        List<List<String>> shelfIds = new ArrayList<>();
+        for (int shelf = 0; shelf < shelves; shelf++) {
+            List<String> ids = new ArrayList<>(shelfSize);
+            for (int i = 0; i < shelfSize; i++)
+                ids.add(i % 10 == 9 ? "missing-" + i : bookIds.get(random.nextInt(bookIds.size())));
+            shelfIds.add(ids);
+        }
+        return shelfIds;
+    }
+}
@@ -0,0 +1,49 @@
+package com.axell.reactive.loadtest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues requests at a constant arrival rate regardless of how fast the server answers (open model). Latency is
+ * measured from the moment a request was scheduled to start, so a stalled server shows up in the percentiles
+ * instead of silently lowering the offered load.
+ */
+public class OpenModelLoadGenerator {
+
+    private final CatalogClient catalogClient;
+    private final Workload workload;
+    private final double ratePerSecond;
+
+    public OpenModelLoadGenerator(CatalogClient catalogClient, Workload workload, double ratePerSecond) {
+        this.catalogClient = catalogClient;
+        this.workload = workload;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public LatencyRecorder run(int durationSeconds) throws InterruptedException {
+        LatencyRecorder latencyRecorder = new LatencyRecorder();
+        ExecutorService requestExecutor = Executors.newCachedThreadPool();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long requestCount = (long) (durationSeconds * ratePerSecond);
+        long startNanos = System.nanoTime();
+
+        for (long i = 0; i < requestCount; i++) {
+            long intendedStartNanos = startNanos + i * intervalNanos;
+            LoadRequest loadRequest = workload.next();
+            long waitNanos = intendedStartNanos - System.nanoTime();
+            if (waitNanos > 0)
+                LockSupport.parkNanos(waitNanos);
+            requestExecutor.execute(() -> {
+                int status = catalogClient.execute(loadRequest);
+                latencyRecorder.record(loadRequest.getOperation(), status, System.nanoTime() - intendedStartNanos);
+            });
+        }
+
+        requestExecutor.shutdown();
+        requestExecutor.awaitTermination(2, TimeUnit.MINUTES);
+        latencyRecorder.finish(System.nanoTime() - startNanos);
+        return latencyRecorder;
+    }
+}
@@ -0,0 +1,83 @@
+package com.axell.reactive.loadtest;
+
+import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.exception.StacklessEntityNotFoundException;
+import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.beans.BeanUtils;
+
+import javax.persistence.EntityNotFoundException;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares bytes allocated per response before and after the allocation-light envelope, not-found signal and
+ * book mapping, and writes them to {@code allocation.csv} in the load test report directory. The JSON writing of
+ * a book page is recorded as a baseline: the reflective Jackson bean serializer allocates nothing per property,
+ * what remains is the generator itself.
+ */
+public class ResponseAllocationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(8192);
+    private Object sink;
+
+    @Test
+    public void ResponsePath_BeforeAndAfter_WriteAllocationReport() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        BookResponse bookResponse = new BookResponse("00000000-0000-0000-0000-000000000001", "Book", "Author");
+        BaseWebResponse<List<BookWebResponse>> bookPage = BaseWebResponse.successWithData(books());
+
+        long builtNoData = allocationMeter.measure("no_data_envelope_builder", () -> sink = BaseWebResponse.builder().build());
+        long sharedNoData = allocationMeter.measure("no_data_envelope_shared", () -> sink = BaseWebResponse.successNoData());
+        long builtError = allocationMeter.measure("error_envelope_builder",
+                () -> sink = BaseWebResponse.builder().errorCode(ErrorCode.ENTITY_NOT_FOUND).build());
+        long sharedError = allocationMeter.measure("error_envelope_shared", () -> sink = BaseWebResponse.error(ErrorCode.ENTITY_NOT_FOUND));
+        long newNotFound = allocationMeter.measure("not_found_new_exception", () -> sink = new EntityNotFoundException());
+        long sharedNotFound = allocationMeter.measure("not_found_preallocated", () -> sink = StacklessEntityNotFoundException.INSTANCE);
+        long beanUtilsMapping = allocationMeter.measure("book_mapping_bean_utils", () -> {
+            BookWebResponse bookWebResponse = new BookWebResponse();
+            BeanUtils.copyProperties(bookResponse, bookWebResponse);
+            sink = bookWebResponse;
+        });
+        long directMapping = allocationMeter.measure("book_mapping_direct", () -> {
+            BookWebResponse bookWebResponse = new BookWebResponse();
+            bookWebResponse.setId(bookResponse.getId());
+            bookWebResponse.setTitle(bookResponse.getTitle());
+            bookWebResponse.setAuthorName(bookResponse.getAuthorName());
+            sink = bookWebResponse;
+        });
+        allocationMeter.measure("book_page_json", () -> write(objectMapper, bookPage));
+        allocationMeter.write(new LoadTestSettings().getReportDirectory().resolve("allocation.csv"));
+
+        assertTrue(sharedNoData <= builtNoData);
+        assertTrue(sharedError <= builtError);
+        assertTrue(sharedNotFound < newNotFound);
+        assertTrue(directMapping < beanUtilsMapping);
+    }
+
+    private void write(ObjectMapper objectMapper, Object value) throws Exception {
+        outputStream.reset();
+        objectMapper.writeValue(outputStream, value);
+    }
+
+    private List<BookWebResponse> books() {
+        List<BookWebResponse> books = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            BookWebResponse book = new BookWebResponse();
+            book.setId("00000000-0000-0000-0000-0000000000" + (10 + i));
+            book.setTitle("Book " + i);
+            book.setAuthorName("Author " + i % 5);
+            books.add(book);
+        }
+        return books;
+    }
+}
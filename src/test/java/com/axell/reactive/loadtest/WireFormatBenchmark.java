@@ -0,0 +1,163 @@
+package com.axell.reactive.loadtest;
+
+import com.axell.reactive.web.format.ProtobufWebHttpMessageConverter;
+import com.axell.reactive.web.format.WebMediaType;
+import com.axell.reactive.webdto.protobuf.BookProtos;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Encodes a book page with each negotiated format through the same message converters the REST API uses, and
+ * decodes it back the way a Java caller would. Payload size and mean encode/decode time per page are written to
+ * {@code wire-format.csv} in the load test report directory.
+ */
+public class WireFormatBenchmark {
+
+    private static final int[] PAGE_SIZES = {20, 1000};
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    private interface Codec {
+        byte[] encode(BaseWebResponse<List<BookWebResponse>> bookPage) throws IOException;
+
+        List<BookWebResponse> decode(byte[] payload) throws IOException;
+    }
+
+    @Getter
+    @Setter
+    public static class BookPage {
+        private String errorCode;
+        private List<BookWebResponse> data;
+    }
+
+    private List<BookWebResponse> sink;
+
+    @Test
+    public void BookPage_AllFormats_WritePayloadSizeAndCodecTimeReport() throws Exception {
+        Path report = new LoadTestSettings().getReportDirectory().resolve("wire-format.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+            out.println("format,books,payload_bytes,encode_us,decode_us");
+            for (int pageSize : PAGE_SIZES) {
+                BaseWebResponse<List<BookWebResponse>> bookPage = BaseWebResponse.successWithData(books(pageSize));
+                int jsonBytes = measure(out, "json", pageSize, bookPage, jacksonCodec(
+                        new MappingJackson2HttpMessageConverter(new ObjectMapper()), MediaType.APPLICATION_JSON));
+                int smileBytes = measure(out, "smile", pageSize, bookPage, jacksonCodec(
+                        new MappingJackson2SmileHttpMessageConverter(new ObjectMapper(new SmileFactory())), WebMediaType.APPLICATION_SMILE));
+                int cborBytes = measure(out, "cbor", pageSize, bookPage, jacksonCodec(
+                        new MappingJackson2CborHttpMessageConverter(new ObjectMapper(new CBORFactory())), WebMediaType.APPLICATION_CBOR));
+                int protobufBytes = measure(out, "protobuf", pageSize, bookPage, protobufCodec());
+
+                assertTrue(smileBytes < jsonBytes);
+                assertTrue(cborBytes < jsonBytes);
+                assertTrue(protobufBytes < jsonBytes);
+            }
+        }
+    }
+
+    private int measure(PrintStream out, String format, int pageSize, BaseWebResponse<List<BookWebResponse>> bookPage, Codec codec) throws Exception {
+        byte[] payload = codec.encode(bookPage);
+        if (codec.decode(payload).size() != pageSize)
+            throw new IllegalStateException(format + " did not round-trip the page");
+        double encodeMicros = time(() -> codec.encode(bookPage));
+        double decodeMicros = time(() -> sink = codec.decode(payload));
+        out.println(String.format(Locale.ROOT, "%s,%d,%d,%.2f,%.2f", format, pageSize, payload.length, encodeMicros, decodeMicros));
+        return payload.length;
+    }
+
+    private double time(AllocationMeter.Task task) throws Exception {
+        run(task, WARMUP_NANOS);
+        return run(task, MEASURE_NANOS);
+    }
+
+    private double run(AllocationMeter.Task task, long durationNanos) throws Exception {
+        long start = System.nanoTime();
+        long iterations = 0;
+        long elapsed;
+        do {
+            task.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < durationNanos);
+        return elapsed / 1000.0 / iterations;
+    }
+
+    private Codec jacksonCodec(AbstractJackson2HttpMessageConverter converter, MediaType mediaType) {
+        return new Codec() {
+            @Override
+            public byte[] encode(BaseWebResponse<List<BookWebResponse>> bookPage) throws IOException {
+                MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+                converter.write(bookPage, mediaType, outputMessage);
+                return outputMessage.getBodyAsBytes();
+            }
+
+            @Override
+            public List<BookWebResponse> decode(byte[] payload) throws IOException {
+                MockHttpInputMessage inputMessage = new MockHttpInputMessage(payload);
+                inputMessage.getHeaders().setContentType(mediaType);
+                return ((BookPage) converter.read(BookPage.class, inputMessage)).getData();
+            }
+        };
+    }
+
+    private Codec protobufCodec() {
+        ProtobufWebHttpMessageConverter converter = new ProtobufWebHttpMessageConverter();
+        return new Codec() {
+            @Override
+            public byte[] encode(BaseWebResponse<List<BookWebResponse>> bookPage) throws IOException {
+                MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+                converter.write(bookPage, WebMediaType.APPLICATION_PROTOBUF, outputMessage);
+                return outputMessage.getBodyAsBytes();
+            }
+
+            @Override
+            public List<BookWebResponse> decode(byte[] payload) throws IOException {
+                List<BookWebResponse> books = new ArrayList<>();
+                for (BookProtos.Book book : BookProtos.WebResponse.parseFrom(payload).getBooks().getBooksList()) {
+                    BookWebResponse bookWebResponse = new BookWebResponse();
+                    bookWebResponse.setId(book.getId());
+                    bookWebResponse.setTitle(book.getTitle());
+                    bookWebResponse.setAuthorName(book.getAuthorName());
+                    books.add(bookWebResponse);
+                }
+                return books;
+            }
+        };
+    }
+
+    private List<BookWebResponse> books(int count) {
+        List<BookWebResponse> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BookWebResponse book = new BookWebResponse();
+            book.setId(UUID.nameUUIDFromBytes(("book-" + i).getBytes()).toString());
+            book.setTitle("The Reactive Book, Volume " + i);
+            book.setAuthorName("Author " + i % 50);
+            books.add(book);
+        }
+        return books;
+    }
+}
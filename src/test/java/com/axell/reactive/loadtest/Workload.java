@@ -0,0 +1,67 @@
+package com.axell.reactive.loadtest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Produces the request sequence from a seeded random generator, so two runs with the same settings issue the same
+ * operations against the same seeded ids. Deletes only target books created during the run.
+ */
+public class Workload {
+
+    // The default web.books.list.max-offset, deeper book list pages answer 400
+    private static final int MAX_LIST_OFFSET = 10000;
+
+    private final Random random;
+    private final LoadTestSettings settings;
+    private final CatalogSeeder.SeededCatalog catalog;
+    private final LoadOperation[] weightedOperations;
+    private final Queue<String> createdBookIds = new ConcurrentLinkedQueue<>();
+    private long sequence;
+
+    public Workload(LoadTestSettings settings, CatalogSeeder.SeededCatalog catalog) {
+        this.random = new Random(settings.getSeed());
+        this.settings = settings;
+        this.catalog = catalog;
+        this.weightedOperations = toWeightedOperations(settings.getMix());
+    }
+
+    public LoadRequest next() {
+        LoadOperation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+        List<String> bookIds = catalog.getBookIds();
+        List<String> authorIds = catalog.getAuthorIds();
+        int pageCount = Math.max(1, Math.min(bookIds.size(), MAX_LIST_OFFSET) / settings.getPageSize());
+        long requestSequence = sequence++;
+        switch (operation) {
+            case GET_ALL_BOOKS:
+                return new LoadRequest(operation, null, null, random.nextInt(pageCount));
+            case GET_BOOK_DETAIL:
+                return new LoadRequest(operation, bookIds.get(random.nextInt(bookIds.size())), null, 0);
+            case ADD_BOOK:
+                return new LoadRequest(operation, authorIds.get(random.nextInt(authorIds.size())), "Load book " + requestSequence, 0);
+            case UPDATE_BOOK:
+                return new LoadRequest(operation, bookIds.get(random.nextInt(bookIds.size())), "Updated book " + requestSequence, 0);
+            case DELETE_BOOK:
+                return new LoadRequest(operation, createdBookIds.poll(), null, 0);
+            default:
+                return new LoadRequest(operation, null, "Load author " + requestSequence, 0);
+        }
+    }
+
+    public void onBookCreated(String bookId) {
+        createdBookIds.add(bookId);
+    }
+
+    private LoadOperation[] toWeightedOperations(Map<LoadOperation, Integer> mix) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        LoadOperation[] operations = new LoadOperation[totalWeight];
+        int index = 0;
+        for (Map.Entry<LoadOperation, Integer> entry : mix.entrySet())
+            for (int i = 0; i < entry.getValue(); i++)
+                operations[index++] = entry.getKey();
+        return operations;
+    }
+}
@@ -0,0 +1,244 @@
+package com.axell.reactive.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Explains the sql Hibernate generates for every {@link BookRepository} and {@link BookSummaryRepository} query on H2 and checks which index reads the
+ * books table, a table scan fails the test. A query added to the repository fails
+ * {@code DeclaredQueries_EveryQuery_Explained} until its plan is checked here.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.axell.reactive.repository.RecordingStatementInspector")
+public class BookRepositoryIndexTest {
+
+    private static final Pattern BOOKS_ACCESS = Pattern.compile("\"PUBLIC\"\\.\"BOOKS\" \"BOOK0_\"\\s*/\\* PUBLIC\\.([\\w.]+)");
+    private static final String PRIMARY_KEY = "PRIMARY_KEY_";
+    private static final String AUTHOR_INDEX = "IDX_BOOKS_AUTHOR_ID";
+    private static final String TITLE_INDEX = "IDX_BOOKS_TITLE";
+    private static final String AUTHOR_NAME_INDEX = "IDX_BOOKS_AUTHOR_NAME";
+    private static final String INDEX_SORTED = "/* index sorted */";
+    private static final Set<String> EXPLAINED_QUERIES = new TreeSet<>(Arrays.asList(
+            "findAllByAuthorId", "findSummaryPage", "findSummaryPageByAuthorId", "findSummaryPageByTitleRange",
+            "countByTitleRange", "findAllSummariesByIdIn", "findAllSummaries", "countAllGroupByAuthorId", "deleteAllByIdIn"));
+    private static final Set<String> ALL_PROPERTIES = new HashSet<>(Arrays.asList("id", "title", "authorName"));
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void FindById_BookId_UsePrimaryKey() {
+        String plan = explain(() -> bookRepository.findById("1"));
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+    }
+
+    @Test
+    public void FindAllByAuthorId_AuthorId_UseAuthorIndex() {
+        assertBooksReadBy(AUTHOR_INDEX, explain(() -> bookRepository.findAllByAuthorId("1")));
+        assertBooksReadBy(AUTHOR_INDEX, explain(() -> bookRepository.findAllByAuthorId("1", PageRequest.of(0, 5, Sort.by("id")))));
+        assertBooksReadBy(AUTHOR_INDEX, explain(() -> bookRepository.findAllByAuthorId("1", PageRequest.of(0, 5, Sort.by("title", "id")))));
+    }
+
+    @Test
+    public void FindSummaryPage_PageOrderedById_ReadPrimaryKeyInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, PageRequest.of(0, 5, Sort.by("id"))));
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+        assertFalse(plan, plan.contains("AUTHORS"));
+    }
+
+    @Test
+    public void FindSummaryPage_PageOrderedByTitle_ReadTitleIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, PageRequest.of(3, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_PageOrderedByAuthorName_ReadAuthorNameIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, PageRequest.of(3, 5, Sort.by("authorName", "id"))));
+
+        assertBooksReadBy(AUTHOR_NAME_INDEX, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_IdOnly_SelectOnlyIdColumn() {
+        List<String> statements = RecordingStatementInspector.record(() ->
+                bookRepository.findSummaryPage(Collections.singleton("id"), PageRequest.of(0, 5, Sort.by("id"))));
+
+        String select = statements.get(0).substring(0, statements.get(0).indexOf(" from "));
+        assertTrue(select, select.contains(".id"));
+        assertFalse(select, select.contains(".title"));
+        assertFalse(select, select.contains(".author_name"));
+    }
+
+    @Test
+    public void FindSummaryPage_AuthorId_ReadForeignKeyWithoutJoin() {
+        String plan = explain(() -> bookRepository.findSummaryPage(Collections.singleton("authorId"), PageRequest.of(0, 5, Sort.by("id"))));
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+        assertFalse(plan, plan.contains("AUTHORS"));
+    }
+
+    @Test
+    public void FindSummaryPageByAuthorId_PageOrderedByTitle_UseAuthorIndex() {
+        String plan = explain(() -> bookRepository.findSummaryPageByAuthorId(ALL_PROPERTIES, "1", PageRequest.of(0, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(AUTHOR_INDEX, plan);
+    }
+
+    @Test
+    public void FindSummaryPageByTitleRange_PageOrderedByTitle_ReadTitleIndexRangeInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPageByTitleRange(ALL_PROPERTIES, "Ha", "Hb", PageRequest.of(3, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+        assertTrue(plan, plan.contains("TITLE >= ?1"));
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_AfterId_SeekPrimaryKeyInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, null, "1", PageRequest.of(0, 5, Sort.by("id"))));
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+        assertTrue(plan, plan.contains("ID > ?1"));
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_AfterTitle_SeekTitleIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, "Ha", "1", PageRequest.of(0, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+        assertTrue(plan, plan.contains("TITLE >= ?1"));
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_AfterNullTitle_ReadTitleIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, null, "1", PageRequest.of(0, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPage_AfterAuthorName_SeekAuthorNameIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPage(ALL_PROPERTIES, "Axell", "1", PageRequest.of(0, 5, Sort.by("authorName", "id"))));
+
+        assertBooksReadBy(AUTHOR_NAME_INDEX, plan);
+        assertTrue(plan, plan.contains("AUTHOR_NAME >= ?1"));
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void FindSummaryPageByAuthorId_AfterTitle_UseAuthorIndex() {
+        String plan = explain(() -> bookRepository.findSummaryPageByAuthorId(ALL_PROPERTIES, "1", "Ha", "1", PageRequest.of(0, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(AUTHOR_INDEX, plan);
+    }
+
+    @Test
+    public void FindSummaryPageByTitleRange_AfterTitle_SeekTitleIndexInOrder() {
+        String plan = explain(() -> bookRepository.findSummaryPageByTitleRange(ALL_PROPERTIES, "Ha", "Hb", "Hal", "1", PageRequest.of(0, 5, Sort.by("title", "id"))));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void CountByTitleRange_TitleRange_ReadTitleIndexRange() {
+        String plan = explain(() -> bookRepository.countByTitleRange("Ha", "Hb"));
+
+        assertBooksReadBy(TITLE_INDEX, plan);
+    }
+
+    @Test
+    public void FindAllSummariesByIdIn_Ids_UsePrimaryKey() {
+        String plan = explain(() -> bookRepository.findAllSummariesByIdIn(Arrays.asList("1", "2")));
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+    }
+
+    @Test
+    public void FindAllSummaries_OrderedById_ReadPrimaryKeyInOrder() {
+        String plan = explain(() -> bookRepository.findAllSummaries());
+
+        assertBooksReadBy(PRIMARY_KEY, plan);
+        assertTrue(plan, plan.contains(INDEX_SORTED));
+    }
+
+    @Test
+    public void CountAllGroupByAuthorId_GroupedByAuthor_ReadAuthorIndexInOrder() {
+        String plan = explain(() -> bookRepository.countAllGroupByAuthorId());
+
+        assertBooksReadBy(AUTHOR_INDEX, plan);
+        assertTrue(plan, plan.contains("/* group sorted */"));
+    }
+
+    @Test
+    public void DeleteAllByIdIn_Ids_UsePrimaryKey() {
+        String plan = explain(() -> new TransactionTemplate(transactionManager).execute(transactionStatus -> {
+            transactionStatus.setRollbackOnly();
+            return bookRepository.deleteAllByIdIn(Arrays.asList("1", "2"));
+        }));
+
+        assertTrue(plan, plan.startsWith("DELETE FROM \"PUBLIC\".\"BOOKS\""));
+        assertTrue(plan, plan.contains("/* PUBLIC." + PRIMARY_KEY));
+    }
+
+    @Test
+    public void DeclaredQueries_EveryQuery_Explained() {
+        Set<String> declaredQueries = Stream.of(BookRepository.class, BookSummaryRepository.class)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .map(Method::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        assertEquals(EXPLAINED_QUERIES, declaredQueries);
+    }
+
+    // Parameters are bound as strings, H2 converts them where the column or LIMIT needs a number
+    private String explain(Runnable query) {
+        List<String> statements = RecordingStatementInspector.record(query);
+        assertEquals(statements.toString(), 1, statements.size());
+        String sql = statements.get(0);
+        int parameterCount = sql.length() - sql.replace("?", "").length();
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, Collections.nCopies(parameterCount, "1").toArray());
+    }
+
+    private void assertBooksReadBy(String expectedIndex, String plan) {
+        Matcher matcher = BOOKS_ACCESS.matcher(plan);
+        assertTrue(plan, matcher.find());
+        assertTrue(plan, matcher.group(1).startsWith(expectedIndex));
+    }
+}
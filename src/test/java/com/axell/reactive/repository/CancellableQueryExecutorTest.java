@@ -0,0 +1,101 @@
+package com.axell.reactive.repository;
+
+import io.reactivex.functions.Cancellable;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class CancellableQueryExecutorTest {
+
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private Session session;
+    @InjectMocks
+    private CancellableQueryExecutor cancellableQueryExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(cancellableQueryExecutor, "queryTimeoutSeconds", 3);
+        when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(new SimpleTransactionStatus());
+        when(entityManager.unwrap(Session.class))
+                .thenReturn(session);
+    }
+
+    @Test
+    public void Execute_Success_ReturnQueryResultWithinTimedTransaction() {
+        String result = cancellableQueryExecutor.execute(cancellable -> {
+        }, () -> "1");
+
+        assertEquals("1", result);
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.getTimeout() == 3));
+        verify(transactionManager, times(1)).commit(any());
+        verify(session, never()).cancelQuery();
+    }
+
+    @Test
+    public void Execute_DisposedWhileQueryRunning_CancelStatementAndThrowCancellationException() {
+        AtomicReference<Cancellable> registeredCancellable = new AtomicReference<>();
+
+        try {
+            cancellableQueryExecutor.execute(registeredCancellable::set, () -> {
+                cancel(registeredCancellable.get());
+                throw new IllegalStateException("statement cancelled");
+            });
+            fail();
+        } catch (CancellationException e) {
+            verify(session, times(1)).cancelQuery();
+            verify(transactionManager, times(1)).rollback(any());
+        }
+    }
+
+    @Test
+    public void Execute_DisposedBeforeStart_SkipQuery() {
+        try {
+            cancellableQueryExecutor.execute(this::cancel, () -> {
+                throw new AssertionError("query must not run");
+            });
+            fail();
+        } catch (CancellationException e) {
+            verify(transactionManager, times(1)).rollback(any());
+        }
+    }
+
+    @Test
+    public void Execute_DisposedAfterCompletion_DoNotTouchSession() {
+        AtomicReference<Cancellable> registeredCancellable = new AtomicReference<>();
+
+        cancellableQueryExecutor.execute(registeredCancellable::set, () -> "1");
+        cancel(registeredCancellable.get());
+
+        verify(session, never()).cancelQuery();
+    }
+
+    private void cancel(Cancellable cancellable) {
+        try {
+            cancellable.cancel();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
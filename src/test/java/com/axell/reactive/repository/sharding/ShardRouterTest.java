@@ -0,0 +1,59 @@
+package com.axell.reactive.repository.sharding;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ShardRouterTest {
+
+    private final ShardRouter shardRouter = new ShardRouter(3);
+
+    @Test
+    public void ShardOf_ManyIds_SpreadOverEveryShardAndStable() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String bookId = UUID.randomUUID().toString();
+            int shard = shardRouter.shardOf(bookId);
+            assertEquals(shard, shardRouter.shardOf(bookId));
+            usedShards.add(shard);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), usedShards);
+    }
+
+    @Test
+    public void OnShard_Nested_RestoreOuterShardAfterwards() {
+        shardRouter.onShard(1, () -> {
+            assertEquals(Integer.valueOf(2), shardRouter.onShard(2, ShardRouter::getCurrentShard));
+            assertEquals(Integer.valueOf(1), ShardRouter.getCurrentShard());
+            return null;
+        });
+
+        assertNull(ShardRouter.getCurrentShard());
+    }
+
+    @Test
+    public void ScatterGather_EveryShard_ReturnResultsInShardOrder() {
+        shardRouter.scatterGather(shardRouter.getShards(), Schedulers.io(),
+                shard -> Single.fromCallable(() -> shardRouter.onShard(shard, ShardRouter::getCurrentShard)))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertValue(Arrays.asList(0, 1, 2));
+    }
+
+    @Test
+    public void ScatterGather_NoShards_ReturnEmptyList() {
+        shardRouter.scatterGather(Collections.<Integer>emptyList(), Schedulers.trampoline(), shard -> Single.just(shard))
+                .test()
+                .assertValue(Collections.emptyList());
+    }
+}
@@ -0,0 +1,126 @@
+package com.axell.reactive.repository.sharding;
+
+import com.axell.reactive.service.author.AuthorService;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookCursor;
+import com.axell.reactive.servicedto.request.BookField;
+import com.axell.reactive.servicedto.request.BookPageRequest;
+import com.axell.reactive.servicedto.request.BookSort;
+import com.axell.reactive.servicedto.response.AuthorDetailResponse;
+import com.axell.reactive.servicedto.response.BookLookupResponse;
+import com.axell.reactive.servicedto.response.BookPageResponse;
+import com.axell.reactive.servicedto.response.BookResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the services against three in-memory H2 shards.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"sharding.shards=3", "sharding.url-template=jdbc:h2:mem:sharded-catalog-test-%d"})
+public class ShardedCatalogTest {
+
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void AddBooks_ThreeShards_StoreBooksOnTheirShardAndMergeReads() {
+        String authorId = authorService.addAuthor(new AddAuthorRequest("Sharded Author")).blockingGet();
+        List<String> bookIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            bookIds.add(bookService.addBook(new AddBookRequest("title-" + i, authorId)).blockingGet());
+        List<String> sortedBookIds = bookIds.stream().sorted().collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(1, 1, 1), shardRouter.onEveryShard(
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM authors WHERE id = ?", Integer.class, authorId)));
+        for (String bookId : bookIds) {
+            List<Integer> copies = shardRouter.onEveryShard(
+                    () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE id = ?", Integer.class, bookId));
+            assertEquals(1, copies.stream().mapToInt(Integer::intValue).sum());
+            assertEquals(Integer.valueOf(1), copies.get(shardRouter.shardOf(bookId)));
+        }
+
+        BookPageResponse page = bookService.getAllBooks(10, 1).blockingGet();
+        assertEquals(sortedBookIds.subList(10, 20), toIds(page.getBooks()));
+        assertEquals(30, page.getTotalBooks());
+
+        List<BookLookupResponse> lookups = bookService.getBooks(Arrays.asList(bookIds.get(3), "missing", bookIds.get(7))).blockingGet();
+        assertEquals("title-3", lookups.get(0).getBook().getTitle());
+        assertNull(lookups.get(1).getBook());
+        assertEquals("title-7", lookups.get(2).getBook().getTitle());
+
+        assertEquals("title-5", bookService.getBookDetail(bookIds.get(5)).blockingGet().getTitle());
+
+        AuthorDetailResponse authorDetail = authorService.getAuthorDetail(authorId, 5).blockingGet();
+        assertEquals(30, authorDetail.getBookCount());
+        assertEquals(sortedBookIds.subList(0, 5), toIds(authorDetail.getBooks()));
+
+        bookService.deleteBook(bookIds.get(0)).blockingAwait();
+        assertEquals(29, bookService.getAllBooks(50, 0).blockingGet().getBooks().size());
+    }
+
+    @Test
+    public void AddAuthor_ExistingName_ReturnSameIdOnEveryShard() {
+        String authorId = authorService.addAuthor(new AddAuthorRequest("Replicated Author")).blockingGet();
+
+        assertEquals(authorId, authorService.addAuthor(new AddAuthorRequest(" replicated  author ")).blockingGet());
+        assertEquals(Collections.nCopies(3, 1), shardRouter.onEveryShard(
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM authors WHERE id = ?", Integer.class, authorId)));
+    }
+
+    @Test
+    public void GetAllBooks_FollowCursorsSortedByTitle_ReturnEveryBookOnceInOrder() {
+        String authorId = authorService.addAuthor(new AddAuthorRequest("Cursor Author")).blockingGet();
+        List<BookResponse> books = new ArrayList<>();
+        for (int i = 0; i < 13; i++) {
+            String title = "cursor-" + (i % 4);
+            books.add(new BookResponse(bookService.addBook(new AddBookRequest(title, authorId)).blockingGet(), title, null));
+        }
+        books.sort(Comparator.comparing(BookResponse::getTitle).thenComparing(BookResponse::getId));
+
+        List<String> pagedIds = new ArrayList<>();
+        BookCursor after = null;
+        try {
+            do {
+                BookPageResponse page = bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.TITLE, authorId, null,
+                        EnumSet.allOf(BookField.class), false, after)).blockingGet();
+                pagedIds.addAll(toIds(page.getBooks()));
+                after = page.getNextCursor();
+            } while (after != null);
+        } finally {
+            // The other tests page through every book of the shards
+            authorService.deleteAuthorBooks(authorId).blockingGet();
+        }
+
+        assertEquals(toIds(books), pagedIds);
+    }
+
+    private List<String> toIds(List<BookResponse> books) {
+        return books
+                .stream()
+                .map(BookResponse::getId)
+                .collect(Collectors.toList());
+    }
+}
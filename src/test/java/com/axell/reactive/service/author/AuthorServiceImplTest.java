@@ -1,41 +1,352 @@
 package com.axell.reactive.service.author;
 
 import com.axell.reactive.entity.Author;
+import com.axell.reactive.entity.Book;
+import com.axell.reactive.exception.AuthorHasBooksException;
+import com.axell.reactive.exception.DuplicateAuthorException;
 import com.axell.reactive.repository.AuthorRepository;
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.CancellableQueryExecutor;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.catalogcounter.CatalogCounterService;
+import com.axell.reactive.service.invalidation.HybridClock;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.service.invalidation.VersionedCache;
+import com.axell.reactive.service.journal.ChangeJournalService;
+import com.axell.reactive.service.journal.JournalChange;
+import com.axell.reactive.service.journal.JournalEntryType;
 import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.response.AddAuthorsResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import io.reactivex.schedulers.Schedulers;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityNotFoundException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 public class AuthorServiceImplTest {
 
     @Mock
     private AuthorRepository authorRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private CatalogCounterService catalogCounterService;
+    @Mock
+    private CancellableQueryExecutor cancellableQueryExecutor;
+    @Mock
+    private InvalidationService invalidationService;
+    @Mock
+    private ChangeJournalService changeJournalService;
+    @Mock
+    private BookEventService bookEventService;
+    @Spy
+    private VersionedCache<Author> authorCache = new VersionedCache<>(InvalidationType.AUTHOR, new HybridClock(), 60000, 100);
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1);
     @InjectMocks
     private AuthorServiceImpl authorService;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        doAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get())
+                .when(cancellableQueryExecutor).execute(any(), any());
+        ReflectionTestUtils.setField(authorService, "blockingScheduler", Schedulers.trampoline());
+        ReflectionTestUtils.setField(authorService, "lookupChunkSize", 1000);
+        ReflectionTestUtils.setField(authorService, "deleteChunkSize", 2);
     }
 
     @Test
     public void AddAuthor_Success_ReturnSingleOfAddedAuthorId() {
-        when(authorRepository.save(any(Author.class)))
-                .thenReturn(new Author("1", "Axell"));
+        when(authorRepository.findByNormalizedName("axell"))
+                .thenReturn(Optional.empty());
+
+        String addedAuthorId = authorService.addAuthor(new AddAuthorRequest(" Axell"))
+                .test()
+                .assertComplete()
+                .assertNoErrors()
+                .values()
+                .get(0);
+
+        verify(authorRepository, times(1)).insert(argThat(author -> addedAuthorId.equals(author.getId())
+                && " Axell".equals(author.getName()) && "axell".equals(author.getNormalizedName())));
+        verify(catalogCounterService, times(1)).createAuthorBookCounter(addedAuthorId);
+        verify(changeJournalService, times(1)).appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_ADDED, addedAuthorId, " Axell", null));
+    }
+
+    @Test
+    public void AddAuthor_NormalizedNameExists_ReturnSingleOfExistingAuthorId() {
+        when(authorRepository.findByNormalizedName("axell"))
+                .thenReturn(Optional.of(new Author("1", "Axell", "axell")));
+
+        authorService.addAuthor(new AddAuthorRequest("AXELL"))
+                .test()
+                .assertComplete()
+                .assertValue("1")
+                .awaitTerminalEvent();
+
+        verify(authorRepository, never()).insert(any(Author.class));
+        verify(catalogCounterService, never()).createAuthorBookCounter(anyString());
+        verify(changeJournalService, never()).appendOnCommit(any(JournalChange.class));
+    }
+
+    @Test
+    public void AddAuthors_DuplicateAndExistingNames_InsertOnlyNewNormalizedNamesAndMapEveryName() {
+        when(authorRepository.findAllByNormalizedNameIn(Arrays.asList("axell", "jane doe")))
+                .thenReturn(Collections.singletonList(new Author("1", "Axell", "axell")));
+
+        AddAuthorsResponse addAuthorsResponse = authorService.addAuthors(new AddAuthorsRequest(Arrays.asList("Axell", "Jane  Doe", "jane doe")))
+                .test()
+                .assertComplete()
+                .values()
+                .get(0);
+
+        assertEquals(1, addAuthorsResponse.getCreatedCount());
+        assertEquals(Arrays.asList("Axell", "Jane  Doe", "jane doe"), new ArrayList<>(addAuthorsResponse.getAuthorIds().keySet()));
+        assertEquals("1", addAuthorsResponse.getAuthorIds().get("Axell"));
+        String newAuthorId = addAuthorsResponse.getAuthorIds().get("Jane  Doe");
+        assertEquals(newAuthorId, addAuthorsResponse.getAuthorIds().get("jane doe"));
+        verify(authorRepository, times(1)).insertAll(argThat(authors -> {
+            Iterator<Author> iterator = authors.iterator();
+            Author author = iterator.next();
+            return !iterator.hasNext() && newAuthorId.equals(author.getId())
+                    && "Jane  Doe".equals(author.getName()) && "jane doe".equals(author.getNormalizedName());
+        }));
+        verify(catalogCounterService, times(1)).createAuthorBookCounters(Collections.singletonList(newAuthorId));
+        verify(changeJournalService, times(1)).appendOnCommit(Collections.singletonList(
+                new JournalChange(JournalEntryType.AUTHOR_ADDED, newAuthorId, "Jane  Doe", null)));
+    }
+
+    @Test
+    public void AddAuthor_SameNameAddedConcurrently_ThrowDuplicateAuthorException() {
+        when(authorRepository.findByNormalizedName("axell"))
+                .thenReturn(Optional.empty());
+        doThrow(integrityViolation("23505"))
+                .when(authorRepository).insert(any(Author.class));
+
+        authorService.addAuthor(new AddAuthorRequest("Axell"))
+                .test()
+                .assertError(DuplicateAuthorException.class)
+                .awaitTerminalEvent();
+
+        verify(changeJournalService, never()).appendOnCommit(any(JournalChange.class));
+    }
+
+    @Test
+    public void AddAuthors_SameNameAddedConcurrently_ThrowDuplicateAuthorException() {
+        doThrow(integrityViolation("23505"))
+                .when(authorRepository).insertAll(any());
+
+        authorService.addAuthors(new AddAuthorsRequest(Collections.singletonList("Axell")))
+                .test()
+                .assertError(DuplicateAuthorException.class)
+                .awaitTerminalEvent();
+    }
+
+    @Test
+    public void AddAuthors_OtherIntegrityViolation_PassItOn() {
+        doThrow(integrityViolation("23502"))
+                .when(authorRepository).insertAll(any());
+
+        authorService.addAuthors(new AddAuthorsRequest(Collections.singletonList("Axell")))
+                .test()
+                .assertError(DataIntegrityViolationException.class)
+                .awaitTerminalEvent();
+    }
+
+    @Test
+    public void AddAuthors_MoreNamesThanLookupChunk_LookUpExistingAuthorsInChunks() {
+        ReflectionTestUtils.setField(authorService, "lookupChunkSize", 2);
 
-        authorService.addAuthor(new AddAuthorRequest("1"))
+        authorService.addAuthors(new AddAuthorsRequest(Arrays.asList("a", "b", "c")))
+                .test()
+                .assertComplete()
+                .awaitTerminalEvent();
+
+        verify(authorRepository, times(1)).findAllByNormalizedNameIn(Arrays.asList("a", "b"));
+        verify(authorRepository, times(1)).findAllByNormalizedNameIn(Collections.singletonList("c"));
+    }
+
+    @Test
+    public void GetAuthorDetail_Success_ReturnSingleOfAuthorWithFirstBooksPageAndBookCount() {
+        Author author = new Author("1", "Axell");
+        when(authorRepository.findById("1"))
+                .thenReturn(Optional.of(author));
+        when(bookRepository.findAllByAuthorId("1", PageRequest.of(0, 5, Sort.by("id"))))
+                .thenReturn(Collections.singletonList(new Book("2", "Title", author)));
+        when(catalogCounterService.getAuthorBookCount("1"))
+                .thenReturn(7L);
+
+        authorService.getAuthorDetail("1", 5)
                 .test()
                 .assertComplete()
                 .assertNoErrors()
+                .assertValue(authorDetailResponse -> "Axell".equals(authorDetailResponse.getName())
+                        && authorDetailResponse.getBookCount() == 7L
+                        && "2".equals(authorDetailResponse.getBooks().get(0).getId())
+                        && "Axell".equals(authorDetailResponse.getBooks().get(0).getAuthorName()))
                 .awaitTerminalEvent();
 
-        verify(authorRepository, times(1)).save(any(Author.class));
+        verify(bookRepository, times(1)).findAllByAuthorId("1", PageRequest.of(0, 5, Sort.by("id")));
+        verify(catalogCounterService, times(1)).getAuthorBookCount("1");
+    }
+
+    @Test
+    public void GetAuthorDetail_Failed_AuthorIdNotFound_ThrowEntityNotFoundException() {
+        when(authorRepository.findById("1"))
+                .thenReturn(Optional.empty());
+
+        authorService.getAuthorDetail("1", 5)
+                .test()
+                .assertNotComplete()
+                .assertError(EntityNotFoundException.class)
+                .awaitTerminalEvent();
+
+        verify(authorRepository, times(1)).findById("1");
+    }
+
+    @Test
+    public void DeleteAuthorBooks_MoreBooksThanChunk_DeleteInChunksAndPublishEveryBook() {
+        BookSummary book1 = bookSummary("1", "A");
+        BookSummary book2 = bookSummary("2", "B");
+        BookSummary book3 = bookSummary("3", "C");
+        when(authorRepository.existsById("a"))
+                .thenReturn(true);
+        when(bookRepository.findSummaryPageByAuthorId(anySet(), eq("a"), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(book1, book2))
+                .thenReturn(Collections.singletonList(book3));
+        when(bookRepository.deleteAllByIdIn(anyCollection()))
+                .thenReturn(2)
+                .thenReturn(1);
+
+        authorService.deleteAuthorBooks("a")
+                .test()
+                .assertValue(3L);
+
+        verify(bookRepository, times(2)).findSummaryPageByAuthorId(new HashSet<>(Arrays.asList("id", "title")), "a", PageRequest.of(0, 2, Sort.by("id")));
+        verify(bookRepository, times(1)).deleteAllByIdIn(Arrays.asList("1", "2"));
+        verify(bookRepository, times(1)).deleteAllByIdIn(Collections.singletonList("3"));
+        verify(catalogCounterService, times(1)).incrementBookCounters("a", -2);
+        verify(catalogCounterService, times(1)).incrementBookCounters("a", -1);
+        verify(bookEventService, times(3)).publishBookEvent(eq(BookEventType.DELETED), anyString(), isNull());
+        verify(invalidationService, times(1)).invalidate(InvalidationType.BOOK, "3");
+        verify(changeJournalService, times(1)).appendOnCommit(Arrays.asList(
+                new JournalChange(JournalEntryType.BOOK_DELETED, "1", "A", "a"),
+                new JournalChange(JournalEntryType.BOOK_DELETED, "2", "B", "a")));
+    }
+
+    @Test
+    public void DeleteAuthorBooks_AuthorIdNotFound_ThrowEntityNotFoundException() {
+        when(authorRepository.existsById("a"))
+                .thenReturn(false);
+
+        authorService.deleteAuthorBooks("a")
+                .test()
+                .assertError(EntityNotFoundException.class);
+
+        verify(bookRepository, never()).deleteAllByIdIn(anyCollection());
+    }
+
+    @Test
+    public void DeleteAuthor_WithoutCascadeAuthorHasBooks_ThrowAuthorHasBooksException() {
+        BookSummary book1 = bookSummary("1", null);
+        when(authorRepository.findById("a"))
+                .thenReturn(Optional.of(new Author("a", "Axell", "axell")));
+        when(bookRepository.findSummaryPageByAuthorId(anySet(), eq("a"), any(PageRequest.class)))
+                .thenReturn(Collections.singletonList(book1));
+
+        authorService.deleteAuthor("a", false)
+                .test()
+                .assertError(AuthorHasBooksException.class);
+
+        verify(bookRepository, never()).deleteAllByIdIn(anyCollection());
+        verify(authorRepository, never()).deleteAuthorById(anyString());
+    }
+
+    @Test
+    public void DeleteAuthor_CascadeOnTwoShards_DeleteBooksThenAuthorOnEveryShard() {
+        ReflectionTestUtils.setField(shardRouter, "shardCount", 2);
+        BookSummary book1 = bookSummary("1", "A");
+        when(authorRepository.findById("a"))
+                .thenReturn(Optional.of(new Author("a", "Axell", "axell")));
+        when(bookRepository.findSummaryPageByAuthorId(anySet(), eq("a"), any(PageRequest.class)))
+                .thenReturn(Collections.singletonList(book1))
+                .thenReturn(Collections.emptyList());
+        when(bookRepository.deleteAllByIdIn(anyCollection()))
+                .thenReturn(1);
+
+        authorService.deleteAuthor("a", true)
+                .test()
+                .assertComplete();
+
+        InOrder inOrder = inOrder(bookRepository, authorRepository);
+        inOrder.verify(bookRepository, times(1)).deleteAllByIdIn(Collections.singletonList("1"));
+        inOrder.verify(authorRepository, times(2)).deleteAuthorById("a");
+        verify(catalogCounterService, times(2)).deleteAuthorBookCounter("a");
+        verify(invalidationService, times(1)).invalidate(InvalidationType.AUTHOR, "a");
+        verify(changeJournalService, times(1)).appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_DELETED, "a", null, null));
+    }
+
+    @Test
+    public void DeleteAuthor_BookAddedOnSecondShardMeanwhile_RestoreAuthorAndThrowAuthorHasBooksException() {
+        ReflectionTestUtils.setField(shardRouter, "shardCount", 2);
+        when(authorRepository.findById("a"))
+                .thenReturn(Optional.of(new Author("a", "Axell", "axell")));
+        when(bookRepository.findSummaryPageByAuthorId(anySet(), eq("a"), any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+        when(authorRepository.deleteAuthorById("a"))
+                .thenReturn(1)
+                .thenThrow(integrityViolation("23503"));
+
+        authorService.deleteAuthor("a", true)
+                .test()
+                .assertError(AuthorHasBooksException.class);
+
+        verify(authorRepository, times(2)).deleteAuthorById("a");
+        verify(authorRepository, times(1)).insert(argThat(author -> "a".equals(author.getId())
+                && "Axell".equals(author.getName()) && "axell".equals(author.getNormalizedName())));
+        verify(catalogCounterService, times(1)).createAuthorBookCounter("a");
+        verify(invalidationService, never()).invalidate(InvalidationType.AUTHOR, "a");
+        InOrder inOrder = inOrder(changeJournalService);
+        inOrder.verify(changeJournalService, times(1)).appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_DELETED, "a", null, null));
+        inOrder.verify(changeJournalService, times(1)).appendOnCommit(new JournalChange(JournalEntryType.AUTHOR_ADDED, "a", "Axell", null));
+    }
+
+    private BookSummary bookSummary(String id, String title) {
+        BookSummary bookSummary = mock(BookSummary.class);
+        when(bookSummary.getId()).thenReturn(id);
+        when(bookSummary.getTitle()).thenReturn(title);
+        return bookSummary;
+    }
+
+    private DataIntegrityViolationException integrityViolation(String sqlState) {
+        return new DataIntegrityViolationException("could not execute statement", new SQLException("violation", sqlState));
     }
-}
\ No newline at end of file
+}
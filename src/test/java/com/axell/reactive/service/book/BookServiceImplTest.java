@@ -2,12 +2,33 @@ package com.axell.reactive.service.book;
 
 import com.axell.reactive.entity.Author;
 import com.axell.reactive.entity.Book;
+import com.axell.reactive.exception.InvalidRequestException;
 import com.axell.reactive.repository.AuthorRepository;
 import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.CancellableQueryExecutor;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.booksnapshot.BookSnapshotService;
+import com.axell.reactive.service.catalogcounter.CatalogCounterService;
+import com.axell.reactive.service.invalidation.HybridClock;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.service.invalidation.VersionedCache;
+import com.axell.reactive.service.journal.ChangeJournalService;
+import com.axell.reactive.service.journal.JournalChange;
+import com.axell.reactive.service.journal.JournalEntryType;
 import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookCursor;
+import com.axell.reactive.servicedto.request.BookField;
+import com.axell.reactive.servicedto.request.BookPageRequest;
+import com.axell.reactive.servicedto.request.BookSort;
 import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import com.axell.reactive.servicedto.response.BookEventType;
+import com.axell.reactive.servicedto.response.BookPageResponse;
 import com.axell.reactive.servicedto.response.BookResponse;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,16 +36,29 @@ import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.PageImpl;
+import org.mockito.Spy;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 import rx.observers.AssertableSubscriber;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -35,31 +69,55 @@ public class BookServiceImplTest {
     private BookRepository bookRepository;
     @Mock
     private AuthorRepository authorRepository;
+    @Mock
+    private BookEventService bookEventService;
+    @Mock
+    private CatalogCounterService catalogCounterService;
+    @Mock
+    private BookSnapshotService bookSnapshotService;
+    @Mock
+    private CancellableQueryExecutor cancellableQueryExecutor;
+    @Mock
+    private InvalidationService invalidationService;
+    @Mock
+    private ChangeJournalService changeJournalService;
+    @Spy
+    private VersionedCache<BookResponse> bookDetailCache = new VersionedCache<>(InvalidationType.BOOK, new HybridClock(), 60000, 100);
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1);
     @InjectMocks
     private BookServiceImpl bookService;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        when(bookSnapshotService.findBookPage(anyInt(), anyInt()))
+                .thenReturn(Optional.empty());
+        doAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get())
+                .when(cancellableQueryExecutor).execute(any(), any());
+        ReflectionTestUtils.setField(bookService, "blockingScheduler", Schedulers.trampoline());
     }
 
     @Test
     public void AddBook_Success_ReturnSingleOfAddedBookId() {
         when(authorRepository.findById(anyString()))
                 .thenReturn(Optional.of(new Author("1", "1")));
-        when(bookRepository.save(any(Book.class)))
-                .thenReturn(new Book("1", "1", new Author()));
 
-        bookService.addBook(new AddBookRequest("1", "1"))
+        String addedBookId = bookService.addBook(new AddBookRequest("1", "1"))
                 .test()
                 .assertComplete()
                 .assertNoErrors()
-                .assertValue("1")
-                .awaitTerminalEvent();
+                .values()
+                .get(0);
 
         InOrder inOrder = inOrder(authorRepository, bookRepository);
         inOrder.verify(authorRepository, times(1)).findById(anyString());
-        inOrder.verify(bookRepository, times(1)).save(any(Book.class));
+        inOrder.verify(bookRepository, times(1)).insert(argThat(book -> addedBookId.equals(book.getId())
+                && "1".equals(book.getTitle()) && "1".equals(book.getAuthor().getId())));
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(catalogCounterService, times(1)).incrementBookCounters("1", 1);
+        verify(bookEventService, times(1)).publishBookEvent(BookEventType.CREATED, addedBookId, "1");
+        verify(changeJournalService, times(1)).appendOnCommit(new JournalChange(JournalEntryType.BOOK_ADDED, addedBookId, "1", "1"));
     }
 
     @Test
@@ -75,7 +133,7 @@ public class BookServiceImplTest {
 
         InOrder inOrder = inOrder(authorRepository, bookRepository);
         inOrder.verify(authorRepository, times(1)).findById(anyString());
-        inOrder.verify(bookRepository, never()).save(any(Book.class));
+        inOrder.verify(bookRepository, never()).insert(any(Book.class));
     }
 
     @Test
@@ -94,6 +152,8 @@ public class BookServiceImplTest {
         InOrder inOrder = inOrder(bookRepository);
         inOrder.verify(bookRepository, times(1)).findById(anyString());
         inOrder.verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookEventService, times(1)).publishBookEvent(BookEventType.UPDATED, "1", "1");
+        verify(invalidationService, times(1)).invalidate(InvalidationType.BOOK, "1");
     }
 
     @Test
@@ -113,21 +173,214 @@ public class BookServiceImplTest {
     }
 
     @Test
-    public void GetAllBooks_Success_ReturnSingleOfBookResponseList() {
-        Book book1 = new Book("1", "1", new Author());
-        Book book2 = new Book("2", "2", new Author());
+    public void GetAllBooks_Success_ReturnSingleOfBookPageResponseWithCountedTotal() {
+        BookSummary bookSummary1 = bookSummary("1", "1");
+        BookSummary bookSummary2 = bookSummary("2", "2");
 
-        when(bookRepository.findAll(any(PageRequest.class)))
-                .thenReturn(new PageImpl<>(
-                        Arrays.asList(book1, book2)));
+        when(bookRepository.findSummaryPage(anySet(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(bookSummary1, bookSummary2));
+        when(catalogCounterService.getTotalBookCount())
+                .thenReturn(7L);
 
-        TestObserver<List<BookResponse>> testObserver = bookService.getAllBooks(1, 1).test();
+        TestObserver<BookPageResponse> testObserver = bookService.getAllBooks(1, 1).test();
 
         testObserver.awaitTerminalEvent();
 
-        testObserver.assertValue(bookResponses -> bookResponses.get(0).getId().equals("1") && bookResponses.get(1).getId().equals("2"));
+        testObserver.assertValue(bookPageResponse -> bookPageResponse.getBooks().get(0).getId().equals("1")
+                && bookPageResponse.getBooks().get(1).getId().equals("2")
+                && bookPageResponse.getTotalBooks() == 7);
+
+        verify(bookRepository, times(1)).findSummaryPage(allProperties(), null, null, PageRequest.of(1, 1, Sort.by("id")));
+        verify(bookRepository, never()).count();
+    }
+
+    @Test
+    public void GetAllBooks_SnapshotCurrent_ReturnSingleOfSnapshotPageWithoutQuery() {
+        BookPageResponse snapshotPage = new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1);
+        when(bookSnapshotService.findBookPage(5, 0))
+                .thenReturn(Optional.of(snapshotPage));
+
+        bookService.getAllBooks(5, 0)
+                .test()
+                .assertValue(snapshotPage)
+                .awaitTerminalEvent();
+
+        verify(cancellableQueryExecutor, never()).execute(any(), any());
+    }
+
+    @Test
+    public void GetAllBooks_TwoShards_ReturnSingleOfPageMergedByIdFromBothShards() {
+        ReflectionTestUtils.setField(shardRouter, "shardCount", 2);
+        List<BookSummary> shard0Page = Arrays.asList(bookSummary("1", "1"), bookSummary("4", "4"));
+        List<BookSummary> shard1Page = Arrays.asList(bookSummary("2", "2"), bookSummary("3", "3"));
+        when(bookRepository.findSummaryPage(anySet(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(shard0Page)
+                .thenReturn(shard1Page);
+
+        TestObserver<BookPageResponse> testObserver = bookService.getAllBooks(2, 1).test();
+
+        testObserver.awaitTerminalEvent();
+
+        testObserver.assertValue(bookPageResponse -> bookPageResponse.getBooks().size() == 2
+                && bookPageResponse.getBooks().get(0).getId().equals("3")
+                && bookPageResponse.getBooks().get(1).getId().equals("4"));
+
+        verify(bookRepository, times(2)).findSummaryPage(allProperties(), null, null, PageRequest.of(0, 4, Sort.by("id")));
+        verify(shardRouter, times(1)).onShard(eq(0), any());
+        verify(shardRouter, times(1)).onShard(eq(1), any());
+    }
+
+    @Test
+    public void GetAllBooks_SortedByAuthorNameOnTwoShards_ReturnSingleOfPageMergedByAuthorNameThenId() {
+        ReflectionTestUtils.setField(shardRouter, "shardCount", 2);
+        List<BookSummary> shard0Page = Arrays.asList(bookSummary("2", "2", "Ann"), bookSummary("3", "3", "Bob"));
+        List<BookSummary> shard1Page = Arrays.asList(bookSummary("1", "1", "Ann"), bookSummary("4", "4", "Cid"));
+        when(bookRepository.findSummaryPage(anySet(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(shard0Page)
+                .thenReturn(shard1Page);
+        when(catalogCounterService.getTotalBookCount())
+                .thenReturn(4L);
+
+        bookService.getAllBooks(new BookPageRequest(3, 0, BookSort.AUTHOR_NAME, null, null, EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertValue(bookPageResponse -> bookPageResponse.getBooks()
+                        .stream()
+                        .map(BookResponse::getId)
+                        .collect(Collectors.toList())
+                        .equals(Arrays.asList("1", "2", "3")));
+
+        verify(bookRepository, times(2)).findSummaryPage(allProperties(), null, null, PageRequest.of(0, 3, Sort.by("authorName", "id")));
+        verify(bookSnapshotService, never()).findBookPage(anyInt(), anyInt());
+    }
+
+    @Test
+    public void GetAllBooks_AfterCursorOnTwoShards_ReturnSingleOfMergedPageWithNextCursor() {
+        ReflectionTestUtils.setField(shardRouter, "shardCount", 2);
+        List<BookSummary> shard0Page = Arrays.asList(bookSummary("7", "Emma"), bookSummary("2", "Ulysses"));
+        List<BookSummary> shard1Page = Arrays.asList(bookSummary("6", "Dune"), bookSummary("1", "Emma"));
+        when(bookRepository.findSummaryPage(anySet(), eq("Dracula"), eq("3"), any(PageRequest.class)))
+                .thenReturn(shard0Page)
+                .thenReturn(shard1Page);
+        when(catalogCounterService.getTotalBookCount())
+                .thenReturn(9L);
+
+        bookService.getAllBooks(new BookPageRequest(2, 0, BookSort.TITLE, null, null, EnumSet.allOf(BookField.class), false,
+                new BookCursor(BookSort.TITLE, "Dracula", "3")))
+                .test()
+                .assertValue(bookPageResponse -> bookPageResponse.getBooks()
+                        .stream()
+                        .map(BookResponse::getId)
+                        .collect(Collectors.toList())
+                        .equals(Arrays.asList("6", "1"))
+                        && new BookCursor(BookSort.TITLE, "Emma", "1").equals(bookPageResponse.getNextCursor()));
+
+        verify(bookRepository, times(2)).findSummaryPage(allProperties(), "Dracula", "3", PageRequest.of(0, 2, Sort.by("title", "id")));
+    }
+
+    @Test
+    public void GetAllBooks_AfterCursorSortedById_ReturnSingleOfRepositoryPageWithoutSnapshot() {
+        List<BookSummary> page = Collections.singletonList(bookSummary("4", "4"));
+        when(bookRepository.findSummaryPage(anySet(), isNull(), eq("3"), any(PageRequest.class)))
+                .thenReturn(page);
+
+        bookService.getAllBooks(new BookPageRequest(2, 0, BookSort.ID, null, null, EnumSet.allOf(BookField.class), false,
+                new BookCursor(BookSort.ID, null, "3")))
+                .test()
+                .assertValue(bookPageResponse -> bookPageResponse.getBooks().size() == 1 && bookPageResponse.getNextCursor() == null);
+
+        verify(bookSnapshotService, never()).findBookPage(anyInt(), anyInt());
+    }
+
+    @Test
+    public void GetAllBooks_TitlePrefixSortedByTitle_ReturnSingleOfTitleRangePageWithCountedTotal() {
+        BookSummary bookSummary = bookSummary("1", "Hamlet");
+        when(bookRepository.findSummaryPageByTitleRange(anySet(), eq("Ha"), eq("Hb"), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Collections.singletonList(bookSummary));
+        when(bookRepository.countByTitleRange("Ha", "Hb"))
+                .thenReturn(3L);
+
+        bookService.getAllBooks(new BookPageRequest(1, 2, BookSort.TITLE, null, "Ha", EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertValue(bookPageResponse -> bookPageResponse.getBooks().get(0).getTitle().equals("Hamlet")
+                        && bookPageResponse.getTotalBooks() == 3);
+
+        verify(bookRepository, times(1)).findSummaryPageByTitleRange(allProperties(), "Ha", "Hb", null, null, PageRequest.of(2, 1, Sort.by("title", "id")));
+        verify(catalogCounterService, never()).getTotalBookCount();
+    }
+
+    @Test
+    public void GetAllBooks_AuthorFilter_ReturnSingleOfAuthorPageWithAuthorCounterTotal() {
+        BookSummary bookSummary = bookSummary("1", "1");
+        when(bookRepository.findSummaryPageByAuthorId(anySet(), eq("1"), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Collections.singletonList(bookSummary));
+        when(catalogCounterService.getAuthorBookCount("1"))
+                .thenReturn(9L);
+
+        bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.TITLE, "1", null, EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertValue(bookPageResponse -> bookPageResponse.getBooks().size() == 1
+                        && bookPageResponse.getTotalBooks() == 9);
 
-        verify(bookRepository, times(1)).findAll(any(PageRequest.class));
+        verify(bookRepository, times(1)).findSummaryPageByAuthorId(allProperties(), "1", null, null, PageRequest.of(0, 5, Sort.by("title", "id")));
+    }
+
+    @Test
+    public void GetAllBooks_CombinationWithoutIndex_ThrowInvalidRequestException() {
+        bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.ID, null, "Ha", EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertError(InvalidRequestException.class);
+        bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.TITLE, "1", "Ha", EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertError(InvalidRequestException.class);
+
+        verify(cancellableQueryExecutor, never()).execute(any(), any());
+    }
+
+    @Test
+    public void GetAllBooks_TitlePrefixEndingInLastCharacter_QueryRangeAfterShorterPrefix() {
+        when(bookRepository.findSummaryPageByTitleRange(anySet(), anyString(), anyString(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+
+        bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.TITLE, null, "Ha\uffff", EnumSet.allOf(BookField.class), false))
+                .test()
+                .assertComplete();
+
+        verify(bookRepository, times(1)).findSummaryPageByTitleRange(anySet(), eq("Ha\uffff"), eq("Hb"), isNull(), isNull(), any(PageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_IdFieldSortedByTitle_SelectOnlyIdAndSortKey() {
+        when(bookRepository.findSummaryPage(anySet(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+
+        bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.TITLE, null, null, EnumSet.of(BookField.ID), false))
+                .test()
+                .assertComplete();
+
+        verify(bookRepository, times(1)).findSummaryPage(new HashSet<>(Arrays.asList("id", "title")), null, null, PageRequest.of(0, 5, Sort.by("title", "id")));
+    }
+
+    @Test
+    public void GetAllBooks_Normalized_ReturnSingleOfPageMappingEachAuthorOnceWithoutSnapshot() {
+        BookSummary bookSummary1 = bookSummary("1", "1", "Ann", new String("a"));
+        BookSummary bookSummary2 = bookSummary("2", "2", "Bob", "b");
+        BookSummary bookSummary3 = bookSummary("3", "3", new String("Ann"), new String("a"));
+        when(bookRepository.findSummaryPage(anySet(), isNull(), isNull(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(bookSummary1, bookSummary2, bookSummary3));
+        when(catalogCounterService.getTotalBookCount())
+                .thenReturn(3L);
+
+        BookPageResponse bookPageResponse = bookService.getAllBooks(new BookPageRequest(5, 0, BookSort.ID, null, null, EnumSet.allOf(BookField.class), true))
+                .blockingGet();
+
+        Map<String, String> authors = new HashMap<>();
+        authors.put("a", "Ann");
+        authors.put("b", "Bob");
+        assertThat(bookPageResponse.getAuthors(), equalTo(authors));
+        assertThat(bookPageResponse.getBooks().get(0).getAuthorName(), nullValue());
+        assertThat(bookPageResponse.getBooks().get(2).getAuthorId(), sameInstance(bookPageResponse.getBooks().get(0).getAuthorId()));
+        verify(bookRepository, times(1)).findSummaryPage(new HashSet<>(Arrays.asList("id", "title", "authorName", "authorId")), null, null, PageRequest.of(0, 5, Sort.by("id")));
+        verify(bookSnapshotService, never()).findBookPage(anyInt(), anyInt());
     }
 
     @Test
@@ -146,6 +399,20 @@ public class BookServiceImplTest {
         verify(bookRepository, times(1)).findById(anyString());
     }
 
+    @Test
+    public void GetBookDetail_ReadTwice_QueryOnceAndServeSecondFromCache() {
+        when(bookRepository.findById("1"))
+                .thenReturn(Optional.of(new Book("1", "1", new Author("1", "1"))));
+
+        bookService.getBookDetail("1").test().awaitTerminalEvent();
+        bookService.getBookDetail("1")
+                .test()
+                .assertValue(bookResponse -> bookResponse.getTitle().equals("1"))
+                .awaitTerminalEvent();
+
+        verify(bookRepository, times(1)).findById("1");
+    }
+
     @Test
     public void GetBookDetail_Failed_IdNotFound_ThrowEntityNotFoundException() {
         when(bookRepository.findById(anyString()))
@@ -160,10 +427,32 @@ public class BookServiceImplTest {
         verify(bookRepository, times(1)).findById(anyString());
     }
 
+    @Test
+    public void GetBooks_SomeIdsNotFound_ReturnLookupsInRequestOrderFromOneQuery() {
+        BookSummary bookSummary1 = bookSummary("1", "Title 1");
+        BookSummary bookSummary2 = bookSummary("2", "Title 2");
+        when(bookRepository.findAllSummariesByIdIn(any()))
+                .thenReturn(Arrays.asList(bookSummary1, bookSummary2));
+
+        bookService.getBooks(Arrays.asList("2", "missing", "1", "2"))
+                .test()
+                .assertComplete()
+                .assertValue(bookLookupResponses -> bookLookupResponses.size() == 4
+                        && "Title 2".equals(bookLookupResponses.get(0).getBook().getTitle())
+                        && "missing".equals(bookLookupResponses.get(1).getId())
+                        && bookLookupResponses.get(1).getBook() == null
+                        && "Title 1".equals(bookLookupResponses.get(2).getBook().getTitle())
+                        && "Axell".equals(bookLookupResponses.get(3).getBook().getAuthorName()))
+                .awaitTerminalEvent();
+
+        verify(bookRepository, times(1)).findAllSummariesByIdIn(new LinkedHashSet<>(Arrays.asList("2", "missing", "1")));
+        verify(bookRepository, never()).findById(anyString());
+    }
+
     @Test
     public void DeleteBook_Success_ReturnCompletable() {
         when(bookRepository.findById(anyString()))
-                .thenReturn(Optional.of(new Book("1", "1", new Author())));
+                .thenReturn(Optional.of(new Book("1", "1", new Author("2", "2"))));
         doNothing().when(bookRepository).delete(any(Book.class));
 
         bookService.deleteBook("1")
@@ -175,6 +464,8 @@ public class BookServiceImplTest {
         InOrder inOrder = inOrder(bookRepository);
         inOrder.verify(bookRepository, times(1)).findById(anyString());
         inOrder.verify(bookRepository, times(1)).delete(any(Book.class));
+        verify(catalogCounterService, times(1)).incrementBookCounters("2", -1);
+        verify(bookEventService, times(1)).publishBookEvent(BookEventType.DELETED, "1", null);
     }
 
     @Test
@@ -191,5 +482,27 @@ public class BookServiceImplTest {
         InOrder inOrder = inOrder(bookRepository);
         inOrder.verify(bookRepository, times(1)).findById(anyString());
         inOrder.verify(bookRepository, never()).delete(any(Book.class));
+        verify(catalogCounterService, never()).incrementBookCounters(anyString(), anyLong());
+    }
+
+    private BookSummary bookSummary(String id, String title) {
+        return bookSummary(id, title, "Axell");
+    }
+
+    private BookSummary bookSummary(String id, String title, String authorName) {
+        return bookSummary(id, title, authorName, null);
+    }
+
+    private BookSummary bookSummary(String id, String title, String authorName, String authorId) {
+        BookSummary bookSummary = mock(BookSummary.class);
+        when(bookSummary.getAuthorId()).thenReturn(authorId);
+        when(bookSummary.getId()).thenReturn(id);
+        when(bookSummary.getTitle()).thenReturn(title);
+        when(bookSummary.getAuthorName()).thenReturn(authorName);
+        return bookSummary;
+    }
+
+    private Set<String> allProperties() {
+        return new HashSet<>(Arrays.asList("id", "title", "authorName"));
     }
-}
\ No newline at end of file
+}
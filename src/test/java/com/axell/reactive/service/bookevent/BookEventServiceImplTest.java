@@ -0,0 +1,89 @@
+package com.axell.reactive.service.bookevent;
+
+import com.axell.reactive.servicedto.response.BookEventResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class BookEventServiceImplTest {
+
+    private BookEventServiceImpl bookEventService;
+
+    @Before
+    public void setUp() throws Exception {
+        bookEventService = new BookEventServiceImpl();
+        ReflectionTestUtils.setField(bookEventService, "historySize", 3);
+        bookEventService.init();
+    }
+
+    @Test
+    public void GetBookEvents_NoLastEventId_EmitOnlyEventsPublishedAfterSubscribing() {
+        bookEventService.publishBookEvent(BookEventType.CREATED, "1", "1");
+
+        TestSubscriber<BookEventResponse> testSubscriber = bookEventService.getBookEvents(null).test();
+
+        bookEventService.publishBookEvent(BookEventType.UPDATED, "1", "2");
+
+        testSubscriber.assertValueCount(1)
+                .assertValue(bookEventResponse -> bookEventResponse.getSequence() == 2 &&
+                        bookEventResponse.getType() == BookEventType.UPDATED)
+                .assertNotComplete();
+    }
+
+    @Test
+    public void GetBookEvents_LastEventIdRetained_ReplayEventsAfterLastEventId() {
+        bookEventService.publishBookEvent(BookEventType.CREATED, "1", "1");
+        bookEventService.publishBookEvent(BookEventType.UPDATED, "1", "2");
+        bookEventService.publishBookEvent(BookEventType.DELETED, "1", null);
+
+        bookEventService.getBookEvents(1L)
+                .test()
+                .assertValueCount(2)
+                .assertValueAt(0, bookEventResponse -> bookEventResponse.getSequence() == 2)
+                .assertValueAt(1, bookEventResponse -> bookEventResponse.getSequence() == 3);
+    }
+
+    @Test
+    public void GetBookEvents_LastEventIdNoLongerRetained_EmitResyncBeforeRetainedEvents() {
+        for (int i = 0; i < 5; i++)
+            bookEventService.publishBookEvent(BookEventType.CREATED, String.valueOf(i), "title");
+
+        bookEventService.getBookEvents(1L)
+                .test()
+                .assertValueCount(4)
+                .assertValueAt(0, bookEventResponse -> bookEventResponse.getType() == BookEventType.RESYNC &&
+                        bookEventResponse.getSequence() == 2)
+                .assertValueAt(1, bookEventResponse -> bookEventResponse.getSequence() == 3);
+    }
+
+    @Test
+    public void GetBookEvents_SubscriberRequestsOneAtATime_ReplayEveryRetainedEvent() {
+        for (int i = 0; i < 3; i++)
+            bookEventService.publishBookEvent(BookEventType.CREATED, String.valueOf(i), "title");
+
+        TestSubscriber<BookEventResponse> testSubscriber = bookEventService.getBookEvents(0L).test(1);
+
+        testSubscriber.assertValueCount(1);
+        testSubscriber.request(1);
+        testSubscriber.request(1);
+        testSubscriber.assertValueCount(3)
+                .assertValueAt(2, bookEventResponse -> bookEventResponse.getSequence() == 3)
+                .assertNoErrors()
+                .assertNotComplete();
+    }
+
+    @Test
+    public void GetBookEvents_SubscriberFellOutOfHistory_CompleteSubscriber() {
+        TestSubscriber<BookEventResponse> testSubscriber = bookEventService.getBookEvents(null).test(0);
+
+        for (int i = 0; i < 4; i++)
+            bookEventService.publishBookEvent(BookEventType.CREATED, String.valueOf(i), "title");
+        testSubscriber.request(1);
+
+        testSubscriber.assertNoValues()
+                .assertNoErrors()
+                .assertComplete();
+    }
+}
@@ -0,0 +1,144 @@
+package com.axell.reactive.service.booksnapshot;
+
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.service.invalidation.Invalidation;
+import com.axell.reactive.service.invalidation.InvalidationListener;
+import com.axell.reactive.service.invalidation.InvalidationService;
+import com.axell.reactive.service.invalidation.InvalidationType;
+import com.axell.reactive.servicedto.response.BookPageResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BookSnapshotServiceImplTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private BookEventService bookEventService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private InvalidationService invalidationService;
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1);
+    @InjectMocks
+    private BookSnapshotServiceImpl bookSnapshotService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(bookSnapshotService, "enabled", true);
+        ReflectionTestUtils.setField(bookSnapshotService, "directory", "");
+        when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(new SimpleTransactionStatus());
+        BookSummary bookSummary = mock(BookSummary.class);
+        when(bookSummary.getId()).thenReturn("1");
+        when(bookSummary.getTitle()).thenReturn("Title");
+        when(bookSummary.getAuthorName()).thenReturn("Axell");
+        when(bookRepository.findAllSummaries())
+                .thenReturn(Collections.singletonList(bookSummary));
+    }
+
+    @Test
+    public void FindBookPage_SnapshotAtCurrentSequence_ReturnPageFromSnapshot() {
+        when(bookEventService.getLastSequence()).thenReturn(5L);
+        bookSnapshotService.refresh();
+
+        Optional<BookPageResponse> bookPage = bookSnapshotService.findBookPage(5, 0);
+
+        assertTrue(bookPage.isPresent());
+        assertEquals(1, bookPage.get().getTotalBooks());
+        assertEquals("Axell", bookPage.get().getBooks().get(0).getAuthorName());
+    }
+
+    @Test
+    public void FindBookPage_BookWrittenSinceSnapshot_ReturnEmpty() {
+        when(bookEventService.getLastSequence()).thenReturn(5L, 6L);
+        bookSnapshotService.refresh();
+
+        assertFalse(bookSnapshotService.findBookPage(5, 0).isPresent());
+    }
+
+    @Test
+    public void Refresh_SequenceUnchanged_SkipRebuild() {
+        when(bookEventService.getLastSequence()).thenReturn(5L);
+
+        bookSnapshotService.refresh();
+        bookSnapshotService.refresh();
+
+        verify(bookRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    public void Refresh_DirectoryConfigured_MapSnapshotFileAndDeleteReplacedOne() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        ReflectionTestUtils.setField(bookSnapshotService, "directory", directory.getPath());
+        when(bookEventService.getLastSequence()).thenReturn(5L);
+        bookSnapshotService.refresh();
+        assertTrue(new File(directory, "book-snapshot-5-0.bin").exists());
+
+        when(bookEventService.getLastSequence()).thenReturn(6L);
+        bookSnapshotService.refresh();
+
+        assertFalse(new File(directory, "book-snapshot-5-0.bin").exists());
+        assertTrue(new File(directory, "book-snapshot-6-0.bin").exists());
+        assertEquals("Title", bookSnapshotService.findBookPage(5, 0).get().getBooks().get(0).getTitle());
+    }
+
+    @Test
+    public void Refresh_RemoteWriteArrivedWhileReading_DoNotServeSnapshotUntilRebuilt() {
+        bookSnapshotService.init();
+        ArgumentCaptor<InvalidationListener> listener = ArgumentCaptor.forClass(InvalidationListener.class);
+        verify(invalidationService).addListener(listener.capture());
+        List<BookSummary> bookSummaries = bookRepository.findAllSummaries();
+        when(bookRepository.findAllSummaries())
+                .thenAnswer(invocation -> {
+                    listener.getValue().onInvalidations(Collections.singletonList(new Invalidation(InvalidationType.BOOK, "2", 1)), true);
+                    return bookSummaries;
+                })
+                .thenReturn(bookSummaries);
+        when(bookEventService.getLastSequence()).thenReturn(5L);
+
+        bookSnapshotService.refresh();
+        assertFalse(bookSnapshotService.findBookPage(5, 0).isPresent());
+
+        bookSnapshotService.refresh();
+        assertTrue(bookSnapshotService.findBookPage(5, 0).isPresent());
+    }
+
+    @Test
+    public void Refresh_Disabled_DoNotBuildSnapshot() {
+        ReflectionTestUtils.setField(bookSnapshotService, "enabled", false);
+
+        bookSnapshotService.refresh();
+
+        verify(bookRepository, never()).findAllSummaries();
+        assertFalse(bookSnapshotService.findBookPage(5, 0).isPresent());
+    }
+}
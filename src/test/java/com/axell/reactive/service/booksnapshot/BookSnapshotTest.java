@@ -0,0 +1,51 @@
+package com.axell.reactive.service.booksnapshot;
+
+import com.axell.reactive.repository.BookSummary;
+import com.axell.reactive.servicedto.response.BookResponse;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookSnapshotTest {
+
+    @Test
+    public void GetPage_RowsWritten_ReturnRowsOfPageInWrittenOrder() {
+        BookSnapshot bookSnapshot = BookSnapshot.write(3, 0, Arrays.asList(
+                bookSummary("1", "Erster Band", "Jörg"),
+                bookSummary("2", null, null),
+                bookSummary("3", "Third", "Axell")), ByteBuffer::allocateDirect);
+
+        List<BookResponse> books = bookSnapshot.getPage(2, 0);
+
+        assertEquals(3, bookSnapshot.getSequence());
+        assertEquals(3, bookSnapshot.size());
+        assertEquals(2, books.size());
+        assertEquals("Jörg", books.get(0).getAuthorName());
+        assertEquals("2", books.get(1).getId());
+        assertNull(books.get(1).getTitle());
+        assertNull(books.get(1).getAuthorName());
+        assertEquals("Third", bookSnapshot.getPage(2, 1).get(0).getTitle());
+    }
+
+    @Test
+    public void GetPage_PageBeyondLastRow_ReturnEmptyList() {
+        BookSnapshot bookSnapshot = BookSnapshot.write(0, 0, Arrays.asList(bookSummary("1", "1", "1")), ByteBuffer::allocate);
+
+        assertTrue(bookSnapshot.getPage(10, 1).isEmpty());
+        assertTrue(bookSnapshot.getPage(Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+    }
+
+    private BookSummary bookSummary(String id, String title, String authorName) {
+        BookSummary bookSummary = mock(BookSummary.class);
+        when(bookSummary.getId()).thenReturn(id);
+        when(bookSummary.getTitle()).thenReturn(title);
+        when(bookSummary.getAuthorName()).thenReturn(authorName);
+        return bookSummary;
+    }
+}
@@ -0,0 +1,173 @@
+package com.axell.reactive.service.catalogcounter;
+
+import com.axell.reactive.entity.CatalogCounter;
+import com.axell.reactive.repository.AuthorBookCount;
+import com.axell.reactive.repository.BookRepository;
+import com.axell.reactive.repository.CatalogCounterRepository;
+import com.axell.reactive.repository.sharding.ShardRouter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class CatalogCounterServiceImplTest {
+
+    @Mock
+    private CatalogCounterRepository catalogCounterRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1);
+    @InjectMocks
+    private CatalogCounterServiceImpl catalogCounterService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenReturn(new SimpleTransactionStatus());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void IncrementBookCounters_Success_UpdateStoredCountersAndCachedCountersAfterCommit() {
+        when(catalogCounterRepository.findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY))
+                .thenReturn(Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 3)));
+        when(catalogCounterRepository.increment(anyString(), anyLong()))
+                .thenReturn(1);
+        assertEquals(3, catalogCounterService.getTotalBookCount());
+
+        catalogCounterService.incrementBookCounters("1", 1);
+
+        assertEquals(3, catalogCounterService.getTotalBookCount());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(4, catalogCounterService.getTotalBookCount());
+        verify(catalogCounterRepository, times(1)).increment(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 1);
+        verify(catalogCounterRepository, times(1)).increment("books.author.1", 1);
+        verify(catalogCounterRepository, times(1)).findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY);
+    }
+
+    @Test
+    public void IncrementBookCounters_CounterRowMissing_InsertCounterRow() {
+        when(catalogCounterRepository.increment(anyString(), anyLong()))
+                .thenReturn(0);
+
+        catalogCounterService.incrementBookCounters("1", 1);
+
+        verify(catalogCounterRepository, times(1)).insert(argThat(catalogCounter ->
+                "books.author.1".equals(catalogCounter.getCounterKey()) && catalogCounter.getCounterValue() == 1));
+    }
+
+    @Test
+    public void GetAuthorBookCount_CounterRowMissing_ReturnZeroWithoutCaching() {
+        when(catalogCounterRepository.findById(anyString()))
+                .thenReturn(Optional.empty());
+
+        assertEquals(0, catalogCounterService.getAuthorBookCount("1"));
+        assertEquals(0, catalogCounterService.getAuthorBookCount("1"));
+
+        verify(catalogCounterRepository, times(2)).findById("books.author.1");
+    }
+
+    @Test
+    public void Reconcile_CountersDrifted_AddDifferencesToStoredCountersAndReloadCachedCounters() {
+        when(catalogCounterRepository.findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY))
+                .thenReturn(Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 5)))
+                .thenReturn(Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 3)));
+        assertEquals(5, catalogCounterService.getTotalBookCount());
+        AuthorBookCount authorBookCount = authorBookCount("2", 3);
+        when(bookRepository.count())
+                .thenReturn(3L);
+        when(bookRepository.countAllGroupByAuthorId())
+                .thenReturn(Collections.singletonList(authorBookCount));
+        when(catalogCounterRepository.findAll())
+                .thenReturn(Arrays.asList(
+                        new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 5),
+                        new CatalogCounter("books.author.1", 2)));
+
+        catalogCounterService.reconcile();
+
+        assertEquals(3, catalogCounterService.getTotalBookCount());
+        verify(catalogCounterRepository, times(1)).increment(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, -2);
+        verify(catalogCounterRepository, times(1)).increment("books.author.1", -2);
+        verify(catalogCounterRepository, times(1)).insert(argThat(catalogCounter ->
+                "books.author.2".equals(catalogCounter.getCounterKey()) && catalogCounter.getCounterValue() == 3));
+        verify(transactionManager, times(1)).commit(any());
+        verify(catalogCounterRepository, times(2)).findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY);
+    }
+
+    @Test
+    public void Reconcile_WriteCommittedWhileCounterLoaded_ReloadCachedCounter() {
+        when(catalogCounterRepository.increment(anyString(), anyLong()))
+                .thenReturn(1);
+        when(catalogCounterRepository.findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY))
+                .thenAnswer(invocation -> {
+                    catalogCounterService.incrementBookCounters("1", 1);
+                    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+                    return Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 3));
+                })
+                .thenReturn(Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 4)));
+        assertEquals(3, catalogCounterService.getTotalBookCount());
+        AuthorBookCount authorBookCount = authorBookCount("1", 4);
+        when(bookRepository.count())
+                .thenReturn(4L);
+        when(bookRepository.countAllGroupByAuthorId())
+                .thenReturn(Collections.singletonList(authorBookCount));
+        when(catalogCounterRepository.findAll())
+                .thenReturn(Arrays.asList(
+                        new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 4),
+                        new CatalogCounter("books.author.1", 4)));
+
+        catalogCounterService.reconcile();
+
+        assertEquals(4, catalogCounterService.getTotalBookCount());
+        verify(catalogCounterRepository, times(2)).findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY);
+    }
+
+    @Test
+    public void GetTotalBookCount_CachedCountersDroppedWhileLoaded_LoadAgainOnNextRead() {
+        when(catalogCounterRepository.findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY))
+                .thenAnswer(invocation -> {
+                    catalogCounterService.reconcile();
+                    return Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 3));
+                })
+                .thenReturn(Optional.of(new CatalogCounter(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY, 4)));
+
+        assertEquals(3, catalogCounterService.getTotalBookCount());
+        assertEquals(4, catalogCounterService.getTotalBookCount());
+        assertEquals(4, catalogCounterService.getTotalBookCount());
+
+        verify(catalogCounterRepository, times(2)).findById(CatalogCounterServiceImpl.TOTAL_BOOKS_KEY);
+    }
+
+    private AuthorBookCount authorBookCount(String authorId, long bookCount) {
+        AuthorBookCount authorBookCount = mock(AuthorBookCount.class);
+        when(authorBookCount.getAuthorId()).thenReturn(authorId);
+        when(authorBookCount.getBookCount()).thenReturn(bookCount);
+        return authorBookCount;
+    }
+}
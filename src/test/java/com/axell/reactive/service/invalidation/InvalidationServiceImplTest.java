@@ -0,0 +1,105 @@
+package com.axell.reactive.service.invalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class InvalidationServiceImplTest {
+
+    @Mock
+    private InvalidationTransport invalidationTransport;
+    @Mock
+    private InvalidationListener invalidationListener;
+    @Spy
+    private HybridClock hybridClock = new HybridClock();
+    @InjectMocks
+    private InvalidationServiceImpl invalidationService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        invalidationService.addListener(invalidationListener);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void Flush_SameBookWrittenTwice_SendOneInvalidationWithLatestVersion() {
+        invalidationService.invalidate(InvalidationType.BOOK, "1");
+        invalidationService.invalidate(InvalidationType.BOOK, "1");
+        invalidationService.invalidate(InvalidationType.AUTHOR, "1");
+        invalidationService.flush();
+        invalidationService.flush();
+
+        ArgumentCaptor<List<Invalidation>> localInvalidations = ArgumentCaptor.forClass(List.class);
+        verify(invalidationListener, times(3)).onInvalidations(localInvalidations.capture(), eq(false));
+        Invalidation latestBookInvalidation = localInvalidations.getAllValues().get(1).get(0);
+        Invalidation authorInvalidation = localInvalidations.getAllValues().get(2).get(0);
+        ArgumentCaptor<List<Invalidation>> sentInvalidations = ArgumentCaptor.forClass(List.class);
+        verify(invalidationTransport, times(1)).send(sentInvalidations.capture());
+        assertEquals(2, sentInvalidations.getValue().size());
+        assertTrue(sentInvalidations.getValue().containsAll(Arrays.asList(latestBookInvalidation, authorInvalidation)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void Receive_RemoteInvalidation_NotifyListenersAndAdvanceClock() {
+        invalidationService.init();
+        ArgumentCaptor<Consumer<List<Invalidation>>> receiver = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationTransport).start(receiver.capture());
+        long remoteVersion = hybridClock.now() + (1L << 30);
+        List<Invalidation> remoteInvalidations = Collections.singletonList(new Invalidation(InvalidationType.BOOK, "1", remoteVersion));
+
+        receiver.getValue().accept(remoteInvalidations);
+
+        ArgumentCaptor<List<Invalidation>> receivedInvalidations = ArgumentCaptor.forClass(List.class);
+        verify(invalidationListener, times(1)).onInvalidations(receivedInvalidations.capture(), eq(true));
+        verify(invalidationListener, never()).onInvalidations(any(), eq(false));
+        Invalidation receivedInvalidation = receivedInvalidations.getValue().get(0);
+        assertEquals(InvalidationType.BOOK, receivedInvalidation.getType());
+        assertEquals("1", receivedInvalidation.getId());
+        assertTrue(receivedInvalidation.getVersion() > remoteVersion);
+        assertTrue(hybridClock.now() > receivedInvalidation.getVersion());
+        invalidationService.flush();
+        verify(invalidationTransport, never()).send(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void Receive_RemoteWallClockLagsBehind_InvalidateLoadsStartedBeforeReceipt() {
+        long remoteLagMillis = 10_000;
+        HybridClock localClock = new HybridClock();
+        HybridClock remoteClock = new HybridClock(() -> System.currentTimeMillis() - remoteLagMillis);
+        InvalidationServiceImpl localInvalidationService = new InvalidationServiceImpl();
+        ReflectionTestUtils.setField(localInvalidationService, "invalidationTransport", invalidationTransport);
+        ReflectionTestUtils.setField(localInvalidationService, "hybridClock", localClock);
+        VersionedCache<String> bookCache = new VersionedCache<>(InvalidationType.BOOK, localClock, 60_000, 10);
+        localInvalidationService.addListener(bookCache);
+        localInvalidationService.init();
+        ArgumentCaptor<Consumer<List<Invalidation>>> receiver = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationTransport).start(receiver.capture());
+        bookCache.put("cached", "old", bookCache.startLoad());
+        long pendingLoadVersion = bookCache.startLoad();
+
+        receiver.getValue().accept(Arrays.asList(
+                new Invalidation(InvalidationType.BOOK, "cached", remoteClock.now()),
+                new Invalidation(InvalidationType.BOOK, "loading", remoteClock.now())));
+        bookCache.put("loading", "old", pendingLoadVersion);
+
+        assertFalse(bookCache.get("cached").isPresent());
+        assertFalse(bookCache.get("loading").isPresent());
+    }
+}
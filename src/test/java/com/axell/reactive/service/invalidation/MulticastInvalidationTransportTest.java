@@ -0,0 +1,55 @@
+package com.axell.reactive.service.invalidation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MulticastInvalidationTransportTest {
+
+    private static final String GROUP = "239.255.42.98";
+
+    @Test
+    public void Send_TwoInstancesOnLoopback_OnlyOtherInstanceReceives() throws Exception {
+        int port = 45000 + (int) (System.nanoTime() % 1000);
+        BlockingQueue<List<Invalidation>> receivedBySender = new ArrayBlockingQueue<>(10);
+        BlockingQueue<List<Invalidation>> receivedByOther = new ArrayBlockingQueue<>(10);
+        try (MulticastInvalidationTransport sender = new MulticastInvalidationTransport(GROUP, port, "127.0.0.1");
+             MulticastInvalidationTransport other = new MulticastInvalidationTransport(GROUP, port, "127.0.0.1")) {
+            sender.start(receivedBySender::add);
+            other.start(receivedByOther::add);
+            List<Invalidation> invalidations = Collections.singletonList(new Invalidation(InvalidationType.BOOK, "1", 42));
+
+            sender.send(invalidations);
+
+            assertEquals(invalidations, receivedByOther.poll(5, TimeUnit.SECONDS));
+            assertNull(receivedBySender.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void Encode_LargeBatch_SplitIntoDatagramsThatDecodeBack() throws Exception {
+        MulticastInvalidationTransport sender = new MulticastInvalidationTransport(GROUP, 1, "");
+        MulticastInvalidationTransport receiver = new MulticastInvalidationTransport(GROUP, 1, "");
+        List<Invalidation> invalidations = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            invalidations.add(new Invalidation(InvalidationType.AUTHOR, "author-" + i + "-0123456789abcdef", i));
+
+        List<byte[]> datagrams = sender.encode(invalidations);
+
+        assertTrue(datagrams.size() > 1);
+        List<Invalidation> decodedInvalidations = new ArrayList<>();
+        for (byte[] datagram : datagrams) {
+            assertTrue(datagram.length <= MulticastInvalidationTransport.MAX_DATAGRAM_BYTES);
+            assertNull(sender.decode(datagram, datagram.length));
+            decodedInvalidations.addAll(receiver.decode(datagram, datagram.length));
+        }
+        assertEquals(invalidations, decodedInvalidations);
+    }
+}
@@ -0,0 +1,54 @@
+package com.axell.reactive.service.invalidation;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class VersionedCacheTest {
+
+    private final AtomicLong wallClock = new AtomicLong(1000);
+    private final HybridClock hybridClock = new HybridClock(wallClock::get);
+    private final VersionedCache<String> cache = new VersionedCache<>(InvalidationType.BOOK, hybridClock, 100, 10);
+
+    @Test
+    public void Put_LoadedAfterInvalidation_ReturnEntry() {
+        cache.invalidate("1", hybridClock.now());
+        cache.put("1", "title", cache.startLoad());
+
+        assertEquals(Optional.of("title"), cache.get("1"));
+    }
+
+    @Test
+    public void Put_LoadStartedBeforeInvalidation_KeepStaleResultOut() {
+        long loadVersion = cache.startLoad();
+        cache.invalidate("1", hybridClock.now());
+        cache.put("1", "stale", loadVersion);
+
+        assertEquals(Optional.empty(), cache.get("1"));
+    }
+
+    @Test
+    public void OnInvalidations_OlderVersionArrivesLate_KeepNewerEntry() {
+        long olderVersion = hybridClock.now();
+        long newerVersion = hybridClock.now();
+        cache.onInvalidations(Collections.singletonList(new Invalidation(InvalidationType.BOOK, "1", newerVersion)), true);
+        cache.put("1", "title", cache.startLoad());
+        cache.onInvalidations(Collections.singletonList(new Invalidation(InvalidationType.BOOK, "1", olderVersion)), true);
+
+        assertEquals(Optional.of("title"), cache.get("1"));
+        cache.onInvalidations(Collections.singletonList(new Invalidation(InvalidationType.AUTHOR, "1", hybridClock.now())), true);
+        assertEquals(Optional.of("title"), cache.get("1"));
+    }
+
+    @Test
+    public void Get_EntryOlderThanTtl_ReturnEmpty() {
+        cache.put("1", "title", cache.startLoad());
+        wallClock.addAndGet(101);
+
+        assertEquals(Optional.empty(), cache.get("1"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.axell.reactive.service.journal;
+
+import com.axell.reactive.service.author.AuthorService;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the services with the journal enabled and checks the journal against the committed rows.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"journal.enabled=true", "journal.directory=target/change-journal-order-test", "journal.sync=false",
+        "sharding.url-template=jdbc:h2:mem:change-journal-order-test-%d"})
+public class ChangeJournalOrderTest {
+
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private ChangeJournalService changeJournalService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void UpdateBook_ConcurrentUpdatesOfOneBook_JournalLastUpdateAsCommittedTitle() throws Exception {
+        String authorId = authorService.addAuthor(new AddAuthorRequest("Journal Order Author")).blockingGet();
+        String bookId = bookService.addBook(new AddBookRequest("title", authorId)).blockingGet();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long fromSequence = changeJournalService.getLastSequence() + 1;
+                CompletableFuture.allOf(
+                        updateTitleAsync(bookId, "a-" + round, executorService),
+                        updateTitleAsync(bookId, "b-" + round, executorService)).get();
+
+                List<JournalEntry> updates = changeJournalService.read(fromSequence, 10, 0)
+                        .stream()
+                        .filter(entry -> entry.getChange().getType() == JournalEntryType.BOOK_UPDATED)
+                        .filter(entry -> bookId.equals(entry.getChange().getEntityId()))
+                        .collect(Collectors.toList());
+                assertEquals(2, updates.size());
+                assertEquals(jdbcTemplate.queryForObject("SELECT title FROM books WHERE id = ?", String.class, bookId),
+                        updates.get(1).getChange().getName());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> updateTitleAsync(String bookId, String title, ExecutorService executorService) {
+        return CompletableFuture.runAsync(() -> bookService.updateBook(new UpdateBookRequest(bookId, title)).blockingAwait(),
+                executorService);
+    }
+}
@@ -0,0 +1,127 @@
+package com.axell.reactive.service.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeJournalServiceImplTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void Read_FromSequence_ReturnDurableEntriesInOrder() {
+        ChangeJournalServiceImpl changeJournalService = openJournal(4096);
+
+        changeJournalService.append(Arrays.asList(bookAdded("1"), bookAdded("2")));
+        long lastSequence = changeJournalService.append(new JournalChange(JournalEntryType.AUTHOR_ADDED, "a", "Axell", null));
+
+        assertEquals(3, lastSequence);
+        List<JournalEntry> entries = changeJournalService.read(2, 10, 0);
+        assertEquals(Arrays.asList(2L, 3L), sequences(entries));
+        assertEquals(bookAdded("2"), entries.get(0).getChange());
+        assertEquals(new JournalChange(JournalEntryType.AUTHOR_ADDED, "a", "Axell", null), entries.get(1).getChange());
+        assertTrue(changeJournalService.read(4, 10, 0).isEmpty());
+    }
+
+    @Test
+    public void Append_EntriesExceedSegment_RollSegmentsAndReadAcrossThem() {
+        ChangeJournalServiceImpl changeJournalService = openJournal(256);
+
+        for (int i = 1; i <= 50; i++)
+            changeJournalService.append(bookAdded(String.valueOf(i)));
+
+        assertTrue(temporaryFolder.getRoot().listFiles().length > 1);
+        assertEquals(LongStream.rangeClosed(10, 50).boxed().collect(Collectors.toList()),
+                sequences(changeJournalService.read(10, 100, 0)));
+        assertEquals(Arrays.asList(49L, 50L), sequences(changeJournalService.read(49, 2, 0)));
+    }
+
+    @Test
+    public void Open_TornLastRecord_ContinueAfterLastIntactEntry() throws Exception {
+        ChangeJournalServiceImpl changeJournalService = openJournal(4096);
+        changeJournalService.append(Arrays.asList(bookAdded("1"), bookAdded("2")));
+        changeJournalService.close();
+        File segmentFile = temporaryFolder.getRoot().listFiles()[0];
+        int secondRecordPosition = 2 * Integer.BYTES + readInt(segmentFile, 0);
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+            file.seek(secondRecordPosition + 2 * Integer.BYTES + 1);
+            file.write(0x7f);
+        }
+
+        ChangeJournalServiceImpl reopenedJournal = openJournal(4096);
+
+        assertEquals(1, reopenedJournal.getLastSequence());
+        assertEquals(2, reopenedJournal.append(bookAdded("3")));
+        assertEquals(Arrays.asList(bookAdded("1"), bookAdded("3")), reopenedJournal.read(1, 10, 0)
+                .stream()
+                .map(JournalEntry::getChange)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void Append_ConcurrentAppenders_AssignEverySequenceOnceAndWakeTailingReader() throws Exception {
+        ChangeJournalServiceImpl changeJournalService = openJournal(1024);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<List<JournalEntry>> tail = CompletableFuture.supplyAsync(() -> changeJournalService.read(1, 1, 10000), executorService);
+            List<CompletableFuture<Long>> appends = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String id = String.valueOf(i);
+                appends.add(CompletableFuture.supplyAsync(() -> changeJournalService.append(bookAdded(id)), executorService));
+            }
+
+            List<Long> appendedSequences = appends.stream()
+                    .map(CompletableFuture::join)
+                    .sorted()
+                    .collect(Collectors.toList());
+            assertEquals(LongStream.rangeClosed(1, 200).boxed().collect(Collectors.toList()), appendedSequences);
+            assertEquals(appendedSequences, sequences(changeJournalService.read(1, 500, 0)));
+            assertEquals(1, tail.join().size());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ChangeJournalServiceImpl openJournal(int segmentBytes) {
+        ChangeJournalServiceImpl changeJournalService = new ChangeJournalServiceImpl();
+        ReflectionTestUtils.setField(changeJournalService, "enabled", true);
+        ReflectionTestUtils.setField(changeJournalService, "directory", temporaryFolder.getRoot().getPath());
+        ReflectionTestUtils.setField(changeJournalService, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(changeJournalService, "sync", true);
+        changeJournalService.open();
+        return changeJournalService;
+    }
+
+    private JournalChange bookAdded(String id) {
+        return new JournalChange(JournalEntryType.BOOK_ADDED, id, "title " + id, "author");
+    }
+
+    private List<Long> sequences(List<JournalEntry> entries) {
+        return entries.stream()
+                .map(JournalEntry::getSequence)
+                .collect(Collectors.toList());
+    }
+
+    private int readInt(File file, long position) throws Exception {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(position);
+            return randomAccessFile.readInt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.axell.reactive.startup;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HotBookTrackerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File hotBooksFile;
+    private HotBookTracker hotBookTracker;
+
+    @Before
+    public void setUp() throws Exception {
+        hotBooksFile = new File(temporaryFolder.getRoot(), "hot-books.txt");
+        hotBookTracker = new HotBookTracker();
+        ReflectionTestUtils.setField(hotBookTracker, "enabled", true);
+        ReflectionTestUtils.setField(hotBookTracker, "hotBooksFile", hotBooksFile.getPath());
+        ReflectionTestUtils.setField(hotBookTracker, "hotBookCount", 2);
+        ReflectionTestUtils.setField(hotBookTracker, "maxTrackedBooks", 3);
+        hotBookTracker.startTracking();
+    }
+
+    @Test
+    public void Persist_RecordedHits_WriteMostRequestedBooksFirst() {
+        record("1", 1);
+        record("2", 5);
+        record("3", 3);
+
+        hotBookTracker.persist();
+
+        assertEquals(Arrays.asList("2", "3"), hotBookTracker.getHotBookIds());
+    }
+
+    @Test
+    public void Record_TrackedBooksFull_IgnoreNewBooks() {
+        record("1", 1);
+        record("2", 1);
+        record("3", 1);
+        record("4", 10);
+
+        hotBookTracker.persist();
+
+        assertFalse(hotBookTracker.getHotBookIds().contains("4"));
+    }
+
+    @Test
+    public void Persist_Twice_DecayCountsSoNewTrafficTakesOver() {
+        record("1", 4);
+        record("2", 1);
+        hotBookTracker.persist();
+        record("3", 3);
+
+        hotBookTracker.persist();
+
+        assertEquals(Arrays.asList("3", "1"), hotBookTracker.getHotBookIds());
+    }
+
+    @Test
+    public void Persist_NoHitsOrNotTracking_KeepPreviousList() {
+        HotBookTracker restartedTracker = new HotBookTracker();
+        ReflectionTestUtils.setField(restartedTracker, "enabled", true);
+        ReflectionTestUtils.setField(restartedTracker, "hotBooksFile", hotBooksFile.getPath());
+        ReflectionTestUtils.setField(restartedTracker, "hotBookCount", 2);
+        ReflectionTestUtils.setField(restartedTracker, "maxTrackedBooks", 3);
+        record("1", 1);
+        hotBookTracker.persist();
+
+        restartedTracker.record("2");
+        restartedTracker.persist();
+
+        assertTrue(hotBooksFile.exists());
+        assertEquals(Collections.singletonList("1"), restartedTracker.getHotBookIds());
+    }
+
+    private void record(String bookId, int hits) {
+        for (int i = 0; i < hits; i++)
+            hotBookTracker.record(bookId);
+    }
+}
@@ -0,0 +1,60 @@
+package com.axell.reactive.startup;
+
+import com.axell.reactive.configuration.RxJavaConfiguration;
+import com.axell.reactive.service.catalogcounter.CatalogCounterServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyInitializationBeanFactoryPostProcessorTest {
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        beanFactory = new DefaultListableBeanFactory();
+    }
+
+    @Test
+    public void PostProcessBeanFactory_ApplicationBean_MarkLazy() {
+        beanFactory.registerBeanDefinition("applicationBean", new RootBeanDefinition(StringBuilder.class));
+
+        new LazyInitializationBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+
+        assertTrue(beanFactory.getBeanDefinition("applicationBean").isLazyInit());
+    }
+
+    @Test
+    public void PostProcessBeanFactory_InfrastructureBean_KeepEager() {
+        RootBeanDefinition beanDefinition = new RootBeanDefinition(StringBuilder.class);
+        beanDefinition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        beanFactory.registerBeanDefinition("infrastructureBean", beanDefinition);
+
+        new LazyInitializationBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+
+        assertFalse(beanFactory.getBeanDefinition("infrastructureBean").isLazyInit());
+    }
+
+    @Test
+    public void PostProcessBeanFactory_EagerType_KeepEager() {
+        beanFactory.registerBeanDefinition("rxJavaConfiguration", new RootBeanDefinition(RxJavaConfiguration.class));
+
+        new LazyInitializationBeanFactoryPostProcessor(RxJavaConfiguration.class).postProcessBeanFactory(beanFactory);
+
+        assertFalse(beanFactory.getBeanDefinition("rxJavaConfiguration").isLazyInit());
+    }
+
+    @Test
+    public void PostProcessBeanFactory_BeanWithScheduledMethod_KeepEager() {
+        beanFactory.registerBeanDefinition("catalogCounterService", new RootBeanDefinition(CatalogCounterServiceImpl.class));
+
+        new LazyInitializationBeanFactoryPostProcessor().postProcessBeanFactory(beanFactory);
+
+        assertFalse(beanFactory.getBeanDefinition("catalogCounterService").isLazyInit());
+    }
+}
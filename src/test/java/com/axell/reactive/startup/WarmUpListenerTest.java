@@ -0,0 +1,116 @@
+package com.axell.reactive.startup;
+
+import com.axell.reactive.repository.sharding.ShardRouter;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.web.BookRestController;
+import com.axell.reactive.webdto.response.BaseWebResponse;
+import com.axell.reactive.webdto.response.BookWebResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Single;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityNotFoundException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class WarmUpListenerTest {
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private BookService bookService;
+    @Mock
+    private BookRestController bookRestController;
+    @Mock
+    private HotBookTracker hotBookTracker;
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(2);
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+    @InjectMocks
+    private WarmUpListener warmUpListener;
+
+    private final AtomicBoolean readyDuringWarmUp = new AtomicBoolean();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(warmUpListener, "enabled", true);
+        ReflectionTestUtils.setField(warmUpListener, "poolConnections", 3);
+        ReflectionTestUtils.setField(warmUpListener, "iterations", 4);
+        ReflectionTestUtils.setField(warmUpListener, "maxMillis", 60000L);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(bookRestController.getAllBooks(anyInt(), anyInt(), anyString(), isNull(), isNull(), isNull(), eq("flat"), isNull())).thenAnswer(invocation -> {
+            readyDuringWarmUp.compareAndSet(false, warmUpListener.isReady());
+            return Single.just(ResponseEntity.ok(BaseWebResponse.successWithData(Collections.singletonList(bookWebResponse("9")))));
+        });
+        when(bookRestController.getBookDetail(anyString())).thenAnswer(invocation ->
+                Single.just(ResponseEntity.ok(BaseWebResponse.successWithData(bookWebResponse(invocation.getArgument(0))))));
+    }
+
+    @Test
+    public void OnApplicationEvent_Disabled_ReadyWithoutWarmUp() {
+        ReflectionTestUtils.setField(warmUpListener, "enabled", false);
+
+        warmUpListener.onApplicationEvent(null);
+
+        assertTrue(warmUpListener.isReady());
+        verify(hotBookTracker).startTracking();
+        verifyZeroInteractions(dataSource, bookService, bookRestController);
+    }
+
+    @Test
+    public void OnApplicationEvent_HotBooks_PreloadThemAndReplayRequestsBeforeReady() throws Exception {
+        when(hotBookTracker.getHotBookIds()).thenReturn(Arrays.asList("1", "2"));
+        when(bookService.getBookDetail("1")).thenReturn(Single.just(new BookResponse()));
+        when(bookService.getBookDetail("2")).thenReturn(Single.error(new EntityNotFoundException()));
+
+        assertFalse(warmUpListener.isReady());
+        warmUpListener.onApplicationEvent(null);
+
+        assertTrue(warmUpListener.isReady());
+        assertFalse(readyDuringWarmUp.get());
+        verify(dataSource, times(6)).getConnection();
+        verify(connection, times(6)).close();
+        verify(bookRestController, times(4)).getAllBooks(anyInt(), anyInt(), anyString(), isNull(), isNull(), isNull(), eq("flat"), isNull());
+        verify(bookRestController, times(4)).getBookDetail("1");
+        verify(bookRestController, never()).getBookDetail("2");
+        verify(hotBookTracker).startTracking();
+    }
+
+    @Test
+    public void OnApplicationEvent_NoHotBooks_ReplayBooksOfListedPage() {
+        when(hotBookTracker.getHotBookIds()).thenReturn(Collections.emptyList());
+
+        warmUpListener.onApplicationEvent(null);
+
+        assertTrue(warmUpListener.isReady());
+        verify(bookRestController, times(4)).getBookDetail("9");
+    }
+
+    private BookWebResponse bookWebResponse(String id) {
+        BookWebResponse bookWebResponse = new BookWebResponse();
+        bookWebResponse.setId(id);
+        return bookWebResponse;
+    }
+}
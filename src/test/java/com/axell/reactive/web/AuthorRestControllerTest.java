@@ -1,30 +1,58 @@
 package com.axell.reactive.web;
 
+import com.axell.reactive.configuration.RxJavaConfiguration;
+import com.axell.reactive.exception.AuthorHasBooksException;
+import com.axell.reactive.exception.DuplicateAuthorException;
+import com.axell.reactive.exception.ErrorCode;
 import com.axell.reactive.service.author.AuthorService;
 import com.axell.reactive.servicedto.request.AddAuthorRequest;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.response.AddAuthorsResponse;
+import com.axell.reactive.servicedto.response.AuthorDetailResponse;
+import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.web.format.WebMediaType;
+import com.axell.reactive.web.idempotency.IdempotencyStore;
+import com.axell.reactive.webdto.protobuf.BookProtos;
 import com.axell.reactive.webdto.request.AddAuthorWebRequest;
+import com.axell.reactive.webdto.request.AddAuthorsWebRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityNotFoundException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(value = AuthorRestController.class)
+@Import({RxJavaConfiguration.class, IdempotencyStore.class})
 public class AuthorRestControllerTest {
 
     @Autowired
@@ -52,4 +80,192 @@ public class AuthorRestControllerTest {
 
         verify(authorService, times(1)).addAuthor(any(AddAuthorRequest.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void AddAuthor_Failed_AddedConcurrently_Return409DuplicateEntity() throws Exception {
+        when(authorService.addAuthor(any(AddAuthorRequest.class)))
+                .thenReturn(Single.error(new DuplicateAuthorException(new IllegalStateException())));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/authors")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(new AddAuthorWebRequest("Axell"))))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.DUPLICATE_ENTITY.toString())));
+    }
+
+    @Test
+    public void AddAuthor_RetriedWithSameIdempotencyKey_AddOnceAndReplayLocation() throws Exception {
+        when(authorService.addAuthor(any(AddAuthorRequest.class)))
+                .thenReturn(Single.just("1"))
+                .thenReturn(Single.just("2"));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            MvcResult mvcResult = mockMvc.perform(post("/api/authors")
+                    .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "add-author-retry")
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .content(objectMapper.writeValueAsString(new AddAuthorWebRequest("Axell"))))
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", "/api/authors/1"));
+        }
+
+        verify(authorService, times(1)).addAuthor(any(AddAuthorRequest.class));
+    }
+
+    @Test
+    public void AddAuthors_Success_Return200WithAuthorIdPerName() throws Exception {
+        Map<String, String> authorIds = new LinkedHashMap<>();
+        authorIds.put("Axell", "1");
+        authorIds.put("axell ", "1");
+        when(authorService.addAuthors(any(AddAuthorsRequest.class)))
+                .thenReturn(Single.just(new AddAuthorsResponse(authorIds, 1)));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/authors/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(new AddAuthorsWebRequest(Arrays.asList("Axell", "axell ")))))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode", nullValue()))
+                .andExpect(jsonPath("$.data.authorIds.Axell", equalTo("1")))
+                .andExpect(jsonPath("$.data.createdCount", equalTo(1)));
+
+        verify(authorService, times(1)).addAuthors(argThat(addAuthorsRequest ->
+                addAuthorsRequest.getNames().equals(Arrays.asList("Axell", "axell "))));
+    }
+
+    @Test
+    public void AddAuthors_Failed_BlankName_Return400InvalidRequest() throws Exception {
+        mockMvc.perform(post("/api/authors/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(new AddAuthorsWebRequest(Arrays.asList("Axell", " ")))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(authorService, never()).addAuthors(any(AddAuthorsRequest.class));
+    }
+
+    @Test
+    public void AddAuthor_ProtobufRequest_Return201WithProtobufResponse() throws Exception {
+        when(authorService.addAuthor(any(AddAuthorRequest.class)))
+                .thenReturn(Single.just("1"));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/authors")
+                .contentType(WebMediaType.APPLICATION_PROTOBUF)
+                .accept(WebMediaType.APPLICATION_PROTOBUF)
+                .content(BookProtos.AddAuthorRequest.newBuilder()
+                        .setName("1")
+                        .build()
+                        .toByteArray()))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(WebMediaType.APPLICATION_PROTOBUF))
+                .andReturn();
+        BookProtos.WebResponse webResponse = BookProtos.WebResponse.parseFrom(asyncResult.getResponse().getContentAsByteArray());
+        assertEquals(BookProtos.WebResponse.DataCase.DATA_NOT_SET, webResponse.getDataCase());
+
+        verify(authorService, times(1)).addAuthor(argThat(addAuthorRequest -> "1".equals(addAuthorRequest.getName())));
+    }
+
+    @Test
+    public void GetAuthorDetail_Success_Return200WithAuthorDetailWebResponse() throws Exception {
+        when(authorService.getAuthorDetail(anyString(), anyInt()))
+                .thenReturn(Single.just(new AuthorDetailResponse("1", "Axell", 7L,
+                        Collections.singletonList(new BookResponse("2", "Title", "Axell")))));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/authors/1?limit=1"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode", nullValue()))
+                .andExpect(jsonPath("$.data.name", equalTo("Axell")))
+                .andExpect(jsonPath("$.data.bookCount", equalTo(7)))
+                .andExpect(jsonPath("$.data.books[0].id", equalTo("2")));
+
+        verify(authorService, times(1)).getAuthorDetail("1", 1);
+    }
+
+    @Test
+    public void GetAuthorDetail_Failed_AuthorIdNotFound_Return404EntityNotFound() throws Exception {
+        when(authorService.getAuthorDetail(anyString(), anyInt()))
+                .thenReturn(Single.error(new EntityNotFoundException()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/authors/1"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.ENTITY_NOT_FOUND.toString())))
+                .andExpect(jsonPath("$.data", nullValue()));
+
+        verify(authorService, times(1)).getAuthorDetail("1", 5);
+    }
+
+    @Test
+    public void GetAuthorDetail_Failed_LimitZero_Return400InvalidRequest() throws Exception {
+        mockMvc.perform(get("/api/authors/1?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(authorService, never()).getAuthorDetail(anyString(), anyInt());
+    }
+
+    @Test
+    public void GetAuthorDetail_Failed_LimitAboveMaximum_Return400InvalidRequest() throws Exception {
+        mockMvc.perform(get("/api/authors/1?limit=101"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(authorService, never()).getAuthorDetail(anyString(), anyInt());
+    }
+
+    @Test
+    public void DeleteAuthorBooks_Success_Return200WithDeletedCount() throws Exception {
+        when(authorService.deleteAuthorBooks("1"))
+                .thenReturn(Single.just(3L));
+
+        MvcResult mvcResult = mockMvc.perform(delete("/api/authors/1/books"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Deleted-Count", "3"))
+                .andExpect(jsonPath("$.errorCode", nullValue()));
+    }
+
+    @Test
+    public void DeleteAuthor_CascadeSpecified_Return200() throws Exception {
+        when(authorService.deleteAuthor("1", true))
+                .thenReturn(Completable.complete());
+
+        MvcResult mvcResult = mockMvc.perform(delete("/api/authors/1?cascade=true"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk());
+
+        verify(authorService, times(1)).deleteAuthor("1", true);
+    }
+
+    @Test
+    public void DeleteAuthor_Failed_AuthorHasBooks_Return409AuthorHasBooks() throws Exception {
+        when(authorService.deleteAuthor("1", false))
+                .thenReturn(Completable.error(new AuthorHasBooksException("1")));
+
+        MvcResult mvcResult = mockMvc.perform(delete("/api/authors/1"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.AUTHOR_HAS_BOOKS.toString())));
+    }
+}
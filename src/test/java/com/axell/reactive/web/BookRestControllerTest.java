@@ -1,38 +1,69 @@
 package com.axell.reactive.web;
 
+import com.axell.reactive.configuration.RxJavaConfiguration;
 import com.axell.reactive.exception.ErrorCode;
 import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.service.bookevent.BookEventService;
 import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.axell.reactive.servicedto.request.BookCursor;
+import com.axell.reactive.servicedto.request.BookField;
+import com.axell.reactive.servicedto.request.BookPageRequest;
+import com.axell.reactive.servicedto.request.BookSort;
 import com.axell.reactive.servicedto.request.UpdateBookRequest;
+import com.axell.reactive.servicedto.response.BookEventResponse;
+import com.axell.reactive.servicedto.response.BookEventType;
+import com.axell.reactive.servicedto.response.BookLookupResponse;
+import com.axell.reactive.servicedto.response.BookPageResponse;
 import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.startup.HotBookTracker;
+import com.axell.reactive.web.format.WebMediaType;
+import com.axell.reactive.web.idempotency.IdempotencyStore;
+import com.axell.reactive.webdto.protobuf.BookProtos;
 import com.axell.reactive.webdto.request.AddBookWebRequest;
+import com.axell.reactive.webdto.request.BookLookupWebRequest;
 import com.axell.reactive.webdto.request.UpdateBookWebRequest;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeoutException;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(BookRestController.class)
+@Import({RxJavaConfiguration.class, IdempotencyStore.class, HotBookTracker.class})
 public class BookRestControllerTest {
 
     @Autowired
@@ -42,6 +73,8 @@ public class BookRestControllerTest {
 
     @MockBean
     private BookService bookService;
+    @MockBean
+    private BookEventService bookEventService;
 
     @Test
     public void AddBook_Success_Return201() throws Exception {
@@ -79,6 +112,51 @@ public class BookRestControllerTest {
         verify(bookService, times(1)).addBook(any(AddBookRequest.class));
     }
 
+    @Test
+    public void AddBook_RetriedWithSameIdempotencyKey_AddOnceAndReplayLocation() throws Exception {
+        when(bookService.addBook(any(AddBookRequest.class)))
+                .thenReturn(Single.just("1"))
+                .thenReturn(Single.just("2"));
+        AddBookWebRequest addBookWebRequest = addBookWebRequest("title", "author");
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            MvcResult mvcResult = mockMvc.perform(post("/api/books")
+                    .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "add-book-retry")
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .content(objectMapper.writeValueAsString(addBookWebRequest)))
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", "/api/books/1"));
+        }
+
+        verify(bookService, times(1)).addBook(any(AddBookRequest.class));
+    }
+
+    @Test
+    public void AddBook_IdempotencyKeyReusedForOtherBook_Return422() throws Exception {
+        when(bookService.addBook(any(AddBookRequest.class)))
+                .thenReturn(Single.just("1"));
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/books")
+                .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "add-book-reused")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(addBookWebRequest("title", "author"))))
+                .andReturn()));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/books")
+                .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "add-book-reused")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(addBookWebRequest("other title", "author"))))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.IDEMPOTENCY_KEY_REUSED.toString())));
+
+        verify(bookService, times(1)).addBook(any(AddBookRequest.class));
+    }
+
     @Test
     public void UpdateBook_Success_Return200() throws Exception {
         when(bookService.updateBook(any(UpdateBookRequest.class)))
@@ -116,9 +194,9 @@ public class BookRestControllerTest {
     }
 
     @Test
-    public void GetAllBooks_LimitAndPageSpecified_Success_Return200WithListOfBookWebResponse() throws Exception {
-        when(bookService.getAllBooks(anyInt(), anyInt()))
-                .thenReturn(Single.just(Collections.singletonList(new BookResponse("1", "1", "1"))));
+    public void GetAllBooks_LimitAndPageSpecified_Success_Return200WithListOfBookWebResponseAndTotalCount() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1)));
 
         MvcResult mvcResult = mockMvc.perform(get("/api/books?limit=5&page=0")
                 .contentType(MediaType.APPLICATION_JSON_VALUE))
@@ -126,16 +204,17 @@ public class BookRestControllerTest {
 
         mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
                 .andExpect(jsonPath("$.errorCode", nullValue()))
                 .andExpect(jsonPath("$.data[0].id", equalTo("1")));
 
-        verify(bookService, times(1)).getAllBooks(anyInt(), anyInt());
+        verify(bookService, times(1)).getAllBooks(any(BookPageRequest.class));
     }
 
     @Test
     public void GetAllBooks_LimitAndPageNotSpecified_Success_Return200WithListOfBookWebResponse() throws Exception {
-        when(bookService.getAllBooks(anyInt(), anyInt()))
-                .thenReturn(Single.just(Collections.singletonList(new BookResponse("1", "1", "1"))));
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1)));
 
         MvcResult mvcResult = mockMvc.perform(get("/api/books")
                 .contentType(MediaType.APPLICATION_JSON_VALUE))
@@ -146,7 +225,219 @@ public class BookRestControllerTest {
                 .andExpect(jsonPath("$.errorCode", nullValue()))
                 .andExpect(jsonPath("$.data[0].id", equalTo("1")));
 
-        verify(bookService, times(1)).getAllBooks(anyInt(), anyInt());
+        verify(bookService, times(1)).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_SortAndFiltersSpecified_PassThemToService() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.emptyList(), 0)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books?limit=10&page=2&sort=title&titlePrefix=Ha&authorId="))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk());
+
+        verify(bookService, times(1)).getAllBooks(argThat((BookPageRequest bookPageRequest) -> bookPageRequest.getLimit() == 10
+                && bookPageRequest.getPage() == 2
+                && bookPageRequest.getSort() == BookSort.TITLE
+                && bookPageRequest.getAuthorId() == null
+                && "Ha".equals(bookPageRequest.getTitlePrefix())
+                && bookPageRequest.getFields().equals(EnumSet.allOf(BookField.class))));
+    }
+
+    @Test
+    public void GetAllBooks_FieldsSpecified_RequestAndReturnOnlyThoseFields() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books?fields=id,authorName"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id", equalTo("1")))
+                .andExpect(jsonPath("$.data[0].authorName", equalTo("1")))
+                .andExpect(jsonPath("$.data[0].title").doesNotExist());
+
+        verify(bookService, times(1)).getAllBooks(argThat((BookPageRequest bookPageRequest) ->
+                bookPageRequest.getFields().equals(EnumSet.of(BookField.ID, BookField.AUTHOR_NAME))));
+    }
+
+    @Test
+    public void GetAllBooks_UnknownField_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?fields=id,price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_NormalizedShape_Return200WithBooksReferencingAuthorsMap() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Arrays.asList(new BookResponse("1", "1", null, "a"), new BookResponse("2", "2", null, "a")),
+                        2, Collections.singletonMap("a", "Ann"))));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books?shape=normalized"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].authorId", equalTo("a")))
+                .andExpect(jsonPath("$.data[1].authorId", equalTo("a")))
+                .andExpect(jsonPath("$.data[0].authorName").doesNotExist())
+                .andExpect(jsonPath("$.authors.a", equalTo("Ann")));
+
+        verify(bookService, times(1)).getAllBooks(argThat(BookPageRequest::isNormalized));
+    }
+
+    @Test
+    public void GetAllBooks_FlatShape_ReturnWithoutAuthorsMap() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authors").doesNotExist());
+
+        verify(bookService, times(1)).getAllBooks(argThat((BookPageRequest bookPageRequest) -> !bookPageRequest.isNormalized()));
+    }
+
+    @Test
+    public void GetAllBooks_UnknownShape_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?shape=nested"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_LimitZero_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_NegativePage_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?page=-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_PageEndsBeyondIntRange_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?limit=1000&page=" + (Integer.MAX_VALUE / 1000)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_OffsetAboveMaximum_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?limit=100&page=101"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_FullPage_Return200WithNextCursorThatRequestsFollowingPage() throws Exception {
+        BookCursor nextCursor = new BookCursor(BookSort.TITLE, "Emma\nVolume II", "1");
+        BookPageResponse bookPageResponse = new BookPageResponse(Collections.singletonList(new BookResponse("1", "Emma\nVolume II", "1")), 2);
+        bookPageResponse.setNextCursor(nextCursor);
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(bookPageResponse));
+
+        String cursor = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/books?limit=1&sort=title")).andReturn()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/books?limit=1&sort=title&after=" + cursor)).andReturn()))
+                .andExpect(status().isOk());
+
+        verify(bookService, times(1)).getAllBooks(argThat((BookPageRequest bookPageRequest) -> bookPageRequest.getAfter() == null));
+        verify(bookService, times(1)).getAllBooks(argThat((BookPageRequest bookPageRequest) -> nextCursor.equals(bookPageRequest.getAfter())));
+    }
+
+    @Test
+    public void GetAllBooks_CursorOfOtherSort_Return400() throws Exception {
+        BookPageResponse bookPageResponse = new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 2);
+        bookPageResponse.setNextCursor(new BookCursor(BookSort.ID, null, "1"));
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(bookPageResponse));
+        String cursor = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/books?limit=1")).andReturn()))
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/api/books?limit=1&sort=title&after=" + cursor))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+        mockMvc.perform(get("/api/books?after=not-a-cursor!"))
+                .andExpect(status().isBadRequest());
+
+        verify(bookService, times(1)).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_UnknownSort_Return400() throws Exception {
+        mockMvc.perform(get("/api/books?sort=price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void GetAllBooks_AcceptProtobuf_Return200WithProtobufBookList() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", "1")), 1)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books")
+                .accept(WebMediaType.APPLICATION_PROTOBUF))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(WebMediaType.APPLICATION_PROTOBUF))
+                .andReturn();
+        BookProtos.WebResponse webResponse = BookProtos.WebResponse.parseFrom(asyncResult.getResponse().getContentAsByteArray());
+        assertEquals("", webResponse.getErrorCode());
+        assertEquals("1", webResponse.getBooks().getBooks(0).getId());
+        assertEquals("1", webResponse.getBooks().getBooks(0).getAuthorName());
+    }
+
+    @Test
+    public void GetAllBooks_NormalizedShapeAcceptProtobuf_Return200WithAuthorsMap() throws Exception {
+        when(bookService.getAllBooks(any(BookPageRequest.class)))
+                .thenReturn(Single.just(new BookPageResponse(Collections.singletonList(new BookResponse("1", "1", null, "a")),
+                        1, Collections.singletonMap("a", "Ann"))));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books?shape=normalized")
+                .accept(WebMediaType.APPLICATION_PROTOBUF))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn();
+        BookProtos.WebResponse webResponse = BookProtos.WebResponse.parseFrom(asyncResult.getResponse().getContentAsByteArray());
+        assertEquals("a", webResponse.getBooks().getBooks(0).getAuthorId());
+        assertEquals("", webResponse.getBooks().getBooks(0).getAuthorName());
+        assertEquals("Ann", webResponse.getAuthorsMap().get("a"));
     }
 
     @Test
@@ -166,6 +457,67 @@ public class BookRestControllerTest {
         verify(bookService, times(1)).getBookDetail(anyString());
     }
 
+    @Test
+    public void GetBooks_IdsSpecified_Success_Return200WithLookupPerIdInRequestOrder() throws Exception {
+        when(bookService.getBooks(Arrays.asList("2", "missing")))
+                .thenReturn(Single.just(Arrays.asList(
+                        new BookLookupResponse("2", new BookResponse("2", "2", "1")),
+                        new BookLookupResponse("missing", null))));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books?ids=2,missing")
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode", nullValue()))
+                .andExpect(jsonPath("$.data[0].id", equalTo("2")))
+                .andExpect(jsonPath("$.data[0].errorCode", nullValue()))
+                .andExpect(jsonPath("$.data[0].book.title", equalTo("2")))
+                .andExpect(jsonPath("$.data[1].id", equalTo("missing")))
+                .andExpect(jsonPath("$.data[1].errorCode", equalTo(ErrorCode.ENTITY_NOT_FOUND.toString())))
+                .andExpect(jsonPath("$.data[1].book", nullValue()));
+
+        verify(bookService, never()).getAllBooks(any(BookPageRequest.class));
+    }
+
+    @Test
+    public void LookupBooks_ProtobufRequest_Return200WithProtobufLookups() throws Exception {
+        when(bookService.getBooks(Arrays.asList("2", "missing")))
+                .thenReturn(Single.just(Arrays.asList(
+                        new BookLookupResponse("2", new BookResponse("2", "2", "1")),
+                        new BookLookupResponse("missing", null))));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/books/lookup")
+                .contentType(WebMediaType.APPLICATION_PROTOBUF)
+                .accept(WebMediaType.APPLICATION_PROTOBUF)
+                .content(BookProtos.BookLookupRequest.newBuilder()
+                        .addIds("2")
+                        .addIds("missing")
+                        .build()
+                        .toByteArray()))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn();
+        BookProtos.BookLookupList bookLookups = BookProtos.WebResponse.parseFrom(asyncResult.getResponse().getContentAsByteArray()).getBookLookups();
+        assertEquals("2", bookLookups.getLookups(0).getBook().getTitle());
+        assertEquals(ErrorCode.ENTITY_NOT_FOUND.toString(), bookLookups.getLookups(1).getErrorCode());
+        assertFalse(bookLookups.getLookups(1).hasBook());
+    }
+
+    @Test
+    public void LookupBooks_Failed_TooManyIds_Return400InvalidRequest() throws Exception {
+        mockMvc.perform(post("/api/books/lookup")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(new BookLookupWebRequest(Collections.nCopies(201, "1")))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.INVALID_REQUEST.toString())));
+
+        verify(bookService, never()).getBooks(any());
+    }
+
     @Test
     public void GetBookDetail_Failed_BookIdNotFound_Return404EntityNotFound() throws Exception {
         when(bookService.getBookDetail(anyString()))
@@ -183,6 +535,80 @@ public class BookRestControllerTest {
         verify(bookService, times(1)).getBookDetail(anyString());
     }
 
+    @Test
+    public void GetBookDetail_Failed_DeadlineExceeded_Return504DeadlineExceeded() throws Exception {
+        when(bookService.getBookDetail(anyString()))
+                .thenReturn(Single.error(new TimeoutException()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books/1")
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.DEADLINE_EXCEEDED.toString())))
+                .andExpect(jsonPath("$.data", nullValue()));
+
+        verify(bookService, times(1)).getBookDetail(anyString());
+    }
+
+    @Test
+    public void GetBookDetail_AcceptSmile_Return200WithSmileBookWebResponse() throws Exception {
+        when(bookService.getBookDetail(anyString()))
+                .thenReturn(Single.just(new BookResponse("1", "1", "1")));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books/1")
+                .accept(WebMediaType.APPLICATION_SMILE))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(WebMediaType.APPLICATION_SMILE))
+                .andReturn();
+        JsonNode response = new ObjectMapper(new SmileFactory()).readTree(asyncResult.getResponse().getContentAsByteArray());
+        assertTrue(response.get("errorCode").isNull());
+        assertEquals("1", response.get("data").get("id").asText());
+    }
+
+    @Test
+    public void GetBookDetail_AcceptCbor_BookIdNotFound_Return404EntityNotFound() throws Exception {
+        when(bookService.getBookDetail(anyString()))
+                .thenReturn(Single.error(new EntityNotFoundException()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books/1")
+                .accept(WebMediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(WebMediaType.APPLICATION_CBOR))
+                .andReturn();
+        JsonNode response = new ObjectMapper(new CBORFactory()).readTree(asyncResult.getResponse().getContentAsByteArray());
+        assertEquals(ErrorCode.ENTITY_NOT_FOUND.toString(), response.get("errorCode").asText());
+    }
+
+    @Test
+    public void AddBook_ProtobufRequest_Return201() throws Exception {
+        when(bookService.addBook(any(AddBookRequest.class)))
+                .thenReturn(Single.just("1"));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/books")
+                .contentType(WebMediaType.APPLICATION_PROTOBUF)
+                .accept(WebMediaType.APPLICATION_PROTOBUF)
+                .content(BookProtos.AddBookRequest.newBuilder()
+                        .setTitle("title")
+                        .setAuthorId("2")
+                        .build()
+                        .toByteArray()))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated());
+
+        verify(bookService, times(1)).addBook(argThat(addBookRequest ->
+                "title".equals(addBookRequest.getTitle()) && "2".equals(addBookRequest.getAuthorId())));
+    }
+
     @Test
     public void DeleteBook_Success_Return200() throws Exception {
         when(bookService.deleteBook(anyString()))
@@ -216,4 +642,29 @@ public class BookRestControllerTest {
 
         verify(bookService, times(1)).deleteBook(anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void GetBookEvents_Success_StreamServerSentEvents() throws Exception {
+        when(bookEventService.getBookEvents(1L))
+                .thenReturn(Flowable.just(new BookEventResponse(2, BookEventType.CREATED, "1", "1")));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/books/events")
+                .header("Last-Event-ID", "1")
+                .accept(MediaType.TEXT_EVENT_STREAM_VALUE))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("id:2")))
+                .andExpect(content().string(containsString("event:CREATED")));
+
+        verify(bookEventService, times(1)).getBookEvents(1L);
+    }
+
+    private AddBookWebRequest addBookWebRequest(String title, String authorId) {
+        AddBookWebRequest addBookWebRequest = new AddBookWebRequest();
+        addBookWebRequest.setTitle(title);
+        addBookWebRequest.setAuthorId(authorId);
+        return addBookWebRequest;
+    }
+}
@@ -0,0 +1,215 @@
+package com.axell.reactive.web;
+
+import com.axell.reactive.diagnostics.RequestTrace;
+import com.axell.reactive.diagnostics.SlowRequestLog;
+import com.axell.reactive.service.author.AuthorService;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.service.catalogcounter.CatalogCounterService;
+import com.axell.reactive.servicedto.request.AddAuthorsRequest;
+import com.axell.reactive.servicedto.request.AddBookRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Runs the book and author endpoints against H2 through the tracing datasource and pins the number of statements of
+ * each kind they execute, for catalogs of several sizes. A count that changes with the size means a query per row,
+ * a count that changes at all means the endpoint's data access changed and the expectation has to be reviewed.
+ * The book event stream does not touch the database and is not covered.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "diagnostics.enabled=true",
+        "diagnostics.slow-requests.threshold-millis=0",
+        "catalog.snapshot.enabled=false",
+        "web.concurrency-limit.enabled=false",
+        "catalog.counters.reconcile-initial-delay-millis=3600000"
+})
+@AutoConfigureMockMvc
+public class EndpointStatementCountTest {
+
+    private static final int[] SIZES = {1, 10, 50};
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private CatalogCounterService catalogCounterService;
+
+    // The total comes from the cached catalog counters, loaded before the measured request
+    @Test
+    public void GetAllBooks_BooksOfDistinctAuthors_StatementsIndependentOfPageSize() throws Exception {
+        for (int size : SIZES) {
+            addBooksOfDistinctAuthors(size);
+            catalogCounterService.getTotalBookCount();
+
+            assertStatements(size, "SELECT=1", get("/api/books?limit=" + size + "&page=0"));
+        }
+    }
+
+    // The title prefix total is counted in the database, the others come from the cached catalog counters
+    @Test
+    public void GetAllBooks_SortedOrFiltered_StatementsIndependentOfPageSize() throws Exception {
+        for (int size : SIZES) {
+            addBooksOfDistinctAuthors(size);
+            String authorId = addAuthors(1).get(0);
+            addBooks(authorId, size);
+            catalogCounterService.getTotalBookCount();
+            catalogCounterService.getAuthorBookCount(authorId);
+
+            assertStatements(size, "SELECT=1", get("/api/books?sort=title&limit=" + size + "&page=1"));
+            assertStatements(size, "SELECT=1", get("/api/books?sort=authorName&limit=" + size + "&page=1"));
+            assertStatements(size, "SELECT=1", get("/api/books?sort=title&fields=id&limit=" + size + "&page=1"));
+            assertStatements(size, "SELECT=1", get("/api/books?shape=normalized&limit=" + size + "&page=1"));
+            assertStatements(size, "SELECT=1", get("/api/books?authorId=" + authorId + "&sort=title&limit=" + size));
+            assertStatements(size, "SELECT=2", get("/api/books?titlePrefix=book-&sort=title&limit=" + size + "&page=1"));
+        }
+    }
+
+    @Test
+    public void GetBookDetail_StatementsIndependentOfCatalogSize() throws Exception {
+        for (int size : SIZES) {
+            List<String> bookIds = addBooksOfDistinctAuthors(size);
+
+            assertStatements(size, "SELECT=1", get("/api/books/" + bookIds.get(size - 1)));
+        }
+    }
+
+    @Test
+    public void GetBooks_StatementsIndependentOfIdCount() throws Exception {
+        for (int size : SIZES) {
+            List<String> bookIds = addBooksOfDistinctAuthors(size);
+
+            assertStatements(size, "SELECT=1", get("/api/books?ids=" + String.join(",", bookIds)));
+            assertStatements(size, "SELECT=1", post("/api/books/lookup")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Collections.singletonMap("ids", bookIds))));
+        }
+    }
+
+    @Test
+    public void AddUpdateDeleteBook_StatementsIndependentOfCatalogSize() throws Exception {
+        for (int size : SIZES) {
+            String authorId = addAuthors(1).get(0);
+            addBooks(authorId, size);
+            String title = "book-" + UUID.randomUUID();
+
+            assertStatements(size, "INSERT=1, SELECT=1, UPDATE=2", post("/api/books")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new AddBookRequest(title, authorId))));
+            String bookId = addBooks(authorId, 1).get(0);
+            assertStatements(size, "SELECT=1, UPDATE=1", put("/api/books/" + bookId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Collections.singletonMap("title", title))));
+            assertStatements(size, "DELETE=1, SELECT=1, UPDATE=2", delete("/api/books/" + bookId));
+        }
+    }
+
+    // Below the delete chunk size, the books are deleted with one select and one delete
+    @Test
+    public void DeleteAuthorAndBooks_StatementsIndependentOfBookCount() throws Exception {
+        for (int size : SIZES) {
+            String authorId = addAuthors(1).get(0);
+            addBooks(authorId, size);
+            String cascadedAuthorId = addAuthors(1).get(0);
+            addBooks(cascadedAuthorId, size);
+
+            assertStatements(size, "DELETE=1, SELECT=2, UPDATE=2", delete("/api/authors/" + authorId + "/books"));
+            assertStatements(size, "DELETE=2, SELECT=2", delete("/api/authors/" + authorId));
+            assertStatements(size, "DELETE=3, SELECT=2, UPDATE=2", delete("/api/authors/" + cascadedAuthorId + "?cascade=true"));
+        }
+    }
+
+    @Test
+    public void GetAuthorDetail_StatementsIndependentOfBookCount() throws Exception {
+        for (int size : SIZES) {
+            String authorId = addAuthors(1).get(0);
+            addBooks(authorId, size);
+
+            assertStatements(size, "SELECT=3", get("/api/authors/" + authorId + "?limit=" + size));
+        }
+    }
+
+    @Test
+    public void AddAuthors_StatementsIndependentOfNameCount() throws Exception {
+        for (int size : SIZES) {
+            assertStatements(size, "INSERT=2, SELECT=1", post("/api/authors")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Collections.singletonMap("name", "author-" + UUID.randomUUID()))));
+            List<String> names = IntStream.range(0, size)
+                    .mapToObj(i -> "author-" + UUID.randomUUID())
+                    .collect(Collectors.toList());
+            assertStatements(size, "INSERT=2, SELECT=1", post("/api/authors/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Collections.singletonMap("names", names))));
+        }
+    }
+
+    private void assertStatements(int size, String expectedStatementCounts, RequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder).andReturn();
+        if (mvcResult.getRequest().isAsyncStarted())
+            mockMvc.perform(asyncDispatch(mvcResult));
+        RequestTrace trace = slowRequestLog.getSlowRequests().get(0);
+
+        assertTrue(trace.getPath() + " answered " + trace.getStatus(), trace.getStatus() < 300);
+        Map<String, Integer> statementCounts = new TreeMap<>(trace.getStatementCounts());
+        assertEquals(trace.getMethod() + " " + trace.getPath() + " with catalog size " + size + ", statements: "
+                        + trace.getStatements().stream().map(RequestTrace.StatementTrace::getSql).collect(Collectors.toList()),
+                "{" + expectedStatementCounts + "}", statementCounts.toString());
+    }
+
+    private List<String> addBooksOfDistinctAuthors(int count) {
+        List<String> bookIds = new ArrayList<>();
+        for (String authorId : addAuthors(count))
+            bookIds.addAll(addBooks(authorId, 1));
+        return bookIds;
+    }
+
+    private List<String> addAuthors(int count) {
+        List<String> names = IntStream.range(0, count)
+                .mapToObj(i -> "author-" + UUID.randomUUID())
+                .collect(Collectors.toList());
+        Map<String, String> authorIds = authorService.addAuthors(new AddAuthorsRequest(names)).blockingGet().getAuthorIds();
+        return names.stream()
+                .map(authorIds::get)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> addBooks(String authorId, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> bookService.addBook(new AddBookRequest("book-" + UUID.randomUUID(), authorId)).blockingGet())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,45 @@
+package com.axell.reactive.web;
+
+import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.startup.WarmUpListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(ReadinessRestController.class)
+public class ReadinessRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private WarmUpListener warmUpListener;
+
+    @Test
+    public void GetReadiness_WarmingUp_Return503() throws Exception {
+        when(warmUpListener.isReady()).thenReturn(false);
+
+        mockMvc.perform(get("/api/admin/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.NOT_READY.toString())));
+    }
+
+    @Test
+    public void GetReadiness_Ready_Return200() throws Exception {
+        when(warmUpListener.isReady()).thenReturn(true);
+
+        mockMvc.perform(get("/api/admin/ready"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,73 @@
+package com.axell.reactive.web.concurrency;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void TryAcquire_WriteShareUsed_RejectWritesButAdmitReads() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5);
+
+        for (int i = 0; i < 5; i++)
+            assertTrue(limiter.tryAcquire(true));
+
+        assertFalse(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(false));
+        assertEquals(6, limiter.getInFlight());
+    }
+
+    @Test
+    public void TryAcquire_LimitReached_RejectReads() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 1, 100, 0.5);
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(limiter.tryAcquire(false));
+
+        assertFalse(limiter.tryAcquire(false));
+    }
+
+    @Test
+    public void Release_SaturatedWithStableLatency_IncreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5);
+
+        runSaturatedRounds(limiter, 20, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertTrue(limiter.getLimit() > 10);
+    }
+
+    @Test
+    public void Release_SaturatedWithGrowingLatency_DecreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 1, 50, 0.5);
+        runSaturatedRounds(limiter, 5, TimeUnit.MILLISECONDS.toNanos(10));
+
+        runSaturatedRounds(limiter, 5, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(limiter.getLimit() < 50);
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    @Test
+    public void Abort_AfterAcquire_ReleasePermitWithoutChangingLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 100, 1.0);
+        assertTrue(limiter.tryAcquire(false));
+
+        limiter.abort();
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    private void runSaturatedRounds(AdaptiveConcurrencyLimiter limiter, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire(false))
+                acquired++;
+            for (int i = 0; i < acquired; i++)
+                limiter.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.axell.reactive.web.concurrency;
+
+import com.axell.reactive.configuration.RxJavaConfiguration;
+import com.axell.reactive.exception.ErrorCode;
+import com.axell.reactive.service.book.BookService;
+import com.axell.reactive.service.bookevent.BookEventService;
+import com.axell.reactive.servicedto.response.BookResponse;
+import com.axell.reactive.startup.HotBookTracker;
+import com.axell.reactive.startup.WarmUpListener;
+import com.axell.reactive.web.BookRestController;
+import com.axell.reactive.web.ReadinessRestController;
+import com.axell.reactive.web.idempotency.IdempotencyStore;
+import io.reactivex.Single;
+import io.reactivex.subjects.SingleSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest({BookRestController.class, ReadinessRestController.class})
+@Import({RxJavaConfiguration.class, IdempotencyStore.class, HotBookTracker.class})
+@TestPropertySource(properties = {
+        "web.concurrency-limit.initial-limit=1",
+        "web.concurrency-limit.min-limit=1",
+        "web.concurrency-limit.max-limit=1",
+        "web.concurrency-limit.endpoint-max-limit=1"
+})
+public class ConcurrencyLimitInterceptorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookService bookService;
+    @MockBean
+    private BookEventService bookEventService;
+    @MockBean
+    private WarmUpListener warmUpListener;
+
+    @Test
+    public void GetBookDetail_LimitSaturated_Return503WithRetryAfter() throws Exception {
+        SingleSubject<BookResponse> pendingBook = SingleSubject.create();
+        when(bookService.getBookDetail("pending")).thenReturn(pendingBook);
+        MvcResult pendingResult = mockMvc.perform(get("/api/books/pending"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.errorCode", equalTo(ErrorCode.SERVICE_OVERLOADED.toString())));
+
+        pendingBook.onSuccess(new BookResponse("pending", "title", "author"));
+        completeAsync(pendingResult);
+    }
+
+    @Test
+    public void GetBookDetail_PendingRequestCompleted_ReleasePermit() throws Exception {
+        SingleSubject<BookResponse> pendingBook = SingleSubject.create();
+        when(bookService.getBookDetail("pending")).thenReturn(pendingBook);
+        when(bookService.getBookDetail("1")).thenReturn(Single.just(new BookResponse("1", "title", "author")));
+        MvcResult pendingResult = mockMvc.perform(get("/api/books/pending")).andReturn();
+
+        pendingBook.onSuccess(new BookResponse("pending", "title", "author"));
+        mockMvc.perform(asyncDispatch(pendingResult))
+                .andExpect(status().isOk());
+        completeAsync(pendingResult);
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/books/1")).andReturn()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void GetBookDetail_PendingRequestFailed_ReleasePermit() throws Exception {
+        SingleSubject<BookResponse> pendingBook = SingleSubject.create();
+        when(bookService.getBookDetail("pending")).thenReturn(pendingBook);
+        when(bookService.getBookDetail("1")).thenReturn(Single.just(new BookResponse("1", "title", "author")));
+        MvcResult pendingResult = mockMvc.perform(get("/api/books/pending")).andReturn();
+
+        pendingBook.onError(new IllegalStateException());
+        failAsync(pendingResult);
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/books/1")).andReturn()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void GetReadiness_LimitSaturated_Return200() throws Exception {
+        SingleSubject<BookResponse> pendingBook = SingleSubject.create();
+        when(bookService.getBookDetail("pending")).thenReturn(pendingBook);
+        when(warmUpListener.isReady()).thenReturn(true);
+        MvcResult pendingResult = mockMvc.perform(get("/api/books/pending")).andReturn();
+
+        mockMvc.perform(get("/api/admin/ready"))
+                .andExpect(status().isOk());
+
+        pendingBook.onSuccess(new BookResponse("pending", "title", "author"));
+        completeAsync(pendingResult);
+    }
+
+    // MockMvc never completes the async context, so the tests play the container's part
+    private void completeAsync(MvcResult mvcResult) {
+        ((MockAsyncContext) mvcResult.getRequest().getAsyncContext()).complete();
+    }
+
+    private void failAsync(MvcResult mvcResult) throws IOException {
+        MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners())
+            listener.onError(new AsyncEvent(asyncContext, new IllegalStateException()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.axell.reactive.web.idempotency;
+
+import com.axell.reactive.exception.IdempotencyKeyReusedException;
+import io.reactivex.Single;
+import io.reactivex.subjects.SingleSubject;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdempotencyStoreTest {
+
+    private IdempotencyStore idempotencyStore;
+    private AtomicInteger writes;
+
+    @Before
+    public void setUp() {
+        idempotencyStore = new IdempotencyStore();
+        ReflectionTestUtils.setField(idempotencyStore, "ttlMillis", 60000L);
+        ReflectionTestUtils.setField(idempotencyStore, "maxKeys", 2);
+        writes = new AtomicInteger();
+    }
+
+    @Test
+    public void Execute_DuplicateWhileFirstInFlight_ShareSingleWrite() {
+        SingleSubject<String> inFlightWrite = SingleSubject.create();
+
+        Single<String> first = idempotencyStore.execute("books", "key", "a", () -> countWrite(inFlightWrite));
+        Single<String> duplicate = idempotencyStore.execute("books", "key", "a", () -> countWrite(Single.just("2")));
+        first.test().assertNotComplete();
+        inFlightWrite.onSuccess("1");
+
+        duplicate.test().assertValue("1");
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void Execute_OtherFingerprint_ReturnIdempotencyKeyReused() {
+        idempotencyStore.execute("books", "key", "a", () -> countWrite(Single.just("1"))).test().assertValue("1");
+
+        idempotencyStore.execute("books", "key", "b", () -> countWrite(Single.just("2")))
+                .test().assertError(IdempotencyKeyReusedException.class);
+        idempotencyStore.execute("authors", "key", "b", () -> countWrite(Single.just("3")))
+                .test().assertValue("3");
+    }
+
+    @Test
+    public void Execute_FirstWriteFailed_RunRetry() {
+        idempotencyStore.execute("books", "key", "a", () -> countWrite(Single.<String>error(new IllegalStateException())))
+                .test().assertError(IllegalStateException.class);
+
+        idempotencyStore.execute("books", "key", "a", () -> countWrite(Single.just("2"))).test().assertValue("2");
+        assertEquals(2, writes.get());
+    }
+
+    @Test
+    public void Execute_MoreKeysThanMax_ForgetOldestKey() {
+        for (String key : new String[]{"1", "2", "3"})
+            idempotencyStore.execute("books", key, "a", () -> countWrite(Single.just(key))).test().assertValue(key);
+
+        idempotencyStore.execute("books", "3", "a", () -> countWrite(Single.just("replay"))).test().assertValue("3");
+        idempotencyStore.execute("books", "1", "a", () -> countWrite(Single.just("again"))).test().assertValue("again");
+    }
+
+    private Single<String> countWrite(Single<String> write) {
+        return write.doOnSubscribe(disposable -> writes.incrementAndGet());
+    }
+}